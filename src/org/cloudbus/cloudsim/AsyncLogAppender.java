@@ -0,0 +1,242 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that copies the written bytes into a bounded ring buffer, which a background
+ * thread drains into the target stream. It can be set as the output of {@link Log} (and of
+ * {@link org.fog.utils.Logger}), so that the simulation thread does not wait for the console or
+ * the disk on every logged line. Writers block when the ring buffer is full, so no output is lost.
+ * The appender must be closed, or at least flushed, before the target stream is read; it is closed
+ * automatically when the virtual machine shuts down, e.g. on <tt>System.exit</tt>.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see Log#setOutput(OutputStream)
+ */
+public class AsyncLogAppender extends OutputStream {
+
+	/** The default capacity of the ring buffer, in bytes. */
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	/** The target stream. */
+	private final OutputStream target;
+
+	/** The ring buffer. */
+	private final byte[] buffer;
+
+	/** The number of bytes written to the target stream so far. */
+	private long head;
+
+	/** The number of bytes written to the ring buffer so far. */
+	private long tail;
+
+	/** Whether the appender is closed. */
+	private boolean closed;
+
+	/** The failure of the last write to the target stream, reported to the next writer. */
+	private IOException failure;
+
+	/** The thread draining the ring buffer. */
+	private final Thread drainer;
+
+	/** The shutdown hook closing the appender. */
+	private final Thread shutdownHook;
+
+	/**
+	 * Creates an appender with the default capacity.
+	 *
+	 * @param target the target stream
+	 */
+	public AsyncLogAppender(OutputStream target) {
+		this(target, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an appender.
+	 *
+	 * @param target the target stream
+	 * @param capacity the capacity of the ring buffer, in bytes
+	 */
+	public AsyncLogAppender(OutputStream target, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity should be positive, but is:" + capacity);
+		}
+		this.target = target;
+		buffer = new byte[capacity];
+		drainer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "AsyncLogAppender");
+		drainer.setDaemon(true);
+		drainer.start();
+		shutdownHook = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}, "AsyncLogAppender-shutdown");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		checkState();
+		boolean interrupted = false;
+		while (len > 0) {
+			while (tail - head == buffer.length) {
+				interrupted |= await();
+				checkState();
+			}
+			int position = (int) (tail % buffer.length);
+			int count = Math.min(len, Math.min(buffer.length - (int) (tail - head), buffer.length - position));
+			System.arraycopy(b, off, buffer, position, count);
+			tail += count;
+			off += count;
+			len -= count;
+			notifyAll();
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits until all the bytes written so far have been written to the target stream, then flushes
+	 * the target stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		synchronized (this) {
+			boolean interrupted = false;
+			while (head != tail && failure == null) {
+				interrupted |= await();
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			checkFailure();
+		}
+		target.flush();
+	}
+
+	/**
+	 * Flushes the appender and stops its background thread. The target stream is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		if (Thread.currentThread() != shutdownHook) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException e) {
+				// the virtual machine is already shutting down
+			}
+		}
+		boolean interrupted = false;
+		while (drainer.isAlive()) {
+			try {
+				drainer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			checkFailure();
+		}
+		target.flush();
+	}
+
+	/**
+	 * Writes the content of the ring buffer to the target stream until the appender is closed and
+	 * the ring buffer is empty.
+	 */
+	private void drain() {
+		while (true) {
+			int position;
+			int count;
+			synchronized (this) {
+				while (head == tail && !closed) {
+					await();
+				}
+				if (head == tail) {
+					return;
+				}
+				position = (int) (head % buffer.length);
+				count = (int) Math.min(tail - head, buffer.length - position);
+			}
+			try {
+				target.write(buffer, position, count);
+			} catch (IOException e) {
+				synchronized (this) {
+					failure = e;
+				}
+			}
+			synchronized (this) {
+				head += count;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Waits for a change of the ring buffer. Writing the log is not interruptible: the interruption
+	 * is reported to the caller, which restores the interrupted status once done.
+	 *
+	 * @return true if the thread was interrupted while waiting
+	 */
+	private boolean await() {
+		try {
+			wait();
+			return false;
+		} catch (InterruptedException e) {
+			return true;
+		}
+	}
+
+	private void checkState() throws IOException {
+		if (closed) {
+			throw new IOException("The appender is closed");
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			IOException e = failure;
+			failure = null;
+			throw e;
+		}
+	}
+
+}
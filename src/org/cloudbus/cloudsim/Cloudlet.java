@@ -40,16 +40,16 @@ public class Cloudlet {
 	 * TODO:The input file size of this Cloudlet before execution (unit: in byte). in byte = program +
 	 * input data size(执行之前输入文件大小)
 	 */
-	private final long cloudletFileSize;
+	private long cloudletFileSize;
 
 	/** TODO:The output file size of this Cloudlet after execution (unit: in byte). （执行之后输出文件的大小）*/
-	private final long cloudletOutputSize;
+	private long cloudletOutputSize;
 
 	/** The num of Pe required to execute this job. */
 	private int numberOfPes;
 
 	/** TODO:The cloudlet ID. */
-	private final int cloudletId;
+	private int cloudletId;
 
 	/** The status of this Cloudlet. */
 	//TODO:有何种状态
@@ -362,6 +362,68 @@ public class Cloudlet {
 		setUtilizationModelBw(utilizationModelBw);
 	}
 
+	/**
+	 * Reinitializes this Cloudlet as if it had just been allocated with the given attributes, so
+	 * that the object can be reused instead of allocating a new one. The history recording setting
+	 * is kept. Must only be called once no entity, event or scheduler refers to this Cloudlet any
+	 * more.
+	 * 
+	 * @param cloudletId the unique ID of this Cloudlet
+	 * @param cloudletLength the length or size (in MI) of this cloudlet to be executed in a
+	 *            PowerDataCenter
+	 * @param pesNumber the pes number
+	 * @param cloudletFileSize the file size (in byte) of this cloudlet <tt>BEFORE</tt> submitting
+	 *            to a PowerDataCenter
+	 * @param cloudletOutputSize the file size (in byte) of this cloudlet <tt>AFTER</tt> finish
+	 *            executing by a PowerDataCenter
+	 * @param utilizationModelCpu the utilization model cpu
+	 * @param utilizationModelRam the utilization model ram
+	 * @param utilizationModelBw the utilization model bw
+	 * @pre cloudletID >= 0
+	 * @post $none
+	 */
+	protected void reinitialize(
+			final int cloudletId,
+			final long cloudletLength,
+			final int pesNumber,
+			final long cloudletFileSize,
+			final long cloudletOutputSize,
+			final UtilizationModel utilizationModelCpu,
+			final UtilizationModel utilizationModelRam,
+			final UtilizationModel utilizationModelBw) {
+		userId = -1;
+		status = CREATED;
+		this.cloudletId = cloudletId;
+		numberOfPes = pesNumber;
+		execStartTime = 0.0;
+		finishTime = -1.0;
+		reservationId = -1;
+		classType = 0;
+		netToS = 0;
+
+		this.cloudletLength = Math.max(1, cloudletLength);
+		this.cloudletFileSize = Math.max(1, cloudletFileSize);
+		this.cloudletOutputSize = Math.max(1, cloudletOutputSize);
+
+		resList.clear();
+		index = -1;
+		history = null;
+
+		vmId = -1;
+		accumulatedBwCost = 0.0;
+		costPerBw = 0.0;
+
+		if (requiredFiles == null) {
+			requiredFiles = new LinkedList<String>();
+		} else {
+			requiredFiles.clear();
+		}
+
+		setUtilizationModelCpu(utilizationModelCpu);
+		setUtilizationModelRam(utilizationModelRam);
+		setUtilizationModelBw(utilizationModelBw);
+	}
+
 	// ////////////////////// INTERNAL CLASS ///////////////////////////////////
 
 	/**
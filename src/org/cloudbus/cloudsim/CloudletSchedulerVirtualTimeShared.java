@@ -0,0 +1,437 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * CloudletSchedulerVirtualTimeShared implements the same processor-sharing policy as
+ * {@link CloudletSchedulerTimeShared}, in time logarithmic in the number of running cloudlets.
+ *
+ * All the running cloudlets progress at the same rate per PE, so instead of updating every cloudlet,
+ * the scheduler advances a virtual time counting the work done per PE since the start, and gives
+ * every cloudlet a finish tag: the virtual time at which its last whole MI is done. The cloudlets
+ * are kept in a min-heap of finish tags, so that an update only touches the finished cloudlets and
+ * the next one to finish. The progress of a cloudlet is written to its {@link ResCloudlet} when it
+ * leaves the scheduler or when the exec list is read.
+ *
+ * The work done in an update is truncated to a whole number of millionths of MI per cloudlet, as in
+ * {@link CloudletSchedulerTimeShared}; cloudlets are therefore grouped by number of PEs, each group
+ * having its own virtual time, so that the results of both schedulers are identical.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class CloudletSchedulerVirtualTimeShared extends CloudletSchedulerTimeShared {
+
+    /** The running cloudlets, in order of submission. */
+    private final Set<RunningCloudlet> running;
+
+    /** The groups of running cloudlets, by number of PEs. */
+    private final List<PesGroup> groups;
+
+    /** The number of PEs used by the running cloudlets. */
+    private int pesInUse;
+
+    /** The number of cloudlets submitted or resumed so far, giving their order of submission. */
+    private long numSubmitted;
+
+    /** The cloudlets finished by the current update. */
+    private final List<RunningCloudlet> finished;
+
+    /**
+     * Creates a new CloudletSchedulerVirtualTimeShared object. This method must be invoked before
+     * starting the actual simulation.
+     */
+    public CloudletSchedulerVirtualTimeShared() {
+        super();
+        running = new LinkedHashSet<RunningCloudlet>();
+        groups = new ArrayList<PesGroup>();
+        finished = new ArrayList<RunningCloudlet>();
+    }
+
+    @Override
+    public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+        setCurrentMipsShare(mipsShare);
+        double timeSpam = currentTime - getPreviousTime();
+
+        if (running.isEmpty()) {
+            setPreviousTime(currentTime);
+            return 0.0;
+        }
+
+        double capacity = getCapacity(mipsShare);
+        for (PesGroup group : groups) {
+            group.virtualTime += (long) (capacity * timeSpam * group.pes * Consts.MILLION);
+        }
+
+        // finished cloudlets, in order of submission as in the exec list
+        for (PesGroup group : groups) {
+            while (!group.cloudlets.isEmpty() && group.cloudlets.peek().finishTag < group.virtualTime) {
+                finished.add(group.cloudlets.poll());
+            }
+        }
+        if (finished.size() > 1) {
+            Collections.sort(finished, SUBMISSION_ORDER);
+        }
+        for (RunningCloudlet cloudlet : finished) {
+            remove(cloudlet);
+            cloudletFinish(cloudlet.rcl);
+        }
+        finished.clear();
+
+        // estimate finish time of cloudlets
+        double nextEvent = Double.MAX_VALUE;
+        if (!running.isEmpty()) {
+            capacity = getCapacity(mipsShare);
+            for (PesGroup group : groups) {
+                RunningCloudlet next = group.cloudlets.peek();
+                if (next == null) {
+                    continue;
+                }
+                long remainingLength = (next.finishTag + Consts.MILLION - group.virtualTime) / Consts.MILLION;
+                double estimatedFinishTime = currentTime + (remainingLength / (capacity * group.pes));
+                if (estimatedFinishTime - currentTime < CloudSim.getMinTimeBetweenEvents()) {
+                    estimatedFinishTime = currentTime + CloudSim.getMinTimeBetweenEvents();
+                }
+                if (estimatedFinishTime < nextEvent) {
+                    nextEvent = estimatedFinishTime;
+                }
+            }
+        }
+
+        setPreviousTime(currentTime);
+        return nextEvent;
+    }
+
+    @Override
+    protected double getCapacity(List<Double> mipsShare) {
+        double capacity = 0.0;
+        int cpus = 0;
+        for (Double mips : mipsShare) {
+            capacity += mips;
+            if (mips > 0.0) {
+                cpus++;
+            }
+        }
+        currentCPUs = cpus;
+
+        if (pesInUse > currentCPUs) {
+            capacity /= pesInUse;
+        } else {
+            capacity /= currentCPUs;
+        }
+        return capacity;
+    }
+
+    @Override
+    public Cloudlet cloudletCancel(int cloudletId) {
+        // First, looks in the finished queue
+        int position = 0;
+        for (ResCloudlet rcl : getCloudletFinishedList()) {
+            if (rcl.getCloudletId() == cloudletId) {
+                return getCloudletFinishedList().remove(position).getCloudlet();
+            }
+            position++;
+        }
+
+        // Then searches the running cloudlets
+        RunningCloudlet cloudlet = find(cloudletId);
+        if (cloudlet != null) {
+            cloudlet.group.cloudlets.remove(cloudlet);
+            remove(cloudlet);
+            ResCloudlet rcl = cloudlet.rcl;
+            if (rcl.getRemainingCloudletLength() == 0) {
+                cloudletFinish(rcl);
+            } else {
+                rcl.setCloudletStatus(Cloudlet.CANCELED);
+            }
+            return rcl.getCloudlet();
+        }
+
+        // Now, looks in the paused queue
+        position = 0;
+        for (ResCloudlet rcl : getCloudletPausedList()) {
+            if (rcl.getCloudletId() == cloudletId) {
+                rcl.setCloudletStatus(Cloudlet.CANCELED);
+                return getCloudletPausedList().remove(position).getCloudlet();
+            }
+            position++;
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean cloudletPause(int cloudletId) {
+        RunningCloudlet cloudlet = find(cloudletId);
+        if (cloudlet == null) {
+            return false;
+        }
+        cloudlet.group.cloudlets.remove(cloudlet);
+        remove(cloudlet);
+        ResCloudlet rcl = cloudlet.rcl;
+        if (rcl.getRemainingCloudletLength() == 0) {
+            cloudletFinish(rcl);
+        } else {
+            rcl.setCloudletStatus(Cloudlet.PAUSED);
+            getCloudletPausedList().add(rcl);
+        }
+        return true;
+    }
+
+    @Override
+    public double cloudletResume(int cloudletId) {
+        int position = 0;
+        for (ResCloudlet rcl : getCloudletPausedList()) {
+            if (rcl.getCloudletId() == cloudletId) {
+                ResCloudlet rgl = getCloudletPausedList().remove(position);
+                rgl.setCloudletStatus(Cloudlet.INEXEC);
+                schedule(add(rgl));
+
+                double remainingLength = rgl.getRemainingCloudletLength();
+                return CloudSim.clock() + (remainingLength / (getCapacity(getCurrentMipsShare()) * rgl.getNumberOfPes()));
+            }
+            position++;
+        }
+        return 0.0;
+    }
+
+    @Override
+    public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+        ResCloudlet rcl = new ResCloudlet(cloudlet);
+        rcl.setCloudletStatus(Cloudlet.INEXEC);
+        for (int i = 0; i < cloudlet.getNumberOfPes(); i++) {
+            rcl.setMachineAndPeId(0, i);
+        }
+
+        RunningCloudlet added = add(rcl);
+
+        // use the current capacity to estimate the extra amount of
+        // time to file transferring. It must be added to the cloudlet length
+        double extraSize = getCapacity(getCurrentMipsShare()) * fileTransferTime;
+        long length = (long) (cloudlet.getCloudletLength() + extraSize);
+        cloudlet.setCloudletLength(length);
+        schedule(added);
+        return cloudlet.getCloudletLength() / getCapacity(getCurrentMipsShare());
+    }
+
+    @Override
+    public int getCloudletStatus(int cloudletId) {
+        RunningCloudlet cloudlet = find(cloudletId);
+        if (cloudlet != null) {
+            return cloudlet.rcl.getCloudletStatus();
+        }
+        for (ResCloudlet rcl : getCloudletPausedList()) {
+            if (rcl.getCloudletId() == cloudletId) {
+                return rcl.getCloudletStatus();
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public double getTotalUtilizationOfCpu(double time) {
+        double totalUtilization = 0;
+        for (RunningCloudlet cloudlet : running) {
+            totalUtilization += cloudlet.rcl.getCloudlet().getUtilizationOfCpu(time);
+        }
+        return totalUtilization;
+    }
+
+    @Override
+    public int runningCloudlets() {
+        return running.size();
+    }
+
+    @Override
+    public Cloudlet migrateCloudlet() {
+        RunningCloudlet cloudlet = running.iterator().next();
+        cloudlet.group.cloudlets.remove(cloudlet);
+        remove(cloudlet);
+        cloudlet.rcl.finalizeCloudlet();
+        return cloudlet.rcl.getCloudlet();
+    }
+
+    /**
+     * Gets a copy of the cloudlet exec list, after having written the progress of the running
+     * cloudlets. Changes to the returned list do not affect the scheduler.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    protected <T extends ResCloudlet> List<T> getCloudletExecList() {
+        List<ResCloudlet> execList = new ArrayList<ResCloudlet>(running.size());
+        for (RunningCloudlet cloudlet : running) {
+            updateProgress(cloudlet);
+            execList.add(cloudlet.rcl);
+        }
+        return (List<T>) execList;
+    }
+
+    @Override
+    public double getCurrentRequestedUtilizationOfRam() {
+        double ram = 0;
+        for (RunningCloudlet cloudlet : running) {
+            ram += cloudlet.rcl.getCloudlet().getUtilizationOfRam(CloudSim.clock());
+        }
+        return ram;
+    }
+
+    @Override
+    public double getCurrentRequestedUtilizationOfBw() {
+        double bw = 0;
+        for (RunningCloudlet cloudlet : running) {
+            bw += cloudlet.rcl.getCloudlet().getUtilizationOfBw(CloudSim.clock());
+        }
+        return bw;
+    }
+
+    /**
+     * Adds a cloudlet to the running cloudlets. It must then be scheduled with
+     * {@link #schedule(RunningCloudlet)} once its length is final.
+     */
+    private RunningCloudlet add(ResCloudlet rcl) {
+        PesGroup group = null;
+        for (PesGroup candidate : groups) {
+            if (candidate.pes == rcl.getNumberOfPes()) {
+                group = candidate;
+                break;
+            }
+        }
+        if (group == null) {
+            group = new PesGroup(rcl.getNumberOfPes());
+            groups.add(group);
+        }
+        RunningCloudlet cloudlet = new RunningCloudlet(rcl, group, numSubmitted++);
+        running.add(cloudlet);
+        pesInUse += rcl.getNumberOfPes();
+        return cloudlet;
+    }
+
+    /**
+     * Adds a running cloudlet to the heap of its group.
+     */
+    private void schedule(RunningCloudlet cloudlet) {
+        cloudlet.finishTag = finishTag(cloudlet);
+        cloudlet.group.cloudlets.add(cloudlet);
+    }
+
+    /**
+     * Removes a cloudlet, already removed from the heap of its group, from the running cloudlets,
+     * writing its progress.
+     */
+    private void remove(RunningCloudlet cloudlet) {
+        updateProgress(cloudlet);
+        running.remove(cloudlet);
+        pesInUse -= cloudlet.rcl.getNumberOfPes();
+    }
+
+    private RunningCloudlet find(int cloudletId) {
+        for (Iterator<RunningCloudlet> it = running.iterator(); it.hasNext();) {
+            RunningCloudlet cloudlet = it.next();
+            if (cloudlet.rcl.getCloudletId() == cloudletId) {
+                return cloudlet;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the work done by a running cloudlet since the last call to its {@link ResCloudlet}.
+     */
+    private void updateProgress(RunningCloudlet cloudlet) {
+        long done = cloudlet.group.virtualTime - cloudlet.startVirtualTime;
+        if (done != 0) {
+            cloudlet.rcl.updateCloudletFinishedSoFar(done);
+            cloudlet.startVirtualTime = cloudlet.group.virtualTime;
+        }
+    }
+
+    /**
+     * Gets the finish tag of a cloudlet: the remaining length of the cloudlet reaches 0 when the
+     * work done since it started, in millionths of MI, exceeds its remaining length minus 1 MI.
+     */
+    private static long finishTag(RunningCloudlet cloudlet) {
+        long remaining = cloudlet.rcl.getCloudlet().getCloudletTotalLength() * Consts.MILLION
+                - cloudlet.rcl.getCloudletFinishedSoFar();
+        return cloudlet.startVirtualTime + remaining - Consts.MILLION;
+    }
+
+    /** Orders the cloudlets by finish tag, then by order of submission. */
+    private static final Comparator<RunningCloudlet> FINISH_TAG_ORDER = new Comparator<RunningCloudlet>() {
+
+        @Override
+        public int compare(RunningCloudlet c1, RunningCloudlet c2) {
+            if (c1.finishTag != c2.finishTag) {
+                return c1.finishTag < c2.finishTag ? -1 : 1;
+            }
+            return SUBMISSION_ORDER.compare(c1, c2);
+        }
+    };
+
+    /** Orders the cloudlets by order of submission. */
+    private static final Comparator<RunningCloudlet> SUBMISSION_ORDER = new Comparator<RunningCloudlet>() {
+
+        @Override
+        public int compare(RunningCloudlet c1, RunningCloudlet c2) {
+            return c1.submission < c2.submission ? -1 : (c1.submission == c2.submission ? 0 : 1);
+        }
+    };
+
+    /**
+     * The running cloudlets using a given number of PEs, which all do the same work in an update.
+     */
+    private static class PesGroup {
+
+        final int pes;
+
+        /** The work done per cloudlet of the group since the creation of the scheduler, in millionths of MI. */
+        long virtualTime;
+
+        final PriorityQueue<RunningCloudlet> cloudlets = new PriorityQueue<RunningCloudlet>(16, FINISH_TAG_ORDER);
+
+        PesGroup(int pes) {
+            this.pes = pes;
+        }
+    }
+
+    /**
+     * A running cloudlet.
+     */
+    private static class RunningCloudlet {
+
+        final ResCloudlet rcl;
+
+        final PesGroup group;
+
+        final long submission;
+
+        /** The virtual time of the group when the progress of the cloudlet was last written. */
+        long startVirtualTime;
+
+        /** The virtual time of the group after which the cloudlet is finished. */
+        long finishTag;
+
+        RunningCloudlet(ResCloudlet rcl, PesGroup group, long submission) {
+            this.rcl = rcl;
+            this.group = group;
+            this.submission = submission;
+            startVirtualTime = group.virtualTime;
+        }
+    }
+
+}
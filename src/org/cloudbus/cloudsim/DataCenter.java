@@ -9,9 +9,11 @@ package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
@@ -68,6 +70,11 @@ public class DataCenter extends SimEntity {
      */
     private double schedulingInterval;
 
+    /**
+     * The pending VM_DATACENTER_EVENT events sent by this entity.
+     */
+    private final Set<SimEvent> pendingDataCenterEvents = new HashSet<SimEvent>();
+
     /**
      * Allocates a new PowerDataCenter object.
      *
@@ -127,6 +134,35 @@ public class DataCenter extends SimEntity {
         // empty. This should be override by a child class
     }
 
+    /**
+     * Sends an event, keeping track of the VM_DATACENTER_EVENT events sent by this entity so that
+     * {@link #cancelDataCenterEvents()} can cancel them without scanning the future queue.
+     */
+    @Override
+    public SimEvent schedule(int dest, double delay, int tag, Object data) {
+        SimEvent event = super.schedule(dest, delay, tag, data);
+        if (event != null && tag == CloudSimTags.VM_DATACENTER_EVENT) {
+            pendingDataCenterEvents.add(event);
+        }
+        return event;
+    }
+
+    /**
+     * Cancels all the pending VM_DATACENTER_EVENT events sent by this entity.
+     *
+     * @return true if at least one event has been cancelled
+     * @pre $none
+     * @post $none
+     */
+    protected boolean cancelDataCenterEvents() {
+        boolean cancelled = false;
+        for (SimEvent event : pendingDataCenterEvents) {
+            cancelled |= CloudSim.cancel(event);
+        }
+        pendingDataCenterEvents.clear();
+        return cancelled;
+    }
+
     /**
      * Processes events or services that are available for this PowerDataCenter.
      *
@@ -260,6 +296,7 @@ public class DataCenter extends SimEntity {
                 break;
 
             case CloudSimTags.VM_DATACENTER_EVENT:
+                pendingDataCenterEvents.remove(ev);
                 updateCloudletProcessing();
                 checkCloudletCompletion();
                 break;
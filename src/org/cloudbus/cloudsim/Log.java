@@ -86,6 +86,85 @@ public class Log {
 		}
 	}
 
+	/**
+	 * Prints a line whose <tt>{}</tt> placeholder is replaced by the string value of the argument.
+	 * The line is only built when the output is enabled.
+	 * 
+	 * @param pattern the message with a placeholder
+	 * @param arg the argument
+	 */
+	public static void printLine(String pattern, Object arg) {
+		if (!isDisabled()) {
+			printLine(formatMessage(pattern, arg));
+		}
+	}
+
+	/**
+	 * Prints a line whose <tt>{}</tt> placeholders are replaced by the string values of the
+	 * arguments. The line is only built when the output is enabled.
+	 * 
+	 * @param pattern the message with placeholders
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 */
+	public static void printLine(String pattern, Object arg1, Object arg2) {
+		if (!isDisabled()) {
+			printLine(formatMessage(pattern, arg1, arg2));
+		}
+	}
+
+	/**
+	 * Prints a line whose <tt>{}</tt> placeholders are replaced by the string values of the
+	 * arguments. The line is only built when the output is enabled.
+	 * 
+	 * @param pattern the message with placeholders
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 * @param arg3 the third argument
+	 */
+	public static void printLine(String pattern, Object arg1, Object arg2, Object arg3) {
+		if (!isDisabled()) {
+			printLine(formatMessage(pattern, arg1, arg2, arg3));
+		}
+	}
+
+	/**
+	 * Prints a line whose <tt>{}</tt> placeholders are replaced by the string values of the
+	 * arguments, in order. The line is only built when the output is enabled.
+	 * 
+	 * @param pattern the message with placeholders
+	 * @param args the arguments
+	 */
+	public static void printLine(String pattern, Object... args) {
+		if (!isDisabled()) {
+			printLine(formatMessage(pattern, args));
+		}
+	}
+
+	/**
+	 * Replaces the <tt>{}</tt> placeholders of a message by the string values of the arguments, in
+	 * order. Placeholders without an argument are kept, and arguments without a placeholder are
+	 * ignored.
+	 * 
+	 * @param pattern the message with placeholders
+	 * @param args the arguments
+	 * @return the message
+	 */
+	public static String formatMessage(String pattern, Object... args) {
+		StringBuilder builder = new StringBuilder(pattern.length() + 16 * args.length);
+		int start = 0;
+		for (Object arg : args) {
+			int placeholder = pattern.indexOf("{}", start);
+			if (placeholder < 0) {
+				break;
+			}
+			builder.append(pattern, start, placeholder).append(arg);
+			start = placeholder + 2;
+		}
+		builder.append(pattern, start, pattern.length());
+		return builder.toString();
+	}
+
 	/**
 	 * Prints a string formated as in String.format().
 	 * 
@@ -8,12 +8,15 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.network.DelayMatrix;
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
+import org.cloudbus.cloudsim.network.DijkstraDelayMatrix;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
 import org.cloudbus.cloudsim.network.TopologicalLink;
@@ -29,6 +32,10 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * The delays between the nodes are computed by the algorithm selected with
+ * {@link #setDelayMatrixType(DelayMatrixType)}, Floyd-Warshall by default. Topologies of thousands
+ * of nodes should use one of the Dijkstra-based types, which also leave out the bandwidth matrix.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -36,11 +43,31 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  */
 public class NetworkTopology {
 
+	/**
+	 * Algorithms computing the delays between the nodes of the topology.
+	 */
+	public enum DelayMatrixType {
+		/** All the delays computed by {@link DelayMatrix_Float}, in a time cubic in the number of nodes. */
+		FLOYD_WARSHALL,
+		/** All the delays computed by parallel threads into a flat {@link DijkstraDelayMatrix}. */
+		DIJKSTRA,
+		/** The delays from a node computed on the first request, as by {@link DijkstraDelayMatrix}. */
+		LAZY_DIJKSTRA
+	}
+
 	protected static int nextIdx = 0;
 
 	private static boolean networkEnabled = false;
 
-	protected static DelayMatrix_Float delayMatrix = null;
+	private static DelayMatrixType delayMatrixType = DelayMatrixType.FLOYD_WARSHALL;
+
+	/** Number of rows kept by the {@link DelayMatrixType#LAZY_DIJKSTRA} matrix. */
+	private static int delayMatrixCacheSize = 1024;
+
+	/** File to which the {@link DelayMatrixType#DIJKSTRA} matrix is mapped, or null. */
+	private static File delayMatrixFile = null;
+
+	protected static DelayMatrix delayMatrix = null;
 
 	protected static double[][] bwMatrix = null;
 
@@ -75,15 +102,45 @@ public class NetworkTopology {
 
 	}
 
+	/**
+	 * Creates the network topology from a BRITE file, computing its delays with the given
+	 * algorithm.
+	 * 
+	 * @param fileName name of the BRITE file
+	 * @param type algorithm computing the delays between the nodes
+	 * @pre fileName != null
+	 * @pre type != null
+	 * @post $none
+	 */
+	public static void buildNetworkTopology(String fileName, DelayMatrixType type) {
+		setDelayMatrixType(type);
+		buildNetworkTopology(fileName);
+	}
+
 	/**
 	 * Generates the matrices used internally to set latency and bandwidth between elements
+	 * 
+	 * @throws IOException if the delay matrix can not be mapped to its file
 	 */
-	private static void generateMatrices() {
+	private static void generateMatrices() throws IOException {
 		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
-
-		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+		switch (delayMatrixType) {
+			case DIJKSTRA:
+				delayMatrix = new DijkstraDelayMatrix(graph, false, Runtime.getRuntime().availableProcessors(),
+						delayMatrixFile);
+				bwMatrix = null;
+				break;
+			case LAZY_DIJKSTRA:
+				delayMatrix = new DijkstraDelayMatrix(graph, false, delayMatrixCacheSize);
+				bwMatrix = null;
+				break;
+			default:
+				delayMatrix = new DelayMatrix_Float(graph, false);
+
+				// creates the bw matrix
+				bwMatrix = createBwMatrix(graph, false);
+				break;
+		}
 
 		networkEnabled = true;
 	}
@@ -125,7 +182,13 @@ public class NetworkTopology {
 		// generate a new link
 		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
 
-		generateMatrices();
+		try {
+			generateMatrices();
+		} catch (IOException e) {
+			networkEnabled = false;
+			Log.printLine("Problem in generating the delay matrix. Network simulation is disabled. Error: "
+					+ e.getMessage());
+		}
 
 	}
 
@@ -246,4 +309,41 @@ public class NetworkTopology {
 		return networkEnabled;
 	}
 
+	/**
+	 * Selects the algorithm computing the delays of the topologies built from now on.
+	 * 
+	 * @param type algorithm computing the delays between the nodes
+	 * @pre type != null
+	 * @post $none
+	 */
+	public static void setDelayMatrixType(DelayMatrixType type) {
+		delayMatrixType = type;
+	}
+
+	public static DelayMatrixType getDelayMatrixType() {
+		return delayMatrixType;
+	}
+
+	/**
+	 * Sets the number of rows of delays kept by the {@link DelayMatrixType#LAZY_DIJKSTRA} matrix.
+	 * 
+	 * @param cacheSize maximum number of source nodes whose delays are kept
+	 * @pre cacheSize > 0
+	 * @post $none
+	 */
+	public static void setDelayMatrixCacheSize(int cacheSize) {
+		delayMatrixCacheSize = cacheSize;
+	}
+
+	/**
+	 * Sets the file to which the {@link DelayMatrixType#DIJKSTRA} matrix is mapped, so that it
+	 * does not have to fit in memory.
+	 * 
+	 * @param file the file, or null to keep the matrix in direct memory
+	 * @post $none
+	 */
+	public static void setDelayMatrixFile(File file) {
+		delayMatrixFile = file;
+	}
+
 }
@@ -0,0 +1,305 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A store of the PlanetLab traces of a directory, converted once into a binary file that is
+ * memory-mapped and shared by all the {@link UtilizationModelPlanetLabMapped} models reading it.
+ * The samples of every trace are stored as shorts holding the utilization percentage, one trace
+ * after the other, so that a model only keeps the index of its trace and reads the samples from
+ * the mapping, which the operating system loads lazily, instead of parsing its file and holding
+ * its own array.
+ * <p>
+ * The store file holds a header with its version, the number of traces and the number of samples
+ * per trace, the samples of the traces, and the name, size and modification time of the trace
+ * files, from which {@link #getInstance(File, File, int)} tells whether the store has to be
+ * converted again when it opens it. As in
+ * {@link UtilizationModelPlanetLabInMemory}, the last sample of a trace repeats the sample before.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class PlanetLabTraceStore {
+
+	/** Magic number and version of the store files. */
+	private static final int MAGIC = 0x504c5453;
+	private static final int VERSION = 2;
+
+	/** Size of the header of the store files. */
+	private static final int HEADER_SIZE = 16;
+
+	/** Stores opened so far, by the canonical path of their file. */
+	private static final Map<String, PlanetLabTraceStore> stores = new HashMap<String, PlanetLabTraceStore>();
+
+	private final File file;
+
+	private final int samples;
+
+	private final ShortBuffer data;
+
+	private final List<String> traceNames;
+
+	private final Map<String, Integer> traceIndexes;
+
+	/** Sizes of the trace files when the store was converted. */
+	private final long[] traceSizes;
+
+	/** Modification times of the trace files when the store was converted. */
+	private final long[] traceModificationTimes;
+
+	private PlanetLabTraceStore(File file) throws IOException {
+		this.file = file;
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			if (input.length() < HEADER_SIZE || input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Not a PlanetLab trace store: " + file);
+			}
+			int traceCount = input.readInt();
+			samples = input.readInt();
+			long dataSize = 2L * traceCount * samples;
+			if (HEADER_SIZE + dataSize > input.length()) {
+				throw new IOException("Truncated PlanetLab trace store: " + file);
+			}
+
+			MappedByteBuffer mapping = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+			mapping.position(HEADER_SIZE);
+			ByteBuffer dataBytes = mapping.slice();
+			dataBytes.limit((int) dataSize);
+			data = dataBytes.asShortBuffer();
+
+			byte[] names = new byte[(int) (input.length() - HEADER_SIZE - dataSize)];
+			mapping.position((int) (HEADER_SIZE + dataSize));
+			mapping.get(names);
+			DataInputStream namesInput = new DataInputStream(new ByteArrayInputStream(names));
+			traceNames = new ArrayList<String>(traceCount);
+			traceIndexes = new HashMap<String, Integer>();
+			traceSizes = new long[traceCount];
+			traceModificationTimes = new long[traceCount];
+			for (int i = 0; i < traceCount; i++) {
+				String name = namesInput.readUTF();
+				traceNames.add(name);
+				traceIndexes.put(name, i);
+				traceSizes[i] = namesInput.readLong();
+				traceModificationTimes[i] = namesInput.readLong();
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Gets the store of the traces of a directory. When the store file is first opened, the
+	 * directory is converted into it if the file does not exist yet, holds another number of
+	 * samples, or was converted from other trace files, including files of the same name whose
+	 * size or modification time changed since. The store is opened once and shared: later calls for
+	 * the same file and number of samples return it without listing the directory again, so trace
+	 * files changed while it is open are only seen by a new virtual machine. The check still costs
+	 * a listing of the directory on the first call; callers creating many models should get the
+	 * store once and pass it to each {@link UtilizationModelPlanetLabMapped}.
+	 *
+	 * @param inputFolder the directory of the PlanetLab trace files
+	 * @param storeFile the store file
+	 * @param dataSamples number of samples of every trace
+	 * @return the store
+	 * @throws NumberFormatException if a trace file holds an invalid sample
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static synchronized PlanetLabTraceStore getInstance(File inputFolder, File storeFile, int dataSamples)
+			throws NumberFormatException,
+			IOException {
+		String key = storeFile.getCanonicalPath();
+		PlanetLabTraceStore store = stores.get(key);
+		if (store != null && store.samples == dataSamples) {
+			return store;
+		}
+		List<File> traceFiles = listTraceFiles(inputFolder);
+		store = null;
+		if (storeFile.exists()) {
+			try {
+				store = new PlanetLabTraceStore(storeFile);
+			} catch (IOException e) {
+				// converted again below
+			}
+		}
+		if (store == null || !store.isConvertedFrom(traceFiles, dataSamples)) {
+			convert(inputFolder, storeFile, dataSamples);
+			store = new PlanetLabTraceStore(storeFile);
+		}
+		stores.put(key, store);
+		return store;
+	}
+
+	/**
+	 * Opens an existing store file, shared by all the calls for the same file.
+	 *
+	 * @param storeFile the store file
+	 * @return the store
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static synchronized PlanetLabTraceStore open(File storeFile) throws IOException {
+		String key = storeFile.getCanonicalPath();
+		PlanetLabTraceStore store = stores.get(key);
+		if (store == null) {
+			store = new PlanetLabTraceStore(storeFile);
+			stores.put(key, store);
+		}
+		return store;
+	}
+
+	/**
+	 * Converts the trace files of a directory, in the order of their names, into a store file.
+	 *
+	 * @param inputFolder the directory of the PlanetLab trace files
+	 * @param storeFile the store file
+	 * @param dataSamples number of samples of every trace
+	 * @throws NumberFormatException if a trace file holds an invalid sample
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void convert(File inputFolder, File storeFile, int dataSamples)
+			throws NumberFormatException,
+			IOException {
+		List<File> traceFiles = listTraceFiles(inputFolder);
+		File tempFile = new File(storeFile.getPath() + ".tmp");
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(traceFiles.size());
+			output.writeInt(dataSamples);
+			for (File traceFile : traceFiles) {
+				writeTrace(traceFile, dataSamples, output);
+			}
+			for (File traceFile : traceFiles) {
+				output.writeUTF(traceFile.getName());
+				output.writeLong(traceFile.length());
+				output.writeLong(traceFile.lastModified());
+			}
+		} finally {
+			output.close();
+		}
+		if (storeFile.exists() && !storeFile.delete() || !tempFile.renameTo(storeFile)) {
+			throw new IOException("Cannot replace the PlanetLab trace store: " + storeFile);
+		}
+	}
+
+	/**
+	 * @return the trace files of a directory, in the order of their names
+	 */
+	private static List<File> listTraceFiles(File inputFolder) throws IOException {
+		File[] files = inputFolder.listFiles();
+		if (files == null) {
+			throw new IOException("Not a directory: " + inputFolder);
+		}
+		Arrays.sort(files);
+		List<File> traceFiles = new ArrayList<File>();
+		for (File traceFile : files) {
+			if (traceFile.isFile()) {
+				traceFiles.add(traceFile);
+			}
+		}
+		return traceFiles;
+	}
+
+	/**
+	 * @return whether the store holds the given number of samples of exactly these trace files,
+	 *         with the sizes and modification times they have now
+	 */
+	private boolean isConvertedFrom(List<File> traceFiles, int dataSamples) {
+		if (samples != dataSamples || traceFiles.size() != traceNames.size()) {
+			return false;
+		}
+		for (int i = 0; i < traceFiles.size(); i++) {
+			File traceFile = traceFiles.get(i);
+			if (!traceFile.getName().equals(traceNames.get(i)) || traceFile.length() != traceSizes[i]
+					|| traceFile.lastModified() != traceModificationTimes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void writeTrace(File traceFile, int dataSamples, DataOutputStream output)
+			throws NumberFormatException,
+			IOException {
+		BufferedReader input = new BufferedReader(new FileReader(traceFile));
+		try {
+			int sample = 0;
+			for (int i = 0; i < dataSamples - 1; i++) {
+				sample = Integer.valueOf(input.readLine());
+				if (sample < Short.MIN_VALUE || sample > Short.MAX_VALUE) {
+					throw new NumberFormatException("Sample out of range in " + traceFile + ": " + sample);
+				}
+				output.writeShort(sample);
+			}
+			output.writeShort(sample);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * @return the index of the trace of a file, or -1 if the store does not hold it
+	 */
+	public int getTraceIndex(String traceName) {
+		Integer index = traceIndexes.get(traceName);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * @return the utilization of a trace at a sample, between 0 and 1
+	 */
+	public double getUtilization(int trace, int sample) {
+		if (sample < 0 || sample >= samples) {
+			throw new ArrayIndexOutOfBoundsException(sample);
+		}
+		return data.get(trace * samples + sample) / 100.0;
+	}
+
+	public int getTraceCount() {
+		return traceNames.size();
+	}
+
+	/**
+	 * @return the number of samples of every trace
+	 */
+	public int getSamples() {
+		return samples;
+	}
+
+	/**
+	 * @return the names of the trace files, in the order of their indexes
+	 */
+	public List<String> getTraceNames() {
+		return Collections.unmodifiableList(traceNames);
+	}
+
+	public File getFile() {
+		return file;
+	}
+}
@@ -511,6 +511,17 @@ public class ResCloudlet {
         cloudletFinishedSoFar += miLength;
     }
 
+    /**
+     * Gets the length of cloudlet that has been completed.
+     *
+     * @return cloudlet length in Instructions (I)
+     * @pre $none
+     * @post $result >= 0
+     */
+    public long getCloudletFinishedSoFar() {
+        return cloudletFinishedSoFar;
+    }
+
     /**
      * Gets arrival time of a cloudlet.
      *
@@ -0,0 +1,84 @@
+package org.cloudbus.cloudsim;
+
+import java.io.IOException;
+
+/**
+ * A PlanetLab utilization model reading its trace from a {@link PlanetLabTraceStore}, where the
+ * samples of all the traces are memory-mapped once and shared, instead of holding its own copy as
+ * {@link UtilizationModelPlanetLabInMemory} does. It returns the same utilization as the in-memory
+ * model for the same trace file.
+ */
+public class UtilizationModelPlanetLabMapped implements UtilizationModel {
+
+	/** The scheduling interval. */
+	private double schedulingInterval;
+
+	/** The store holding the trace. */
+	private final PlanetLabTraceStore store;
+
+	/** The index of the trace in the store. */
+	private final int trace;
+
+	/**
+	 * Instantiates a new utilization model PlanetLab reading a trace of a store.
+	 *
+	 * @param store the store holding the trace
+	 * @param traceName the name of the trace file
+	 * @param schedulingInterval the scheduling interval
+	 * @throws IOException if the store does not hold the trace
+	 */
+	public UtilizationModelPlanetLabMapped(PlanetLabTraceStore store, String traceName, double schedulingInterval)
+			throws IOException {
+		this.store = store;
+		trace = store.getTraceIndex(traceName);
+		if (trace < 0) {
+			throw new IOException("No trace " + traceName + " in " + store.getFile());
+		}
+		setSchedulingInterval(schedulingInterval);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.power.UtilizationModel#getUtilization(double)
+	 */
+	@Override
+	public double getUtilization(double time) {
+		if (time % getSchedulingInterval() == 0) {
+			return store.getUtilization(trace, (int) time / (int) getSchedulingInterval());
+		}
+		int time1 = (int) Math.floor(time / getSchedulingInterval());
+		int time2 = (int) Math.ceil(time / getSchedulingInterval());
+		double utilization1 = store.getUtilization(trace, time1);
+		double utilization2 = store.getUtilization(trace, time2);
+		double delta = (utilization2 - utilization1) / ((time2 - time1) * getSchedulingInterval());
+		double utilization = utilization1 + delta * (time - time1 * getSchedulingInterval());
+		return utilization;
+	}
+
+	/**
+	 * Sets the scheduling interval.
+	 *
+	 * @param schedulingInterval the new scheduling interval
+	 */
+	public void setSchedulingInterval(double schedulingInterval) {
+		this.schedulingInterval = schedulingInterval;
+	}
+
+	/**
+	 * Gets the scheduling interval.
+	 *
+	 * @return the scheduling interval
+	 */
+	public double getSchedulingInterval() {
+		return schedulingInterval;
+	}
+
+	/**
+	 * Gets the store holding the trace.
+	 *
+	 * @return the store
+	 */
+	public PlanetLabTraceStore getStore() {
+		return store;
+	}
+}
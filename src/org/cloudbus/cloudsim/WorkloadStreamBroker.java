@@ -0,0 +1,163 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.util.WorkloadStream;
+
+/**
+ * WorkloadStreamBroker is a broker that submits the jobs of a {@link WorkloadStream} at their
+ * submit times, reading them from the stream as the simulation advances instead of holding all of
+ * them before the simulation starts. The submit times of the trace are taken as simulation times,
+ * the jobs due before the VMs are created being submitted once they are. The jobs are sent to the
+ * created VMs in round-robin order, after the cloudlets submitted to the broker as a list, and the
+ * broker finishes once the stream is exhausted and all the jobs have returned.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see org.cloudbus.cloudsim.util.WorkloadFileReader#openStream()
+ */
+public class WorkloadStreamBroker extends DatacenterBroker {
+
+    /** The jobs not submitted yet. */
+    private final WorkloadStream workload;
+
+    /** Whether the submission of the jobs of the stream has started. */
+    private boolean streaming;
+
+    /** Index of the VM receiving the next job. */
+    private int vmIndex;
+
+    /** Whether the jobs are kept in the submitted and received lists. */
+    private boolean keepCloudlets = true;
+
+    /**
+     * Creates a new broker submitting the jobs of a stream.
+     *
+     * @param name     name to be associated with this entity
+     * @param workload the jobs to submit, which the broker does not close
+     * @throws Exception the exception
+     * @pre name != null
+     * @pre workload != null
+     * @post $none
+     */
+    public WorkloadStreamBroker(String name, WorkloadStream workload) throws Exception {
+        super(name);
+        this.workload = workload;
+    }
+
+    @Override
+    protected void submitCloudlets() {
+        super.submitCloudlets();
+        if (!streaming) {
+            streaming = true;
+            submitDueJobs();
+        }
+    }
+
+    /**
+     * Submits the jobs of the stream whose submit time has come, and schedules the submission of
+     * the next job at its submit time.
+     *
+     * @pre $none
+     * @post $none
+     */
+    protected void submitDueJobs() {
+        while (workload.hasNext() && workload.getNextSubmitTime() <= CloudSim.clock()) {
+            Cloudlet cloudlet = workload.next();
+            cloudlet.setUserId(getId());
+            submitJob(cloudlet);
+        }
+
+        if (workload.hasNext()) {
+            schedule(getId(), workload.getNextSubmitTime() - CloudSim.clock(), CloudSimTags.VM_BROKER_EVENT);
+        } else if (getCloudletList().size() == 0 && cloudletsSubmitted == 0) { // empty workload
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": All Cloudlets executed. Finishing...");
+            clearDatacenters();
+            finishExecution();
+        }
+    }
+
+    /**
+     * Sends a job of the stream to the next VM. The job is dropped if the broker has no VM, like
+     * the cloudlets whose VM is not available.
+     *
+     * @param cloudlet the job
+     * @pre cloudlet != null
+     * @post $none
+     */
+    protected void submitJob(Cloudlet cloudlet) {
+        if (getVmsCreatedList().isEmpty()) {
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": Dropping job " + cloudlet.getCloudletId()
+                    + ": no VM available");
+            return;
+        }
+        if (vmIndex >= getVmsCreatedList().size()) {
+            vmIndex = 0;
+        }
+        Vm vm = getVmsCreatedList().get(vmIndex);
+        vmIndex = (vmIndex + 1) % getVmsCreatedList().size();
+        cloudlet.setVmId(vm.getId());
+        sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+        cloudletsSubmitted++;
+        if (keepCloudlets) {
+            getCloudletSubmittedList().add(cloudlet);
+        }
+    }
+
+    /**
+     * Process a cloudlet return event, the broker finishing only once the stream is exhausted.
+     *
+     * @param ev a SimEvent object
+     * @pre ev != $null
+     * @post $none
+     */
+    @Override
+    protected void processCloudletReturn(SimEvent ev) {
+        if (!workload.hasNext() && keepCloudlets) {
+            super.processCloudletReturn(ev);
+            return;
+        }
+
+        Cloudlet cloudlet = (Cloudlet) ev.getData();
+        if (keepCloudlets) {
+            getCloudletReceivedList().add(cloudlet);
+        }
+        cloudletsSubmitted--;
+        if (!workload.hasNext() && getCloudletList().size() == 0 && cloudletsSubmitted == 0) {
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": All Cloudlets executed. Finishing...");
+            clearDatacenters();
+            finishExecution();
+        }
+    }
+
+    @Override
+    protected void processOtherEvent(SimEvent ev) {
+        if (ev != null && ev.getTag() == CloudSimTags.VM_BROKER_EVENT) {
+            submitDueJobs();
+            return;
+        }
+        super.processOtherEvent(ev);
+    }
+
+    /**
+     * Sets whether the jobs of the stream are kept in the submitted and received lists of the
+     * broker. Without them, the memory used by the broker does not grow with the number of jobs.
+     *
+     * @param keepCloudlets whether the jobs are kept
+     */
+    public void setKeepCloudlets(boolean keepCloudlets) {
+        this.keepCloudlets = keepCloudlets;
+    }
+
+    public boolean isKeepCloudlets() {
+        return keepCloudlets;
+    }
+}
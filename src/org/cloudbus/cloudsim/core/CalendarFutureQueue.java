@@ -0,0 +1,510 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class implements the future event queue used by {@link CloudSim} as a calendar queue (R.
+ * Brown, "Calendar queues: a fast O(1) priority queue implementation for the simulation event set
+ * problem", CACM 31(10), 1988). Events are hashed by time into an array of "day" buckets of fixed
+ * width; each bucket keeps its events sorted, so that enqueue and dequeue take O(1) amortized time
+ * as long as the bucket width matches the spacing of pending events. The number of buckets and
+ * their width are recalculated whenever the queue doubles or halves in size.
+ * <p>
+ * Events are returned in exactly the same order as with {@link SortedSetFutureQueue}: by time and,
+ * for equal times, by serial number. The {@link #iterator()} of this queue, however, walks the
+ * buckets in storage order and therefore does not follow the temporal order of the events.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see CloudSim
+ * @see FutureQueue
+ */
+public class CalendarFutureQueue implements FutureQueue {
+
+	/** The minimal number of buckets. Must be a power of two. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The number of earliest events used to estimate the bucket width when resizing. */
+	private static final int WIDTH_SAMPLE_SIZE = 32;
+
+	/** The buckets (days) of the calendar. */
+	private Bucket[] buckets;
+
+	/** The mask used to map a slot to a bucket index. */
+	private int mask;
+
+	/** The width of a bucket, in simulation time. */
+	private double width;
+
+	/** The slot (time / width) of the earliest event of the queue, or lower. */
+	private long currentSlot;
+
+	/** The number of events in the queue. */
+	private int size;
+
+	/** Incremented on every structural change, to detect concurrent modifications. */
+	private int modCount;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/**
+	 * Creates a new calendar queue with a bucket width of one time unit.
+	 */
+	public CalendarFutureQueue() {
+		this(1.0);
+	}
+
+	/**
+	 * Creates a new calendar queue.
+	 *
+	 * @param initialWidth the initial bucket width; it is adapted to the spacing of the events as
+	 *            the queue grows and shrinks
+	 */
+	public CalendarFutureQueue(double initialWidth) {
+		if (initialWidth <= 0) {
+			throw new IllegalArgumentException("The bucket width should be positive, but is:" + initialWidth);
+		}
+		width = initialWidth;
+		initBuckets(MIN_BUCKETS);
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		insert(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		insert(newEvent);
+	}
+
+	@Override
+	public SimEvent first() {
+		if (size == 0) {
+			return null;
+		}
+		return locateFirst().first();
+	}
+
+	@Override
+	public SimEvent pollFirst() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent event = locateFirst().pollFirst();
+		size--;
+		modCount++;
+		shrinkIfNeeded();
+		return event;
+	}
+
+	@Override
+	public int pollFirstBatch(SimEventBatch batch) {
+		if (size == 0) {
+			return 0;
+		}
+
+		// Events with the same time always share a bucket and are stored contiguously
+		Bucket bucket = locateFirst();
+		double time = bucket.first().eventTime();
+		int count = 0;
+		do {
+			batch.add(bucket.pollFirst());
+			count++;
+		} while (!bucket.isEmpty() && bucket.first().eventTime() == time);
+
+		size -= count;
+		modCount++;
+		shrinkIfNeeded();
+		return count;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new BucketIterator();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		if (event == null || size == 0) {
+			return false;
+		}
+		if (!bucketFor(event.eventTime()).remove(event)) {
+			return false;
+		}
+		size--;
+		modCount++;
+		shrinkIfNeeded();
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean modified = false;
+		for (SimEvent event : events) {
+			modified |= remove(event);
+		}
+		return modified;
+	}
+
+	@Override
+	public void clear() {
+		initBuckets(MIN_BUCKETS);
+		currentSlot = 0;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Inserts an event into its bucket, growing the calendar if needed.
+	 *
+	 * @param event the event
+	 */
+	private void insert(SimEvent event) {
+		long slot = slotOf(event.eventTime());
+		if (slot < currentSlot) {
+			currentSlot = slot;
+		}
+		buckets[(int) (slot & mask)].insert(event);
+		size++;
+		modCount++;
+		if (size > 2 * buckets.length) {
+			resize(2 * buckets.length);
+		}
+	}
+
+	/**
+	 * Finds the bucket holding the earliest event, and moves the current slot to it. The queue must
+	 * not be empty.
+	 *
+	 * @return the bucket whose first event is the earliest event of the queue
+	 */
+	private Bucket locateFirst() {
+		long slot = currentSlot;
+		for (int i = 0; i < buckets.length; i++, slot++) {
+			Bucket bucket = buckets[(int) (slot & mask)];
+			if (!bucket.isEmpty() && slotOf(bucket.first().eventTime()) <= slot) {
+				currentSlot = slot;
+				return bucket;
+			}
+		}
+
+		// No event within a whole "year": fall back to a direct search
+		Bucket earliest = null;
+		for (Bucket bucket : buckets) {
+			if (!bucket.isEmpty() && (earliest == null || bucket.first().compareTo(earliest.first()) < 0)) {
+				earliest = bucket;
+			}
+		}
+		currentSlot = slotOf(earliest.first().eventTime());
+		return earliest;
+	}
+
+	/**
+	 * Shrinks the calendar if it has become sparse.
+	 */
+	private void shrinkIfNeeded() {
+		if (buckets.length > MIN_BUCKETS && size < buckets.length / 2) {
+			resize(buckets.length / 2);
+		}
+	}
+
+	/**
+	 * Redistributes all the events into a new set of buckets, recalculating the bucket width from
+	 * the spacing of the earliest events.
+	 *
+	 * @param newBucketCount the new number of buckets (a power of two)
+	 */
+	private void resize(int newBucketCount) {
+		SimEvent[] events = new SimEvent[size];
+		int count = 0;
+		for (Bucket bucket : buckets) {
+			for (int i = bucket.head; i < bucket.tail; i++) {
+				events[count++] = bucket.events[i];
+			}
+		}
+
+		width = estimateWidth(events);
+		initBuckets(newBucketCount);
+		currentSlot = Long.MAX_VALUE;
+		for (SimEvent event : events) {
+			long slot = slotOf(event.eventTime());
+			if (slot < currentSlot) {
+				currentSlot = slot;
+			}
+			buckets[(int) (slot & mask)].insert(event);
+		}
+		if (count == 0) {
+			currentSlot = 0;
+		}
+	}
+
+	/**
+	 * Estimates a bucket width of about three times the average separation between the earliest
+	 * distinct event times, ignoring separations larger than twice the average (Brown, 1988).
+	 *
+	 * @param events the events of the queue
+	 * @return the new bucket width
+	 */
+	private double estimateWidth(SimEvent[] events) {
+		// Max-heap holding the earliest event times
+		double[] sample = new double[Math.min(WIDTH_SAMPLE_SIZE, events.length)];
+		int sampled = 0;
+		double minTime = Double.MAX_VALUE;
+		double maxTime = -Double.MAX_VALUE;
+		for (SimEvent event : events) {
+			double time = event.eventTime();
+			minTime = Math.min(minTime, time);
+			maxTime = Math.max(maxTime, time);
+			if (sampled < sample.length) {
+				sample[sampled] = time;
+				siftUp(sample, sampled++);
+			} else if (time < sample[0]) {
+				sample[0] = time;
+				siftDown(sample, sampled);
+			}
+		}
+		Arrays.sort(sample, 0, sampled);
+
+		double total = 0;
+		int gaps = 0;
+		for (int i = 1; i < sampled; i++) {
+			double gap = sample[i] - sample[i - 1];
+			if (gap > 0) {
+				total += gap;
+				gaps++;
+			}
+		}
+		if (gaps == 0) {
+			double spread = maxTime - minTime;
+			return spread > 0 ? 3 * spread / events.length : width;
+		}
+
+		double average = total / gaps;
+		total = 0;
+		gaps = 0;
+		for (int i = 1; i < sampled; i++) {
+			double gap = sample[i] - sample[i - 1];
+			if (gap > 0 && gap <= 2 * average) {
+				total += gap;
+				gaps++;
+			}
+		}
+		return 3 * (total / gaps);
+	}
+
+	private static void siftUp(double[] heap, int index) {
+		double value = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (heap[parent] >= value) {
+				break;
+			}
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = value;
+	}
+
+	private static void siftDown(double[] heap, int length) {
+		double value = heap[0];
+		int index = 0;
+		int child;
+		while ((child = 2 * index + 1) < length) {
+			if (child + 1 < length && heap[child + 1] > heap[child]) {
+				child++;
+			}
+			if (value >= heap[child]) {
+				break;
+			}
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = value;
+	}
+
+	private void initBuckets(int bucketCount) {
+		buckets = new Bucket[bucketCount];
+		for (int i = 0; i < bucketCount; i++) {
+			buckets[i] = new Bucket();
+		}
+		mask = bucketCount - 1;
+	}
+
+	private long slotOf(double time) {
+		return (long) (time / width);
+	}
+
+	private Bucket bucketFor(double time) {
+		return buckets[(int) (slotOf(time) & mask)];
+	}
+
+	/**
+	 * A bucket of the calendar: an array of events sorted by {@link SimEvent#compareTo(SimEvent)},
+	 * with the live events in the range [head, tail).
+	 */
+	private static final class Bucket {
+
+		private SimEvent[] events = new SimEvent[4];
+
+		private int head;
+
+		private int tail;
+
+		boolean isEmpty() {
+			return head == tail;
+		}
+
+		SimEvent first() {
+			return events[head];
+		}
+
+		SimEvent pollFirst() {
+			SimEvent event = events[head];
+			events[head++] = null;
+			if (head == tail) {
+				head = 0;
+				tail = 0;
+			}
+			return event;
+		}
+
+		void insert(SimEvent event) {
+			if (tail == events.length) {
+				if (head > 0) {
+					System.arraycopy(events, head, events, 0, tail - head);
+					Arrays.fill(events, tail - head, tail, null);
+					tail -= head;
+					head = 0;
+				} else {
+					events = Arrays.copyOf(events, 2 * events.length);
+				}
+			}
+
+			// Binary search for the first event that comes after the new one
+			int low = head;
+			int high = tail;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (event.compareTo(events[mid]) < 0) {
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			System.arraycopy(events, low, events, low + 1, tail - low);
+			events[low] = event;
+			tail++;
+		}
+
+		boolean remove(SimEvent event) {
+			for (int i = head; i < tail; i++) {
+				if (events[i] == event) {
+					removeAt(i);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		void removeAt(int index) {
+			System.arraycopy(events, index + 1, events, index, tail - index - 1);
+			events[--tail] = null;
+			if (head == tail) {
+				head = 0;
+				tail = 0;
+			}
+		}
+	}
+
+	/**
+	 * Iterates over the events bucket by bucket. Removing through the iterator does not resize the
+	 * calendar.
+	 */
+	private final class BucketIterator implements Iterator<SimEvent> {
+
+		/** The bucket and position of the next event. */
+		private int bucketIndex = 0;
+
+		private int position = buckets[0].head;
+
+		/** The bucket and position of the last returned event, or -1. */
+		private int lastBucketIndex = -1;
+
+		private int lastPosition = -1;
+
+		private int expectedModCount = modCount;
+
+		BucketIterator() {
+			skipExhaustedBuckets();
+		}
+
+		private void skipExhaustedBuckets() {
+			while (bucketIndex < buckets.length && position >= buckets[bucketIndex].tail) {
+				bucketIndex++;
+				if (bucketIndex < buckets.length) {
+					position = buckets[bucketIndex].head;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return bucketIndex < buckets.length;
+		}
+
+		@Override
+		public SimEvent next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastBucketIndex = bucketIndex;
+			lastPosition = position;
+			SimEvent event = buckets[bucketIndex].events[position++];
+			skipExhaustedBuckets();
+			return event;
+		}
+
+		@Override
+		public void remove() {
+			if (lastBucketIndex < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			buckets[lastBucketIndex].removeAt(lastPosition);
+			if (lastBucketIndex == bucketIndex) {
+				// the remaining events of this bucket were shifted one position to the left
+				position--;
+			}
+			lastBucketIndex = -1;
+			size--;
+			modCount++;
+			expectedModCount = modCount;
+		}
+	}
+
+}
@@ -49,6 +49,9 @@ public class CloudSim {
 	/** The CIS object. */
 	private static CloudInformationService cis = null;
 
+	/** The initial capacity of the batch of same-time events dispatched on each clock tick. */
+	private static final int INITIAL_BATCH_CAPACITY = 256;
+
 	/** The Constant NOT_FOUND. */
 	private static final int NOT_FOUND = -1;
 
@@ -166,6 +169,31 @@ public class CloudSim {
 	    init(numUser, cal, traceFlag);
 	    minTimeBetweenEvents = periodBetweenEvents;
 	}
+
+	/**
+	 * Initialises CloudSim parameters using the given future event queue. This method should be
+	 * called before creating any entities.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param futureQueue the future event queue implementation, e.g. a {@link CalendarFutureQueue}
+	 *            for simulations with a large number of pending events
+	 * @see #init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @pre futureQueue != null
+	 * @post $none
+	 */
+	public static void init(int numUser, Calendar cal, boolean traceFlag, FutureQueue futureQueue) {
+		if (futureQueue == null) {
+			throw new IllegalArgumentException("The future event queue can't be null.");
+		}
+
+		init(numUser, cal, traceFlag);
+		futureQueue.clear();
+		future = futureQueue;
+	}
 	
 	
 	
@@ -317,6 +345,9 @@ public class CloudSim {
 	/** The deferred event queue. */
 	protected static DeferredQueue deferred;
 
+	/** The batch of same-time events dispatched on each clock tick, reused between ticks. */
+	private static SimEventBatch batch;
+
 	/** The simulation clock. */
 	private static double clock;
 
@@ -347,8 +378,9 @@ public class CloudSim {
 		Log.printLine("Initialising...");
 		entities = new ArrayList<SimEntity>();
 		entitiesByName = new LinkedHashMap<String, SimEntity>();
-		future = new FutureQueue();
+		future = new SortedSetFutureQueue();
 		deferred = new DeferredQueue();
+		batch = new SimEventBatch(INITIAL_BATCH_CAPACITY);
 		waitPredicates = new HashMap<Integer, Predicate>();
 		clock = 0;
 		running = false;
@@ -522,29 +554,14 @@ public class CloudSim {
 				
 		// If there are more future events then deal with them
 		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-			Iterator<SimEvent> fit = future.iterator();
 			queue_empty = false;
-			SimEvent first = fit.next();
-			processEvent(first);
-			future.remove(first);
-
-			fit = future.iterator();
-
-			// Check if next events are at same time...
-			boolean trymore = fit.hasNext();
-			while (trymore) {
-				SimEvent next = fit.next();
-				if (next.eventTime() == first.eventTime()) {
-					processEvent(next);
-					toRemove.add(next);
-					trymore = fit.hasNext();
-				} else {
-					trymore = false;
-				}
-			}
 
-			future.removeAll(toRemove);
+			// Dispatch the first event together with all the events at the same time
+			int count = future.pollFirstBatch(batch);
+			for (int i = 0; i < count; i++) {
+				processEvent(batch.get(i));
+			}
+			batch.clear();
 
 		} else {
 			queue_empty = true;
@@ -594,14 +611,16 @@ public class CloudSim {
 	 * @param delay the delay
 	 * @param tag the tag
 	 * @param data the data
+	 * @return the event, which can be cancelled with {@link #cancel(SimEvent)}
 	 */
-	public static void send(int src, int dest, double delay, int tag, Object data) {
+	public static SimEvent send(int src, int dest, double delay, int tag, Object data) {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
 		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
 		future.addEvent(e);
+		return e;
 	}
 
 	/**
@@ -612,14 +631,16 @@ public class CloudSim {
 	 * @param delay the delay
 	 * @param tag the tag
 	 * @param data the data
+	 * @return the event, which can be cancelled with {@link #cancel(SimEvent)}
 	 */
-	public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
+	public static SimEvent sendFirst(int src, int dest, double delay, int tag, Object data) {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
 		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
 		future.addEventFirst(e);
+		return e;
 	}
 
 	/**
@@ -646,16 +667,7 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
-		int count = 0;
-		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
-				count++;
-			}
-		}
-		return count;
+		return deferred.count(d, p);
 	}
 
 	/**
@@ -663,19 +675,10 @@ public class CloudSim {
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				iterator.remove();
-				break;
-			}
-		}
-		return ev;
+		return deferred.removeFirst(src, p);
 	}
 
 	/**
@@ -683,18 +686,10 @@ public class CloudSim {
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
-			}
-		}
-		return ev;
+		return deferred.findFirst(src, p);
 	}
 
 	/**
@@ -705,19 +700,49 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
+		// The future queue may not iterate in temporal order, so look for the earliest match
 		SimEvent ev = null;
 		Iterator<SimEvent> iter = future.iterator();
 		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-				break;
+			SimEvent candidate = iter.next();
+			if (candidate.getSource() == src && p.match(candidate)
+					&& (ev == null || candidate.compareTo(ev) < 0)) {
+				ev = candidate;
 			}
 		}
+		if (ev != null) {
+			future.remove(ev);
+		}
 
 		return ev;
 	}
 
+	/**
+	 * Removes an event from the future event queue, given the event returned when it was sent.
+	 * Unlike {@link #cancel(int, Predicate)}, this does not scan the queue: it takes the time of a
+	 * single removal from the queue, O(log n) with the default {@link SortedSetFutureQueue}.
+	 * 
+	 * @param event the event
+	 * @return true if the event was pending and has been removed; false if it has already been
+	 *         processed or cancelled
+	 */
+	public static boolean cancel(SimEvent event) {
+		return event != null && future.remove(event);
+	}
+
+	/**
+	 * Removes an event from the future event queue if it is still pending, and sends a new event
+	 * with the same source, destination, tag and data after a delay from the current time.
+	 * 
+	 * @param event the event
+	 * @param delay the delay
+	 * @return the new event
+	 */
+	public static SimEvent reschedule(SimEvent event, double delay) {
+		cancel(event);
+		return send(event.getSource(), event.getDestination(), delay, event.getTag(), event.getData());
+	}
+
 	/**
 	 * Removes all events that match a given predicate from the future event queue returns true if
 	 * at least one event has been cancelled; false otherwise.
@@ -893,8 +918,7 @@ public class CloudSim {
 			}
 
 			if (pauseAt != -1
-					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
+					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.first().eventTime()) || future.size() == 0 && pauseAt <= clock)) {
 				pauseSimulation();
 				clock = pauseAt;
 			}
@@ -940,6 +964,7 @@ public class CloudSim {
 		entitiesByName = null;
 		future = null;
 		deferred = null;
+		batch = null;
 		clock = 0L;
 		running = false;
 
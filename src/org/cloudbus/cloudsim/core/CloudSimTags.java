@@ -265,6 +265,11 @@ public class CloudSimTags {
 
 	public static final int NextCycle = BASE + 48;
 
+	/**
+	 * Denotes the completion of a flow of the flow-level network of a NetworkDataCenter
+	 */
+	public static final int Network_Event_Flow = BASE + 49;
+
 	/** Private Constructor */
 	private CloudSimTags() {
 		throw new UnsupportedOperationException("CloudSim Tags cannot be instantiated");
@@ -8,15 +8,20 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
- * 
+ * This class implements the deferred event queue used by {@link Simulation}. The events are
+ * partitioned by destination entity, and each partition keeps its events in a time-ordered linked
+ * list, so that looking up the events of an entity costs time proportional to that entity's
+ * backlog only.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
@@ -24,65 +29,170 @@ import java.util.ListIterator;
  */
 public class DeferredQueue {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The partitions, indexed by destination entity id. */
+	private final List<Partition> partitions = new ArrayList<Partition>();
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The total number of events in the queue. */
+	private int size = 0;
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
-	 * of the events.
-	 * 
+	 * of the events with the same destination.
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
-		// The event has to be inserted as the last of all events
-		// with the same event_time(). Yes, this matters.
-		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
-			return;
+		int destination = newEvent.getDestination();
+		while (partitions.size() <= destination) {
+			partitions.add(null);
 		}
+		Partition partition = partitions.get(destination);
+		if (partition == null) {
+			partition = new Partition();
+			partitions.set(destination, partition);
+		}
+		partition.addEvent(newEvent);
+		size++;
+	}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
+	/**
+	 * Counts the events for a given destination that match a predicate.
+	 *
+	 * @param destination the destination entity id
+	 * @param p the predicate
+	 * @return the number of matching events
+	 */
+	public int count(int destination, Predicate p) {
+		Partition partition = getPartition(destination);
+		if (partition == null) {
+			return 0;
+		}
+		if (p == CloudSim.SIM_ANY) {
+			return partition.list.size();
+		}
+
+		int count = 0;
+		for (SimEvent event : partition.list) {
+			if (p.match(event)) {
+				count++;
 			}
 		}
+		return count;
+	}
 
-		list.add(newEvent);
+	/**
+	 * Finds the first event for a given destination that matches a predicate.
+	 *
+	 * @param destination the destination entity id
+	 * @param p the predicate
+	 * @return the first matching event, or <tt>null</tt> if there is none
+	 */
+	public SimEvent findFirst(int destination, Predicate p) {
+		Partition partition = getPartition(destination);
+		if (partition == null) {
+			return null;
+		}
+		for (SimEvent event : partition.list) {
+			if (p.match(event)) {
+				return event;
+			}
+		}
+		return null;
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
-	 * 
-	 * @return the iterator
+	 * Removes the first event for a given destination that matches a predicate.
+	 *
+	 * @param destination the destination entity id
+	 * @param p the predicate
+	 * @return the removed event, or <tt>null</tt> if there is none
 	 */
-	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+	public SimEvent removeFirst(int destination, Predicate p) {
+		Partition partition = getPartition(destination);
+		if (partition == null || partition.list.isEmpty()) {
+			return null;
+		}
+		if (p == CloudSim.SIM_ANY) {
+			size--;
+			return partition.list.removeFirst();
+		}
+
+		Iterator<SimEvent> iterator = partition.list.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			if (p.match(event)) {
+				iterator.remove();
+				size--;
+				return event;
+			}
+		}
+		return null;
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		partitions.clear();
+		size = 0;
+	}
+
+	/**
+	 * Gets the partition of a destination entity.
+	 *
+	 * @param destination the destination entity id
+	 * @return the partition, or <tt>null</tt> if no event was ever deferred for this entity
+	 */
+	private Partition getPartition(int destination) {
+		if (destination < 0 || destination >= partitions.size()) {
+			return null;
+		}
+		return partitions.get(destination);
+	}
+
+	/**
+	 * The deferred events of a single destination entity.
+	 */
+	private static class Partition {
+
+		/** The list. */
+		private final LinkedList<SimEvent> list = new LinkedList<SimEvent>();
+
+		/** The max time. */
+		private double maxTime = -1;
+
+		void addEvent(SimEvent newEvent) {
+			// The event has to be inserted as the last of all events
+			// with the same event_time(). Yes, this matters.
+			double eventTime = newEvent.eventTime();
+			if (eventTime >= maxTime) {
+				list.add(newEvent);
+				maxTime = eventTime;
+				return;
+			}
+
+			ListIterator<SimEvent> iterator = list.listIterator();
+			SimEvent event;
+			while (iterator.hasNext()) {
+				event = iterator.next();
+				if (event.eventTime() > eventTime) {
+					iterator.previous();
+					iterator.add(newEvent);
+					return;
+				}
+			}
+
+			list.add(newEvent);
+		}
 	}
 
-}
\ No newline at end of file
+}
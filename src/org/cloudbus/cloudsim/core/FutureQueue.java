@@ -10,90 +10,96 @@ package org.cloudbus.cloudsim.core;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
- * 
+ * This interface defines the future event queue used by {@link CloudSim}. Implementations must
+ * return events in the order defined by {@link SimEvent#compareTo(SimEvent)}, i.e. by event time
+ * and, for events with the same time, by the serial number assigned when the event was added.
+ * <p>
+ * The default implementation is {@link SortedSetFutureQueue}. A different implementation can be
+ * selected with {@link CloudSim#init(int, java.util.Calendar, boolean, FutureQueue)}.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
- * @see Simulation
- * @see java.util.TreeSet
+ * @see CloudSim
+ * @see SortedSetFutureQueue
+ * @see CalendarFutureQueue
  */
-public class FutureQueue {
-
-	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
-
-	/** The serial. */
-	private long serial = 0;
+public interface FutureQueue {
 
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
-	public void addEvent(SimEvent newEvent) {
-		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
-	}
+	void addEvent(SimEvent newEvent);
 
 	/**
 	 * Add a new event to the head of the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
-	public void addEventFirst(SimEvent newEvent) {
-		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
-	}
+	void addEventFirst(SimEvent newEvent);
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent first();
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent pollFirst();
+
+	/**
+	 * Removes the first event of the queue together with all the following events that have the
+	 * same time, and appends them in order to the given batch.
+	 *
+	 * @param batch the batch to which the events are appended
+	 * @return the number of events appended, 0 if the queue is empty
+	 */
+	int pollFirstBatch(SimEventBatch batch);
 
 	/**
-	 * Returns an iterator to the queue.
-	 * 
+	 * Returns an iterator to the queue. The iteration order is implementation specific and is not
+	 * required to follow the temporal order of the events; use {@link #first()} and
+	 * {@link #pollFirst()} to consume events in order.
+	 *
 	 * @return the iterator
 	 */
-	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
-	}
+	Iterator<SimEvent> iterator();
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the size
 	 */
-	public int size() {
-		return sortedSet.size();
-	}
+	int size();
 
 	/**
 	 * Removes the event from the queue.
-	 * 
+	 *
 	 * @param event the event
 	 * @return true, if successful
 	 */
-	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
-	}
+	boolean remove(SimEvent event);
 
 	/**
 	 * Removes all the events from the queue.
-	 * 
+	 *
 	 * @param events the events
 	 * @return true, if successful
 	 */
-	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
-	}
+	boolean removeAll(Collection<SimEvent> events);
 
 	/**
 	 * Clears the queue.
 	 */
-	public void clear() {
-		sortedSet.clear();
-	}
+	void clear();
 
-}
\ No newline at end of file
+}
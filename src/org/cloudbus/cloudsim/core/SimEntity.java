@@ -85,12 +85,14 @@ public abstract class SimEntity implements Cloneable {
 	 * @param delay How long from the current simulation time the event should be sent
 	 * @param tag An user-defined number representing the type of event.
 	 * @param data The data to be sent with the event.
+	 * @return the event sent, which can be given to {@link #cancelEvent(SimEvent)}, or
+	 *         <tt>null</tt> if the simulation is not running
 	 */
-	public void schedule(int dest, double delay, int tag, Object data) {
+	public SimEvent schedule(int dest, double delay, int tag, Object data) {
 		if (!CloudSim.running()) {
-			return;
+			return null;
 		}
-		CloudSim.send(id, dest, delay, tag, data);
+		return CloudSim.send(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -100,9 +102,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param dest The unique id number of the destination entity
 	 * @param delay How long from the current simulation time the event should be sent
 	 * @param tag An user-defined number representing the type of event.
+	 * @return the event sent, or <tt>null</tt> if the simulation is not running
 	 */
-	public void schedule(int dest, double delay, int tag) {
-		schedule(dest, delay, tag, null);
+	public SimEvent schedule(int dest, double delay, int tag) {
+		return schedule(dest, delay, tag, null);
 	}
 
 	/**
@@ -337,6 +340,38 @@ public abstract class SimEntity implements Cloneable {
 		return CloudSim.cancel(id, p);
 	}
 
+	/**
+	 * Cancel an event sent by the entity, given the event returned when it was sent. Unlike
+	 * {@link #cancelEvent(Predicate)}, this does not scan the future queue.
+	 * 
+	 * @param event the event returned by {@link #schedule(int, double, int, Object)} or
+	 *            {@link #send(int, double, int, Object)}
+	 * @return true if the event was pending and has been cancelled
+	 */
+	public boolean cancelEvent(SimEvent event) {
+		if (!CloudSim.running()) {
+			return false;
+		}
+
+		return CloudSim.cancel(event);
+	}
+
+	/**
+	 * Cancel an event sent by the entity if it is still pending, and send it again with the same
+	 * destination, tag and data after a delay from the current simulation time.
+	 * 
+	 * @param event the event returned when it was sent
+	 * @param delay How long from the current simulation time the event should be sent
+	 * @return the event sent in its place, or <tt>null</tt> if the simulation is not running
+	 */
+	public SimEvent rescheduleEvent(SimEvent event, double delay) {
+		if (!CloudSim.running()) {
+			return null;
+		}
+
+		return CloudSim.reschedule(event, delay);
+	}
+
 	/**
 	 * Get the first event matching a predicate from the deferred queue, or if none match, wait for
 	 * a matching event to arrive.
@@ -348,10 +383,7 @@ public abstract class SimEntity implements Cloneable {
 		if (!CloudSim.running()) {
 			return null;
 		}
-		if (numEventsWaiting(p) > 0) {
-			return selectEvent(p);
-		}
-		return null;
+		return CloudSim.select(id, p);
 	}
 
 	/**
@@ -513,12 +545,13 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data A reference to data to be sent with the event
 	 * @pre entityID > 0
 	 * @pre delay >= 0.0
+	 * @return the event sent, or <tt>null</tt> if it could not be sent
 	 * @pre data != null
 	 * @post $none
 	 */
-	protected void  send(int entityId, double delay, int cloudSimTag, Object data) {
+	protected SimEvent send(int entityId, double delay, int cloudSimTag, Object data) {
 		if (entityId < 0) {
-			return;
+			return null;
 		}
 
 		// if delay is -ve, then it doesn't make sense. So resets to 0.0
@@ -532,7 +565,7 @@ public abstract class SimEntity implements Cloneable {
 
 		if (entityId < 0) {
 			Log.printLine(getName() + ".send(): Error - " + "invalid entity id " + entityId);
-			return;
+			return null;
 		}
 
 		int srcId = getId();
@@ -540,7 +573,7 @@ public abstract class SimEntity implements Cloneable {
 			delay += getNetworkDelay(srcId, entityId);
 		}
 
-		schedule(entityId, delay, cloudSimTag, data);
+		return schedule(entityId, delay, cloudSimTag, data);
 	}
 
 	/**
@@ -551,12 +584,13 @@ public abstract class SimEntity implements Cloneable {
 	 * @param delay how long from the current simulation time the event should be sent. If delay is
 	 *            a negative number, then it will be changed to 0
 	 * @param cloudSimTag an user-defined number representing the type of an event/message
+	 * @return the event sent, or <tt>null</tt> if it could not be sent
 	 * @pre entityID > 0
 	 * @pre delay >= 0.0
 	 * @post $none
 	 */
-	protected void send(int entityId, double delay, int cloudSimTag) {
-		send(entityId, delay, cloudSimTag, null);
+	protected SimEvent send(int entityId, double delay, int cloudSimTag) {
+		return send(entityId, delay, cloudSimTag, null);
 	}
 
 	/**
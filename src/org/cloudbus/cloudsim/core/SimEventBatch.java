@@ -0,0 +1,83 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, growable batch of events, filled by {@link FutureQueue#pollFirstBatch(SimEventBatch)}
+ * with all the events that share the same time. The backing array is kept between uses, so that
+ * draining the future queue on every clock tick does not allocate.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see FutureQueue
+ */
+public final class SimEventBatch {
+
+	/** The events of the batch. */
+	private SimEvent[] events;
+
+	/** The number of events in the batch. */
+	private int size;
+
+	/**
+	 * Creates a new batch.
+	 *
+	 * @param initialCapacity the initial capacity of the batch
+	 */
+	public SimEventBatch(int initialCapacity) {
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException("The batch capacity should be positive, but is:" + initialCapacity);
+		}
+		events = new SimEvent[initialCapacity];
+	}
+
+	/**
+	 * Appends an event to the batch.
+	 *
+	 * @param event the event
+	 */
+	public void add(SimEvent event) {
+		if (size == events.length) {
+			events = Arrays.copyOf(events, 2 * events.length);
+		}
+		events[size++] = event;
+	}
+
+	/**
+	 * Gets the event at a given position of the batch.
+	 *
+	 * @param index the position of the event
+	 * @return the event
+	 */
+	public SimEvent get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return events[index];
+	}
+
+	/**
+	 * Gets the number of events in the batch.
+	 *
+	 * @return the number of events
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all the events from the batch, keeping its capacity.
+	 */
+	public void clear() {
+		Arrays.fill(events, 0, size, null);
+		size = 0;
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * This class implements the future event queue used by {@link CloudSim}. The event queue uses a
+ * {@link TreeSet} in order to store the events. This is the default {@link FutureQueue}.
+ *
+ * @author Marcos Dias de Assuncao
+ * @since CloudSim Toolkit 1.0
+ * @see CloudSim
+ * @see java.util.TreeSet
+ */
+public class SortedSetFutureQueue implements FutureQueue {
+
+	/** The sorted set. */
+	private final NavigableSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+
+	/** The serial. */
+	private long serial = 0;
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		sortedSet.add(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		sortedSet.add(newEvent);
+	}
+
+	@Override
+	public SimEvent first() {
+		if (sortedSet.isEmpty()) {
+			return null;
+		}
+		return sortedSet.first();
+	}
+
+	@Override
+	public SimEvent pollFirst() {
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	public int pollFirstBatch(SimEventBatch batch) {
+		// a single in-order walk removing the events as it goes, instead of one descent of the
+		// tree per event
+		Iterator<SimEvent> it = sortedSet.iterator();
+		if (!it.hasNext()) {
+			return 0;
+		}
+		SimEvent first = it.next();
+		it.remove();
+		batch.add(first);
+		int count = 1;
+		while (it.hasNext()) {
+			SimEvent next = it.next();
+			if (next.eventTime() != first.eventTime()) {
+				break;
+			}
+			it.remove();
+			batch.add(next);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns an iterator to the queue. The events are returned in temporal order.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return sortedSet.iterator();
+	}
+
+	@Override
+	public int size() {
+		return sortedSet.size();
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		return sortedSet.remove(event);
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		return sortedSet.removeAll(events);
+	}
+
+	@Override
+	public void clear() {
+		sortedSet.clear();
+	}
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+/**
+ * This interface defines the all-pairs delays of a topological graph used by
+ * {@link org.cloudbus.cloudsim.NetworkTopology}: the delay between two nodes is the sum of the
+ * link delays along the shortest path between them, 0 from a node to itself and
+ * {@link Float#MAX_VALUE} between nodes that are not connected.
+ * <p>
+ * {@link DelayMatrix_Float} computes all the delays with the Floyd-Warshall algorithm into nested
+ * arrays, which takes a time cubic in the number of nodes. {@link DijkstraDelayMatrix} computes
+ * them from every source, or on demand, in a flat matrix for large topologies.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public interface DelayMatrix {
+
+	/**
+	 * @param srcID the id of the source-node
+	 * @param destID the id of the destination-node
+	 * @return the delay-count between the given two nodes
+	 */
+	float getDelay(int srcID, int destID);
+
+}
@@ -16,7 +16,7 @@ import java.util.Iterator;
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class DelayMatrix_Float {
+public class DelayMatrix_Float implements DelayMatrix {
 
 	/**
 	 * matrix holding delay information between any two nodes
@@ -55,6 +55,7 @@ public class DelayMatrix_Float {
 	 * @param destID the id of the destination-node
 	 * @return the delay-count between the given two nodes
 	 */
+	@Override
 	public float getDelay(int srcID, int destID) {
 		// check the nodeIDs against internal array-boundarys
 		if (srcID > mTotalNodeNum || destID > mTotalNodeNum) {
@@ -0,0 +1,370 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class computes the delays of a topological graph with Dijkstra's algorithm from every
+ * source node, which takes a time of O(n m log n) on a graph of n nodes and m links instead of the
+ * O(n^3) of {@link DelayMatrix_Float}, as the topologies read from BRITE files are sparse. It gives
+ * the same delays, up to the rounding of the float sums, and ignores the links of zero delay in the
+ * same way. The delay from a node to itself is 0, as in {@link DelayMatrix_Float}, whose
+ * Floyd-Warshall iterations never update the diagonal of the zero-initialized result, and the delay
+ * between unconnected nodes is <tt>Float.MAX_VALUE</tt>.
+ * <p>
+ * The matrix is either computed eagerly, in parallel, into flat float buffers kept off the heap or
+ * mapped to a file, or computed lazily, one row at a time on the first request of a delay from its
+ * source, keeping the most recently used rows. The lazy matrix fits topologies whose full matrix
+ * does not fit in memory, as long as the simulation only involves a small part of their nodes.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class DijkstraDelayMatrix implements DelayMatrix {
+
+	/** Maximum number of floats in one buffer, which holds at most Integer.MAX_VALUE bytes. */
+	private static final int MAX_BUFFER_FLOATS = Integer.MAX_VALUE / 4;
+
+	/** Number of nodes in the topology. */
+	private final int numNodes;
+
+	/** Whether the delay from a node to another may differ from the delay back. */
+	private final boolean directed;
+
+	/**
+	 * Links of the graph in compressed rows: the links leaving node i are at positions
+	 * linkOffsets[i] to linkOffsets[i + 1] - 1 of linkTargets and linkDelays.
+	 */
+	private int[] linkOffsets;
+	private int[] linkTargets;
+	private float[] linkDelays;
+
+	/** Rows of the eager matrix, by buffers of rowsPerBuffer rows. */
+	private FloatBuffer[] buffers;
+	private int rowsPerBuffer;
+
+	/** Rows of the lazy matrix computed so far, in least recently used order. */
+	private Map<Integer, float[]> cachedRows;
+	private ShortestPaths shortestPaths;
+
+	/**
+	 * Creates a matrix holding the delays between all the nodes, computed by parallel threads.
+	 *
+	 * @param graph the topological graph as source-information
+	 * @param directed true if an directed matrix should be computed, false otherwise
+	 * @param parallelism number of threads computing the rows of the matrix
+	 * @param matrixFile file to which the matrix is mapped, or null to keep it in direct memory
+	 * @throws IOException if the matrix can not be mapped to the file
+	 */
+	public DijkstraDelayMatrix(TopologicalGraph graph, boolean directed, int parallelism, File matrixFile)
+			throws IOException {
+		this.numNodes = graph.getNumberOfNodes();
+		this.directed = directed;
+		createLinks(graph);
+		createBuffers(matrixFile);
+		calculateAllShortestPaths(Math.max(1, parallelism));
+	}
+
+	/**
+	 * Creates a matrix computing the delays from a node the first time they are requested.
+	 *
+	 * @param graph the topological graph as source-information
+	 * @param directed true if an directed matrix should be computed, false otherwise
+	 * @param cacheSize maximum number of rows of the matrix kept
+	 */
+	public DijkstraDelayMatrix(TopologicalGraph graph, boolean directed, final int cacheSize) {
+		this.numNodes = graph.getNumberOfNodes();
+		this.directed = directed;
+		createLinks(graph);
+		cachedRows = new LinkedHashMap<Integer, float[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+				return size() > Math.max(1, cacheSize);
+			}
+		};
+		shortestPaths = new ShortestPaths();
+	}
+
+	@Override
+	public float getDelay(int srcID, int destID) {
+		if (srcID < 0 || srcID >= numNodes || destID < 0 || destID >= numNodes) {
+			throw new ArrayIndexOutOfBoundsException("srcID or destID is not the ID of a stored node!");
+		}
+
+		if (buffers != null) {
+			return buffers[srcID / rowsPerBuffer].get((srcID % rowsPerBuffer) * numNodes + destID);
+		}
+
+		float[] row = cachedRows.get(srcID);
+		if (row == null) {
+			if (!directed) {
+				float[] reverseRow = cachedRows.get(destID);
+				if (reverseRow != null) {
+					return reverseRow[srcID];
+				}
+			}
+			row = new float[numNodes];
+			shortestPaths.calculate(srcID, row);
+			cachedRows.put(srcID, row);
+		}
+		return row[destID];
+	}
+
+	/**
+	 * @return the number of nodes in the topology
+	 */
+	public int getNumberOfNodes() {
+		return numNodes;
+	}
+
+	/**
+	 * Creates the compressed rows of the links, a link overriding the previous links between the
+	 * same nodes as in the matrix of {@link DelayMatrix_Float}.
+	 */
+	private void createLinks(TopologicalGraph graph) {
+		Map<Long, Float> delays = new HashMap<Long, Float>();
+		Iterator<TopologicalLink> itr = graph.getLinkIterator();
+		while (itr.hasNext()) {
+			TopologicalLink edge = itr.next();
+			delays.put(getLinkKey(edge.getSrcNodeID(), edge.getDestNodeID()), edge.getLinkDelay());
+			if (!directed) {
+				delays.put(getLinkKey(edge.getDestNodeID(), edge.getSrcNodeID()), edge.getLinkDelay());
+			}
+		}
+
+		linkOffsets = new int[numNodes + 1];
+		for (Map.Entry<Long, Float> entry : delays.entrySet()) {
+			if (isPathLink(entry.getKey(), entry.getValue())) {
+				linkOffsets[(int) (entry.getKey() >>> 32) + 1]++;
+			}
+		}
+		for (int node = 0; node < numNodes; node++) {
+			linkOffsets[node + 1] += linkOffsets[node];
+		}
+
+		linkTargets = new int[linkOffsets[numNodes]];
+		linkDelays = new float[linkOffsets[numNodes]];
+		int[] positions = Arrays.copyOf(linkOffsets, numNodes);
+		for (Map.Entry<Long, Float> entry : delays.entrySet()) {
+			if (isPathLink(entry.getKey(), entry.getValue())) {
+				int position = positions[(int) (entry.getKey() >>> 32)]++;
+				linkTargets[position] = (int) entry.getKey().longValue();
+				linkDelays[position] = entry.getValue();
+			}
+		}
+	}
+
+	private static long getLinkKey(int srcID, int destID) {
+		return ((long) srcID << 32) | (destID & 0xffffffffL);
+	}
+
+	/**
+	 * @return whether a link takes part in the shortest paths: links of zero delay stand for
+	 *         missing links in the adjacency matrix of {@link FloydWarshall_Float}, and the delay
+	 *         from a node to itself is always 0
+	 */
+	private static boolean isPathLink(long key, float delay) {
+		return delay != 0 && (int) (key >>> 32) != (int) key;
+	}
+
+	/**
+	 * Allocates the buffers of the eager matrix, each holding as many whole rows as it can.
+	 */
+	private void createBuffers(File matrixFile) throws IOException {
+		rowsPerBuffer = Math.max(1, numNodes > 0 ? MAX_BUFFER_FLOATS / numNodes : 1);
+		int numBuffers = (numNodes + rowsPerBuffer - 1) / rowsPerBuffer;
+		buffers = new FloatBuffer[numBuffers];
+
+		RandomAccessFile file = matrixFile != null ? new RandomAccessFile(matrixFile, "rw") : null;
+		try {
+			for (int i = 0; i < numBuffers; i++) {
+				int rows = Math.min(rowsPerBuffer, numNodes - i * rowsPerBuffer);
+				long bytes = 4L * rows * numNodes;
+				ByteBuffer buffer;
+				if (file != null) {
+					long position = 4L * i * rowsPerBuffer * numNodes;
+					buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, position, bytes);
+				} else {
+					buffer = ByteBuffer.allocateDirect((int) bytes);
+				}
+				buffers[i] = buffer.order(ByteOrder.nativeOrder()).asFloatBuffer();
+			}
+		} finally {
+			// the mappings stay valid once the file is closed
+			if (file != null) {
+				file.close();
+			}
+		}
+	}
+
+	/**
+	 * Computes every row of the eager matrix, the threads taking the next source node to compute
+	 * until all of them are done.
+	 */
+	private void calculateAllShortestPaths(int parallelism) {
+		final AtomicInteger nextSource = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < parallelism; i++) {
+				futures.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() {
+						ShortestPaths paths = new ShortestPaths();
+						float[] row = new float[numNodes];
+						int source;
+						while ((source = nextSource.getAndIncrement()) < numNodes) {
+							paths.calculate(source, row);
+							FloatBuffer buffer = buffers[source / rowsPerBuffer].duplicate();
+							buffer.position((source % rowsPerBuffer) * numNodes);
+							buffer.put(row);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Dijkstra's algorithm with a binary heap indexed by node, whose arrays are reused for every
+	 * source computed by a thread.
+	 */
+	private class ShortestPaths {
+
+		private final float[] distances = new float[numNodes];
+
+		private final int[] heap = new int[numNodes];
+
+		/** Position of every node in the heap, or -1 if it is not in the heap. */
+		private final int[] heapPositions = new int[numNodes];
+
+		private int heapSize;
+
+		/**
+		 * Computes the delays from a node to all the nodes.
+		 *
+		 * @param source the id of the source-node
+		 * @param row array receiving the delay to every node
+		 */
+		void calculate(int source, float[] row) {
+			Arrays.fill(distances, Float.MAX_VALUE);
+			Arrays.fill(heapPositions, -1);
+			heapSize = 0;
+			// the delay of a node to itself is 0, not the shortest round trip through its links
+			distances[source] = 0;
+			push(source);
+
+			while (heapSize > 0) {
+				int node = pop();
+				float distance = distances[node];
+				for (int i = linkOffsets[node]; i < linkOffsets[node + 1]; i++) {
+					int target = linkTargets[i];
+					float candidate = distance + linkDelays[i];
+					if (candidate < distances[target]) {
+						distances[target] = candidate;
+						if (heapPositions[target] < 0) {
+							push(target);
+						} else {
+							siftUp(heapPositions[target]);
+						}
+					}
+				}
+			}
+			System.arraycopy(distances, 0, row, 0, numNodes);
+		}
+
+		private void push(int node) {
+			heap[heapSize] = node;
+			heapPositions[node] = heapSize;
+			siftUp(heapSize++);
+		}
+
+		private int pop() {
+			int node = heap[0];
+			heapPositions[node] = -1;
+			if (--heapSize > 0) {
+				heap[0] = heap[heapSize];
+				heapPositions[heap[0]] = 0;
+				siftDown(0);
+			}
+			return node;
+		}
+
+		private void siftUp(int position) {
+			int node = heap[position];
+			while (position > 0) {
+				int parent = (position - 1) >>> 1;
+				if (distances[heap[parent]] <= distances[node]) {
+					break;
+				}
+				heap[position] = heap[parent];
+				heapPositions[heap[position]] = position;
+				position = parent;
+			}
+			heap[position] = node;
+			heapPositions[node] = position;
+		}
+
+		private void siftDown(int position) {
+			int node = heap[position];
+			while (true) {
+				int child = 2 * position + 1;
+				if (child >= heapSize) {
+					break;
+				}
+				if (child + 1 < heapSize && distances[heap[child + 1]] < distances[heap[child]]) {
+					child++;
+				}
+				if (distances[node] <= distances[heap[child]]) {
+					break;
+				}
+				heap[position] = heap[child];
+				heapPositions[heap[position]] = position;
+				position = child;
+			}
+			heap[position] = node;
+			heapPositions[node] = position;
+		}
+	}
+
+}
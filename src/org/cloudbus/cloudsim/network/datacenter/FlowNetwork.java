@@ -0,0 +1,339 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * FlowNetwork is the flow-level network of a NetworkDataCenter. The packets sent between hosts are
+ * simulated as flows over the links of the switch tree, instead of being forwarded hop by hop by
+ * the switches, and the bandwidth of the links is shared among the flows crossing them with max-min
+ * fairness. The rates only change when a flow starts or finishes, so that the datacenter only needs
+ * an event at the completion of the next flow.
+ * <p>
+ * The rates are reallocated incrementally: only the flows sharing a link, directly or through
+ * other flows, with a flow that started or finished get new rates, by progressive filling of the
+ * links they cross. As in the packet-level network, a flow alone on a link of bandwidth B transfers
+ * its data in 1000 * data / B seconds, and a packet is delivered after the switching delays of the
+ * switches along its path.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class FlowNetwork {
+
+	/**
+	 * A directed link of the switch tree, from a host or a switch to the next hop.
+	 */
+	public static class Link {
+
+		/** Data transferred per second by the link. */
+		final double capacity;
+
+		/** Flows crossing the link. */
+		final Set<NetworkFlow> flows = new LinkedHashSet<NetworkFlow>();
+
+		// state of the current reallocation
+		int mark;
+
+		double residual;
+
+		int unfixed;
+
+		Link(double bandwidth) {
+			capacity = bandwidth / 1000;
+		}
+
+		public double getCapacity() {
+			return capacity;
+		}
+
+		public int getFlowCount() {
+			return flows.size();
+		}
+	}
+
+	/** Relative tolerance below which a flow is considered finished. */
+	private static final double TIME_TOLERANCE = 1e-9;
+
+	private static final Comparator<NetworkFlow> FINISH_ORDER = new Comparator<NetworkFlow>() {
+
+		@Override
+		public int compare(NetworkFlow f1, NetworkFlow f2) {
+			int result = Double.compare(f1.finishtime, f2.finishtime);
+			return result != 0 ? result : (f1.id < f2.id ? -1 : (f1.id == f2.id ? 0 : 1));
+		}
+	};
+
+	private final NetworkDataCenter dc;
+
+	/** Links from the hosts to their edge switch, and from their edge switch to the hosts. */
+	private final Map<NetworkHost, Link> hostUplinks = new HashMap<NetworkHost, Link>();
+
+	private final Map<NetworkHost, Link> hostDownlinks = new HashMap<NetworkHost, Link>();
+
+	/** Links from the switches to their uplink switch, and from their uplink switch to them. */
+	private final Map<Switch, Link> switchUplinks = new HashMap<Switch, Link>();
+
+	private final Map<Switch, Link> switchDownlinks = new HashMap<Switch, Link>();
+
+	/** The active flows, by finish time. */
+	private final TreeSet<NetworkFlow> flows = new TreeSet<NetworkFlow>(FINISH_ORDER);
+
+	/** Links whose set of flows changed since the last reallocation. */
+	private final Set<Link> changedLinks = new LinkedHashSet<Link>();
+
+	private long nextFlowId;
+
+	private int mark;
+
+	public FlowNetwork(NetworkDataCenter dc) {
+		this.dc = dc;
+	}
+
+	/**
+	 * Starts the flow of a packet sent by a host to a VM of another host. The rates are not
+	 * reallocated until {@link #reallocate(double)} is called.
+	 *
+	 * @param pkt the packet
+	 * @param sender the host sending the packet
+	 * @param time the current time
+	 * @return the flow of the packet
+	 */
+	public NetworkFlow addFlow(NetworkPacket pkt, NetworkHost sender, double time) {
+		int hostid = dc.VmtoHostlist.get(pkt.recievervmid);
+		NetworkHost reciever = dc.Switchlist.get(dc.VmToSwitchid.get(pkt.recievervmid)).hostlist.get(hostid);
+		pkt.recieverhostid = hostid;
+		return addFlow(pkt, sender, reciever, time);
+	}
+
+	/**
+	 * Starts the flow of a packet between two hosts.
+	 *
+	 * @param pkt the packet
+	 * @param sender the host sending the packet
+	 * @param reciever the host receiving the packet
+	 * @param time the current time
+	 * @return the flow of the packet
+	 */
+	public NetworkFlow addFlow(NetworkPacket pkt, NetworkHost sender, NetworkHost reciever, double time) {
+		List<Link> path = new ArrayList<Link>();
+		List<Link> downpath = new ArrayList<Link>();
+		double latency = 0;
+
+		path.add(getHostUplink(sender));
+		Switch up = sender.sw;
+		Switch down = reciever.sw;
+		latency += up.switching_delay;
+		while (up != down) {
+			// the edge switches have the highest level, the root the lowest
+			if (up.level >= down.level) {
+				path.add(getSwitchUplink(up));
+				up = getUplinkSwitch(up);
+				latency += up.switching_delay;
+			} else {
+				downpath.add(getSwitchDownlink(down));
+				latency += down.latency;
+				down = getUplinkSwitch(down);
+			}
+		}
+		for (int i = downpath.size() - 1; i >= 0; i--) {
+			path.add(downpath.get(i));
+		}
+		path.add(getHostDownlink(reciever));
+
+		NetworkFlow flow = new NetworkFlow(nextFlowId++, pkt, path.toArray(new Link[path.size()]), latency, time);
+		for (Link link : flow.path) {
+			link.flows.add(flow);
+			changedLinks.add(link);
+		}
+		flows.add(flow);
+		return flow;
+	}
+
+	/**
+	 * Removes the flows finished at a time. The rates are not reallocated until
+	 * {@link #reallocate(double)} is called.
+	 *
+	 * @param time the current time
+	 * @return the finished flows, in the order of their finish time
+	 */
+	public List<NetworkFlow> removeFinishedFlows(double time) {
+		List<NetworkFlow> finished = new ArrayList<NetworkFlow>();
+		double limit = time + TIME_TOLERANCE * Math.max(1, time);
+		while (!flows.isEmpty() && flows.first().finishtime <= limit) {
+			NetworkFlow flow = flows.pollFirst();
+			flow.remaining = 0;
+			flow.lastupdate = time;
+			for (Link link : flow.path) {
+				link.flows.remove(flow);
+				changedLinks.add(link);
+			}
+			finished.add(flow);
+		}
+		return finished;
+	}
+
+	/**
+	 * Reallocates the rates of the flows sharing a link with the flows started or finished since
+	 * the last reallocation, by progressive filling: the most constrained link shares its remaining
+	 * capacity equally among its flows whose rate is not fixed yet, which fixes their rate, until
+	 * all the rates are fixed.
+	 *
+	 * @param time the current time
+	 */
+	public void reallocate(double time) {
+		if (changedLinks.isEmpty()) {
+			return;
+		}
+		mark++;
+
+		// the links and flows affected by the change
+		List<Link> links = new ArrayList<Link>();
+		List<NetworkFlow> affected = new ArrayList<NetworkFlow>();
+		ArrayDeque<Link> queue = new ArrayDeque<Link>();
+		for (Link link : changedLinks) {
+			link.mark = mark;
+			queue.add(link);
+		}
+		changedLinks.clear();
+		while (!queue.isEmpty()) {
+			Link link = queue.poll();
+			links.add(link);
+			for (NetworkFlow flow : link.flows) {
+				if (flow.mark == mark) {
+					continue;
+				}
+				flow.mark = mark;
+				affected.add(flow);
+				for (Link next : flow.path) {
+					if (next.mark != mark) {
+						next.mark = mark;
+						queue.add(next);
+					}
+				}
+			}
+		}
+
+		for (NetworkFlow flow : affected) {
+			flows.remove(flow);
+			flow.remaining = Math.max(0, flow.remaining - flow.rate * (time - flow.lastupdate));
+			flow.lastupdate = time;
+			flow.fixed = false;
+		}
+		for (Link link : links) {
+			link.residual = link.capacity;
+			link.unfixed = link.flows.size();
+		}
+
+		while (true) {
+			Link bottleneck = null;
+			double share = Double.MAX_VALUE;
+			for (Link link : links) {
+				if (link.unfixed > 0 && link.residual / link.unfixed < share) {
+					share = link.residual / link.unfixed;
+					bottleneck = link;
+				}
+			}
+			if (bottleneck == null) {
+				break;
+			}
+			share = Math.max(0, share);
+			for (NetworkFlow flow : bottleneck.flows) {
+				if (flow.fixed) {
+					continue;
+				}
+				flow.fixed = true;
+				flow.rate = share;
+				for (Link link : flow.path) {
+					link.residual -= share;
+					link.unfixed--;
+				}
+			}
+		}
+
+		for (NetworkFlow flow : affected) {
+			flow.finishtime = flow.rate > 0 ? time + flow.remaining / flow.rate : Double.POSITIVE_INFINITY;
+			flows.add(flow);
+		}
+	}
+
+	/**
+	 * @return the time when the next flow finishes, or infinity if no flow can finish
+	 */
+	public double getNextFinishTime() {
+		return flows.isEmpty() ? Double.POSITIVE_INFINITY : flows.first().finishtime;
+	}
+
+	/**
+	 * @return whether some flows started or finished since the last reallocation
+	 */
+	public boolean isChanged() {
+		return !changedLinks.isEmpty();
+	}
+
+	public int getFlowCount() {
+		return flows.size();
+	}
+
+	private Link getHostUplink(NetworkHost host) {
+		Link link = hostUplinks.get(host);
+		if (link == null) {
+			link = new Link(host.bandwidth);
+			hostUplinks.put(host, link);
+		}
+		return link;
+	}
+
+	private Link getHostDownlink(NetworkHost host) {
+		Link link = hostDownlinks.get(host);
+		if (link == null) {
+			link = new Link(host.sw.downlinkbandwidth);
+			hostDownlinks.put(host, link);
+		}
+		return link;
+	}
+
+	private Link getSwitchUplink(Switch sw) {
+		Link link = switchUplinks.get(sw);
+		if (link == null) {
+			getUplinkSwitch(sw);
+			link = new Link(sw.uplinkbandwidth);
+			switchUplinks.put(sw, link);
+		}
+		return link;
+	}
+
+	private Link getSwitchDownlink(Switch sw) {
+		Link link = switchDownlinks.get(sw);
+		if (link == null) {
+			link = new Link(getUplinkSwitch(sw).downlinkbandwidth);
+			switchDownlinks.put(sw, link);
+		}
+		return link;
+	}
+
+	/**
+	 * Gets the switch of the uplink port of a switch. As in the packet-level network, each switch
+	 * is assumed to be connected to a single uplink switch.
+	 */
+	private static Switch getUplinkSwitch(Switch sw) {
+		if (sw.uplinkswitches == null || sw.uplinkswitches.isEmpty()) {
+			throw new IllegalStateException("No route through " + sw.getName());
+		}
+		return sw.uplinkswitches.get(0);
+	}
+}
@@ -80,6 +80,35 @@ public class NetworkDataCenter extends DataCenter {
 
 	public Map<Integer, Integer> VmtoHostlist;
 
+	/** The flow-level network, or null if the packets are forwarded by the switches. */
+	private FlowNetwork flowNetwork;
+
+	/** The event of the completion of the next flow. */
+	private SimEvent flowEvent;
+
+	/**
+	 * Sets whether the packets sent between hosts are simulated as flows sharing the bandwidth of
+	 * the links with max-min fairness, instead of being forwarded packet by packet by the switches.
+	 * The flow-level network only generates events when a flow finishes. It must be set before the
+	 * simulation starts.
+	 * 
+	 * @param enabled whether the flow-level network is used
+	 */
+	public void setFlowLevelNetwork(boolean enabled) {
+		flowNetwork = enabled ? new FlowNetwork(this) : null;
+	}
+
+	public boolean isFlowLevelNetwork() {
+		return flowNetwork != null;
+	}
+
+	/**
+	 * @return the flow-level network, or null if the packets are forwarded by the switches
+	 */
+	public FlowNetwork getFlowNetwork() {
+		return flowNetwork;
+	}
+
 	/**
 	 * Get list of all EdgeSwitches in the DataCenter network One can design similar functions for
 	 * other type of switches.
@@ -210,4 +239,73 @@ public class NetworkDataCenter extends DataCenter {
 		checkCloudletCompletion();
 	}
 
+	@Override
+	protected void updateCloudletProcessing() {
+		super.updateCloudletProcessing();
+		if (flowNetwork != null && flowNetwork.isChanged()) {
+			flowNetwork.reallocate(CloudSim.clock());
+			scheduleFlowEvent();
+		}
+	}
+
+	@Override
+	protected void processOtherEvent(SimEvent ev) {
+		if (ev != null && ev.getTag() == CloudSimTags.Network_Event_Flow) {
+			processFlowCompletion();
+			return;
+		}
+		if (ev != null && ev.getTag() == CloudSimTags.Network_Event_Host) {
+			processFlowDelivery((NetworkPacket) ev.getData());
+			return;
+		}
+		super.processOtherEvent(ev);
+	}
+
+	/**
+	 * Processes the completion of the flows finishing now, whose packets are delivered after the
+	 * switching delay of their path.
+	 */
+	protected void processFlowCompletion() {
+		flowEvent = null;
+		double time = CloudSim.clock();
+		for (NetworkFlow flow : flowNetwork.removeFinishedFlows(time)) {
+			flow.pkt.rtime = time;
+			if (flow.latency > 0) {
+				send(getId(), flow.latency, CloudSimTags.Network_Event_Host, flow.pkt);
+			} else {
+				processFlowDelivery(flow.pkt);
+			}
+		}
+		flowNetwork.reallocate(time);
+		scheduleFlowEvent();
+	}
+
+	/**
+	 * Delivers the packet of a flow to its receiving host, whose VMs get it at their next update,
+	 * as for a packet forwarded by an edge switch.
+	 * 
+	 * @param hspkt the packet
+	 */
+	protected void processFlowDelivery(NetworkPacket hspkt) {
+		NetworkHost hs = Switchlist.get(VmToSwitchid.get(hspkt.recievervmid)).hostlist.get(hspkt.recieverhostid);
+		hs.packetrecieved.add(hspkt);
+	}
+
+	/**
+	 * Schedules the event of the completion of the next flow, replacing the previous one.
+	 */
+	private void scheduleFlowEvent() {
+		double finish = flowNetwork.getNextFinishTime();
+		if (flowEvent != null) {
+			if (flowEvent.eventTime() == finish) {
+				return;
+			}
+			cancelEvent(flowEvent);
+			flowEvent = null;
+		}
+		if (finish != Double.POSITIVE_INFINITY) {
+			flowEvent = schedule(getId(), Math.max(0, finish - CloudSim.clock()), CloudSimTags.Network_Event_Flow);
+		}
+	}
+
 }
@@ -0,0 +1,61 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+/**
+ * NetworkFlow represents the transfer of a packet between two hosts in the flow-level network of a
+ * NetworkDataCenter. Instead of being forwarded hop by hop, the data of the packet flows at once
+ * along the links of its path, at the rate given to it by the {@link FlowNetwork}.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class NetworkFlow {
+
+	public NetworkFlow(long id, NetworkPacket pkt, FlowNetwork.Link[] path, double latency, double time) {
+		this.id = id;
+		this.pkt = pkt;
+		this.path = path;
+		this.latency = latency;
+		remaining = pkt.pkt.data;
+		lastupdate = time;
+		finishtime = Double.POSITIVE_INFINITY;
+	}
+
+	long id;
+
+	NetworkPacket pkt;
+
+	FlowNetwork.Link[] path;// links from the sender host to the receiver host
+
+	double latency;// switching delay along the path
+
+	double remaining;// data still to be transferred
+
+	double rate;// data transferred per second
+
+	double lastupdate;// time when remaining was last updated
+
+	double finishtime;// time when the transfer ends at the current rate
+
+	int mark;// last reallocation in which the flow was visited
+
+	boolean fixed;// whether the rate is fixed in the current reallocation
+
+	public NetworkPacket getPacket() {
+		return pkt;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public double getFinishTime() {
+		return finishtime;
+	}
+}
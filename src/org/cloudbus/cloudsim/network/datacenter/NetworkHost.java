@@ -184,6 +184,16 @@ public class NetworkHost extends Host {
 
 		// Sending packet to other VMs therefore packet is forwarded to a Edge switch
 		packetTosendLocal.clear();
+		FlowNetwork flownetwork = ((NetworkDataCenter) getDataCenter()).getFlowNetwork();
+		if (flownetwork != null) {
+			// the packets flow to the receiving hosts at the rates shared by the flow network
+			for (NetworkPacket hs : packetTosendGlobal) {
+				NetworkConstants.totaldatatransfer += hs.pkt.data;
+				flownetwork.addFlow(hs, this, CloudSim.clock());
+			}
+			packetTosendGlobal.clear();
+			return;
+		}
 		double avband = bandwidth / packetTosendGlobal.size();
 		for (NetworkPacket hs : packetTosendGlobal) {
 			double delay = (1000 * hs.pkt.data) / avband;
@@ -86,7 +86,7 @@ public class PowerDataCenter extends DataCenter {
 	@Override
 	protected void updateCloudletProcessing() {
 		if (getCloudletSubmitted() == -1 || getCloudletSubmitted() == CloudSim.clock()) {
-			CloudSim.cancelAll(getId(), new PredicateType(CloudSimTags.VM_DATACENTER_EVENT));
+			cancelDataCenterEvents();
 			schedule(getId(), getSchedulingInterval(), CloudSimTags.VM_DATACENTER_EVENT);
 			return;
 		}
@@ -140,7 +140,7 @@ public class PowerDataCenter extends DataCenter {
 
 			// schedules an event to the next time
 			if (minTime != Double.MAX_VALUE) {
-				CloudSim.cancelAll(getId(), new PredicateType(CloudSimTags.VM_DATACENTER_EVENT));
+				cancelDataCenterEvents();
 				send(getId(), getSchedulingInterval(), CloudSimTags.VM_DATACENTER_EVENT);
 			}
 
@@ -18,7 +18,6 @@ import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
-import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
  * PowerDataCenterNonPowerAware is a class that represents a non-power aware data center in the
@@ -69,7 +68,7 @@ public class PowerDataCenterNonPowerAware extends PowerDataCenter {
 	@Override
 	protected void updateCloudletProcessing() {
 		if (getCloudletSubmitted() == -1 || getCloudletSubmitted() == CloudSim.clock()) {
-			CloudSim.cancelAll(getId(), new PredicateType(CloudSimTags.VM_DATACENTER_EVENT));
+			cancelDataCenterEvents();
 			schedule(getId(), getSchedulingInterval(), CloudSimTags.VM_DATACENTER_EVENT);
 			return;
 		}
@@ -175,7 +174,7 @@ public class PowerDataCenterNonPowerAware extends PowerDataCenter {
 
 			// schedules an event to the next time
 			if (minTime != Double.MAX_VALUE) {
-				CloudSim.cancelAll(getId(), new PredicateType(CloudSimTags.VM_DATACENTER_EVENT));
+				cancelDataCenterEvents();
 				// CloudSim.cancelAll(getId(), CloudSim.SIM_ANY);
 				send(getId(), getSchedulingInterval(), CloudSimTags.VM_DATACENTER_EVENT);
 			}
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.power;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.cloudbus.cloudsim.Pe;
@@ -34,6 +35,49 @@ import org.cloudbus.cloudsim.util.MathUtil;
  */
 public class PowerHostUtilizationHistory extends PowerHost {
 
+	/** The changes of the VMs that {@link #updateUtilizationHistory()} tells apart. */
+	private static final int HISTORY_UNCHANGED = 0;
+	private static final int HISTORY_RECORDED = 1;
+	private static final int HISTORY_CHANGED = 2;
+
+	/** The host utilization history, composed from the histories of the VMs. */
+	private final double[] utilizationHistory = new double[PowerVm.HISTORY_LENGTH];
+
+	/** The length of the history without its tail of zeros. */
+	private int utilizationHistoryLength;
+
+	/** The history sorted in ascending order. */
+	private final double[] sortedUtilizationHistory = new double[PowerVm.HISTORY_LENGTH];
+
+	/** The absolute deviations of the history from its median, in ascending order. */
+	private final double[] utilizationDeviations = new double[PowerVm.HISTORY_LENGTH];
+
+	/** The median absolute deviation of the history. */
+	private double utilizationMad;
+
+	/** The VMs the history was composed from, with their MIPS and history counts at that time. */
+	private PowerVm[] composedVms = new PowerVm[0];
+	private double[] composedVmMips = new double[0];
+	private long[] composedVmHistoryCounts = new long[0];
+	private int composedVmCount = -1;
+	private double composedHostMips;
+
+	/** The number of times the history has been updated, which tells when the probe is out of date. */
+	private long utilizationHistoryVersion;
+
+	/** The history of the host with the probed VM allocated to it, and its statistics. */
+	private final double[] probeUtilizationHistory = new double[PowerVm.HISTORY_LENGTH];
+	private int probeUtilizationHistoryLength;
+	private final double[] probeSortedUtilizationHistory = new double[PowerVm.HISTORY_LENGTH];
+	private final double[] probeUtilizationDeviations = new double[PowerVm.HISTORY_LENGTH];
+	private double probeUtilizationMad;
+
+	/** The probed VM, with its MIPS and history count, and the version of the history it was added to. */
+	private PowerVm probeVm;
+	private double probeVmMips;
+	private long probeVmHistoryCount;
+	private long probeUtilizationHistoryVersion = -1;
+
 	/**
 	 * Instantiates a new power host utilization history.
 	 * 
@@ -62,14 +106,340 @@ public class PowerHostUtilizationHistory extends PowerHost {
 	 * @return the host utilization history
 	 */
 	protected double[] getUtilizationHistory() {
-		double[] utilizationHistory = new double[PowerVm.HISTORY_LENGTH];
+		updateUtilizationHistory();
+		return Arrays.copyOf(utilizationHistory, utilizationHistoryLength);
+	}
+
+	/**
+	 * Gets the length of the host utilization history.
+	 * 
+	 * @return the length of the host utilization history
+	 */
+	public int getUtilizationHistoryLength() {
+		updateUtilizationHistory();
+		return utilizationHistoryLength;
+	}
+
+	/**
+	 * Gets a value of the host utilization history, the most recent value having index 0.
+	 * 
+	 * @param index the index of the value
+	 * @return the value
+	 */
+	public double getUtilizationHistoryValue(int index) {
+		updateUtilizationHistory();
+		if (index >= utilizationHistoryLength) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		return utilizationHistory[index];
+	}
+
+	/**
+	 * Gets the median absolute deviation of the host utilization history, as computed by
+	 * {@link MathUtil#mad(double[])}.
+	 * 
+	 * @return the median absolute deviation, 0 if the history is empty
+	 */
+	public double getUtilizationMad() {
+		updateUtilizationHistory();
+		return utilizationMad;
+	}
+
+	/**
+	 * Gets the interquartile range of the host utilization history, as computed by
+	 * {@link MathUtil#iqr(double[])}.
+	 * 
+	 * @return the interquartile range
+	 */
+	public double getUtilizationIqr() {
+		updateUtilizationHistory();
+		return iqr(sortedUtilizationHistory, utilizationHistoryLength);
+	}
+
+	/**
+	 * Gets the length of the utilization history the host would have with an additional VM
+	 * allocated to it. The host and the VM are left as they are.
+	 * 
+	 * @param additionalVm a VM that is not on the host, or null for the host as it is
+	 * @return the length of the host utilization history with the VM
+	 */
+	public int getUtilizationHistoryLength(PowerVm additionalVm) {
+		if (additionalVm == null) {
+			return getUtilizationHistoryLength();
+		}
+		updateProbe(additionalVm);
+		return probeUtilizationHistoryLength;
+	}
+
+	/**
+	 * Gets a value of the utilization history the host would have with an additional VM allocated
+	 * to it, the most recent value having index 0.
+	 * 
+	 * @param additionalVm a VM that is not on the host, or null for the host as it is
+	 * @param index the index of the value
+	 * @return the value
+	 */
+	public double getUtilizationHistoryValue(PowerVm additionalVm, int index) {
+		if (additionalVm == null) {
+			return getUtilizationHistoryValue(index);
+		}
+		updateProbe(additionalVm);
+		if (index >= probeUtilizationHistoryLength) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		return probeUtilizationHistory[index];
+	}
+
+	/**
+	 * Gets the median absolute deviation of the utilization history the host would have with an
+	 * additional VM allocated to it.
+	 * 
+	 * @param additionalVm a VM that is not on the host, or null for the host as it is
+	 * @return the median absolute deviation
+	 */
+	public double getUtilizationMad(PowerVm additionalVm) {
+		if (additionalVm == null) {
+			return getUtilizationMad();
+		}
+		updateProbe(additionalVm);
+		return probeUtilizationMad;
+	}
+
+	/**
+	 * Gets the interquartile range of the utilization history the host would have with an
+	 * additional VM allocated to it.
+	 * 
+	 * @param additionalVm a VM that is not on the host, or null for the host as it is
+	 * @return the interquartile range
+	 */
+	public double getUtilizationIqr(PowerVm additionalVm) {
+		if (additionalVm == null) {
+			return getUtilizationIqr();
+		}
+		updateProbe(additionalVm);
+		return iqr(probeSortedUtilizationHistory, probeUtilizationHistoryLength);
+	}
+
+	/**
+	 * Updates the host utilization history if a VM has been added or removed, or has recorded its
+	 * utilization, since it was last updated. The sorted history and its median absolute deviation
+	 * are updated with it, so that the policies checking the host several times per scheduling
+	 * interval read them without computing them again.
+	 * 
+	 * When every VM of the host has recorded one value, as it does once per scheduling interval,
+	 * the history is shifted by one value: only its latest value is composed, and it replaces the
+	 * oldest one in the sorted history. Otherwise the history is composed again from the VMs.
+	 */
+	protected void updateUtilizationHistory() {
+		List<PowerVm> vmList = this.<PowerVm> getVmList();
 		double hostMips = getTotalMips();
-		for (PowerVm vm : this.<PowerVm> getVmList()) {
-			for (int i = 0; i < vm.getUtilizationHistory().size(); i++) {
-				utilizationHistory[i] += vm.getUtilizationHistory().get(i) * vm.getMips() / hostMips;
+		int change = getUtilizationHistoryChange(vmList, hostMips);
+		if (change == HISTORY_UNCHANGED) {
+			return;
+		}
+		if (change == HISTORY_RECORDED) {
+			shiftUtilizationHistory(vmList, hostMips);
+		} else {
+			composeUtilizationHistory(vmList, hostMips);
+		}
+		utilizationMad = mad(sortedUtilizationHistory, utilizationHistoryLength, utilizationDeviations);
+		utilizationHistoryVersion++;
+	}
+
+	/**
+	 * Composes the host utilization history from the histories of the VMs, and sorts it.
+	 * 
+	 * @param vmList the VMs of the host
+	 * @param hostMips the MIPS of the host
+	 */
+	private void composeUtilizationHistory(List<PowerVm> vmList, double hostMips) {
+		int vmCount = vmList.size();
+		if (composedVms.length < vmCount) {
+			composedVms = new PowerVm[Math.max(vmCount, 2 * composedVms.length)];
+			composedVmMips = new double[composedVms.length];
+			composedVmHistoryCounts = new long[composedVms.length];
+		}
+		Arrays.fill(utilizationHistory, 0);
+		for (int j = 0; j < vmCount; j++) {
+			PowerVm vm = vmList.get(j);
+			composedVms[j] = vm;
+			composedVmMips[j] = vm.getMips();
+			composedVmHistoryCounts[j] = vm.getUtilizationHistoryCount();
+			int i = 0;
+			for (double utilization : vm.getUtilizationHistory()) {
+				utilizationHistory[i++] += utilization * vm.getMips() / hostMips;
+			}
+		}
+		Arrays.fill(composedVms, vmCount, composedVms.length, null);
+		composedVmCount = vmCount;
+		composedHostMips = hostMips;
+
+		int n = MathUtil.countNonZeroBeginning(utilizationHistory);
+		utilizationHistoryLength = n;
+		System.arraycopy(utilizationHistory, 0, sortedUtilizationHistory, 0, n);
+		Arrays.sort(sortedUtilizationHistory, 0, n);
+	}
+
+	/**
+	 * Shifts the host utilization history by the value each VM has recorded. Every other value is
+	 * the sum of the same terms as before, so the history is the one composing it again would give.
+	 * 
+	 * @param vmList the VMs of the host, the same as when the history was last updated
+	 * @param hostMips the MIPS of the host
+	 */
+	private void shiftUtilizationHistory(List<PowerVm> vmList, double hostMips) {
+		double latest = 0;
+		for (int j = 0; j < composedVmCount; j++) {
+			PowerVm vm = vmList.get(j);
+			composedVmHistoryCounts[j]++;
+			latest += vm.getUtilizationHistory().get(0) * vm.getMips() / hostMips;
+		}
+		int n = utilizationHistoryLength;
+		double dropped = utilizationHistory[PowerVm.HISTORY_LENGTH - 1];
+		System.arraycopy(utilizationHistory, 0, utilizationHistory, 1, PowerVm.HISTORY_LENGTH - 1);
+		utilizationHistory[0] = latest;
+		int shiftedLength = MathUtil.countNonZeroBeginning(utilizationHistory);
+
+		// the values shifted out of the history or into its tail of zeros leave the sorted history
+		int sortedLength = n;
+		for (int i = shiftedLength - 1; i < n; i++) {
+			double value = i + 1 < PowerVm.HISTORY_LENGTH ? utilizationHistory[i + 1] : dropped;
+			int index = Arrays.binarySearch(sortedUtilizationHistory, 0, sortedLength, value);
+			System.arraycopy(sortedUtilizationHistory, index + 1, sortedUtilizationHistory, index,
+					sortedLength - index - 1);
+			sortedLength--;
+		}
+		int index = Arrays.binarySearch(sortedUtilizationHistory, 0, sortedLength, latest);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		System.arraycopy(sortedUtilizationHistory, index, sortedUtilizationHistory, index + 1, sortedLength - index);
+		sortedUtilizationHistory[index] = latest;
+		utilizationHistoryLength = shiftedLength;
+	}
+
+	/**
+	 * Updates the history of the host with a VM allocated to it, unless it has been computed for
+	 * that VM and the current host history already. The VM history is added to the host history as
+	 * it would be after the VM is appended to the VM list, which gives the same values.
+	 * 
+	 * @param vm the VM, not on the host
+	 */
+	private void updateProbe(PowerVm vm) {
+		updateUtilizationHistory();
+		if (vm == probeVm
+				&& vm.getMips() == probeVmMips
+				&& vm.getUtilizationHistoryCount() == probeVmHistoryCount
+				&& utilizationHistoryVersion == probeUtilizationHistoryVersion) {
+			return;
+		}
+		probeVm = vm;
+		probeVmMips = vm.getMips();
+		probeVmHistoryCount = vm.getUtilizationHistoryCount();
+		probeUtilizationHistoryVersion = utilizationHistoryVersion;
+
+		System.arraycopy(utilizationHistory, 0, probeUtilizationHistory, 0, PowerVm.HISTORY_LENGTH);
+		int i = 0;
+		for (double utilization : vm.getUtilizationHistory()) {
+			probeUtilizationHistory[i++] += utilization * vm.getMips() / composedHostMips;
+		}
+		int n = MathUtil.countNonZeroBeginning(probeUtilizationHistory);
+		probeUtilizationHistoryLength = n;
+		System.arraycopy(probeUtilizationHistory, 0, probeSortedUtilizationHistory, 0, n);
+		Arrays.sort(probeSortedUtilizationHistory, 0, n);
+		probeUtilizationMad = mad(probeSortedUtilizationHistory, n, probeUtilizationDeviations);
+	}
+
+	/**
+	 * Tells how the VMs of the host or their histories have changed since the host utilization
+	 * history was last updated.
+	 * 
+	 * @param vmList the VMs of the host
+	 * @param hostMips the MIPS of the host
+	 * @return {@link #HISTORY_UNCHANGED}, {@link #HISTORY_RECORDED} if the VMs are the same and
+	 *         have each recorded one value, or {@link #HISTORY_CHANGED}
+	 */
+	private int getUtilizationHistoryChange(List<PowerVm> vmList, double hostMips) {
+		if (vmList.size() != composedVmCount || hostMips != composedHostMips) {
+			return HISTORY_CHANGED;
+		}
+		boolean unchanged = true;
+		boolean recorded = true;
+		for (int j = 0; j < composedVmCount; j++) {
+			PowerVm vm = vmList.get(j);
+			if (vm != composedVms[j] || vm.getMips() != composedVmMips[j]) {
+				return HISTORY_CHANGED;
 			}
+			long count = vm.getUtilizationHistoryCount() - composedVmHistoryCounts[j];
+			unchanged &= count == 0;
+			recorded &= count == 1;
+			if (!unchanged && !recorded) {
+				return HISTORY_CHANGED;
+			}
+		}
+		return unchanged ? HISTORY_UNCHANGED : HISTORY_RECORDED;
+	}
+
+	/**
+	 * Gets the median absolute deviation of a sorted history, as computed by
+	 * {@link MathUtil#mad(double[])}.
+	 * 
+	 * @param sorted the history in ascending order
+	 * @param n the length of the history
+	 * @param deviations the array the absolute deviations are sorted into
+	 * @return the median absolute deviation, 0 if the history is empty
+	 */
+	private static double mad(double[] sorted, int n, double[] deviations) {
+		// merges the deviations below and above the median, which are sorted in opposite orders
+		double median = median(sorted, n);
+		int below = n - 1;
+		while (below >= 0 && sorted[below] > median) {
+			below--;
+		}
+		int above = below + 1;
+		for (int i = 0; i < n; i++) {
+			if (above == n || below >= 0
+					&& Math.abs(median - sorted[below]) <= Math.abs(median - sorted[above])) {
+				deviations[i] = Math.abs(median - sorted[below--]);
+			} else {
+				deviations[i] = Math.abs(median - sorted[above++]);
+			}
+		}
+		// MathUtil.mad is 0 for an empty history, where the median is not defined
+		return n > 0 ? median(deviations, n) : 0;
+	}
+
+	/**
+	 * Gets the interquartile range of a sorted history, as computed by {@link MathUtil#iqr(double[])}.
+	 * 
+	 * @param sorted the history in ascending order
+	 * @param n the length of the history
+	 * @return the interquartile range
+	 */
+	private static double iqr(double[] sorted, int n) {
+		int q1 = (int) Math.round(0.25 * (n + 1)) - 1;
+		int q3 = (int) Math.round(0.75 * (n + 1)) - 1;
+		return sorted[q3] - sorted[q1];
+	}
+
+	/**
+	 * Gets the median of sorted values, estimated as the 50th percentile of
+	 * {@link MathUtil#median(double[])}.
+	 * 
+	 * @param sorted the values in ascending order
+	 * @param n the number of values
+	 * @return the median
+	 */
+	private static double median(double[] sorted, int n) {
+		if (n == 0) {
+			return Double.NaN;
+		}
+		if (n % 2 == 1) {
+			return sorted[n / 2];
 		}
-		return MathUtil.trimZeroTail(utilizationHistory);
+		double lower = sorted[n / 2 - 1];
+		double upper = sorted[n / 2];
+		return lower + 0.5 * (upper - lower);
 	}
 
 }
@@ -39,6 +39,9 @@ public class PowerVm extends Vm {
 	/** The utilization history. */
 	private final List<Double> utilizationHistory = new LinkedList<Double>();
 
+	/** The number of values added to the utilization history. */
+	private long utilizationHistoryCount;
+
 	/** The previous time. */
 	private double previousTime;
 
@@ -175,6 +178,17 @@ public class PowerVm extends Vm {
 		if (getUtilizationHistory().size() > HISTORY_LENGTH) {
 			getUtilizationHistory().remove(HISTORY_LENGTH);
 		}
+		utilizationHistoryCount++;
+	}
+
+	/**
+	 * Gets the number of values added to the utilization history so far, which tells whether the
+	 * history has changed since it was last read.
+	 * 
+	 * @return the number of values added to the utilization history
+	 */
+	public long getUtilizationHistoryCount() {
+		return utilizationHistoryCount;
 	}
 
 	/**
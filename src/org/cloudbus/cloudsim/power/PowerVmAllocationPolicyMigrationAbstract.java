@@ -239,19 +239,18 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	}
 
 	/**
-	 * Checks if is host over utilized after allocation.
+	 * Checks if is host over utilized after allocation. The host counts as over utilized if it is
+	 * not suitable for the VM or lacks its storage, which is checked without creating the VM on it.
 	 * 
 	 * @param host the host
 	 * @param vm the vm
 	 * @return true, if is host over utilized after allocation
 	 */
 	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
-		boolean isHostOverUtilizedAfterAllocation = true;
-		if (host.vmCreate(vm)) {
-			isHostOverUtilizedAfterAllocation = isHostOverUtilized(host);
-			host.vmDestroy(vm);
+		if (host.getStorage() < vm.getSize() || !host.isSuitableForVm(vm)) {
+			return true;
 		}
-		return isHostOverUtilizedAfterAllocation;
+		return isHostOverUtilized(host, vm);
 	}
 
 	/**
@@ -465,6 +464,27 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	 */
 	protected abstract boolean isHostOverUtilized(PowerHost host);
 
+	/**
+	 * Checks if a host would be over utilized with an additional VM allocated to it. This
+	 * implementation creates the VM on the host for the time of the check; the policies that can
+	 * tell it from the VM alone override it to leave the host untouched.
+	 * 
+	 * @param host the host
+	 * @param additionalVm a VM that is not on the host, or null to check the host as it is
+	 * @return true, if the host would be over utilized, or if the VM cannot be created on it
+	 */
+	protected boolean isHostOverUtilized(PowerHost host, Vm additionalVm) {
+		if (additionalVm == null) {
+			return isHostOverUtilized(host);
+		}
+		boolean isHostOverUtilized = true;
+		if (host.vmCreate(additionalVm)) {
+			isHostOverUtilized = isHostOverUtilized(host);
+			host.vmDestroy(additionalVm);
+		}
+		return isHostOverUtilized;
+	}
+
 	/**
 	 * Adds the history value.
 	 * 
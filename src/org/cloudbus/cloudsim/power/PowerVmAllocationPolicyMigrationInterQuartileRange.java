@@ -13,7 +13,6 @@ import java.util.List;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Vm;
-import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
  * The Inter Quartile Range (IQR) VM allocation policy.
@@ -82,18 +81,34 @@ public class PowerVmAllocationPolicyMigrationInterQuartileRange extends
 	 */
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
+		return isHostOverUtilized(host, null);
+	}
+
+	/**
+	 * Checks if a host would be over utilized with an additional VM allocated to it, from the
+	 * utilization history composed with that of the VM.
+	 * 
+	 * @param host the host
+	 * @param additionalVm a VM that is not on the host, or null to check the host as it is
+	 * @return true, if the host would be over utilized
+	 */
+	@Override
+	protected boolean isHostOverUtilized(PowerHost host, Vm additionalVm) {
 		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
 		double upperThreshold = 0;
 		try {
-			upperThreshold = 1 - getSafetyParameter() * getHostUtilizationIqr(_host);
+			upperThreshold = 1 - getSafetyParameter() * getHostUtilizationIqr(_host, (PowerVm) additionalVm);
 		} catch (IllegalArgumentException e) {
-			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
+			return getFallbackVmAllocationPolicy().isHostOverUtilized(host, additionalVm);
 		}
 		addHistoryEntry(host, upperThreshold);
 		double totalRequestedMips = 0;
 		for (Vm vm : host.getVmList()) {
 			totalRequestedMips += vm.getCurrentRequestedTotalMips();
 		}
+		if (additionalVm != null) {
+			totalRequestedMips += additionalVm.getCurrentRequestedTotalMips();
+		}
 		double utilization = totalRequestedMips / host.getTotalMips();
 		return utilization > upperThreshold;
 	}
@@ -105,9 +120,20 @@ public class PowerVmAllocationPolicyMigrationInterQuartileRange extends
 	 * @return the host utilization iqr
 	 */
 	protected double getHostUtilizationIqr(PowerHostUtilizationHistory host) throws IllegalArgumentException {
-		double[] data = host.getUtilizationHistory();
-		if (MathUtil.countNonZeroBeginning(data) >= 12) { // 12 has been suggested as a safe value
-			return MathUtil.iqr(data);
+		return getHostUtilizationIqr(host, null);
+	}
+
+	/**
+	 * Gets the utilization iqr the host would have with an additional VM allocated to it.
+	 * 
+	 * @param host the host
+	 * @param additionalVm a VM that is not on the host, or null for the host as it is
+	 * @return the host utilization iqr
+	 */
+	protected double getHostUtilizationIqr(PowerHostUtilizationHistory host, PowerVm additionalVm)
+			throws IllegalArgumentException {
+		if (host.getUtilizationHistoryLength(additionalVm) >= 12) { // 12 has been suggested as a safe value
+			return host.getUtilizationIqr(additionalVm);
 		}
 		throw new IllegalArgumentException();
 	}
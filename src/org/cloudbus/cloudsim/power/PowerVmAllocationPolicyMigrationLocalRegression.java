@@ -89,23 +89,37 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	 */
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
+		return isHostOverUtilized(host, null);
+	}
+
+	/**
+	 * Checks if a host would be over utilized with an additional VM allocated to it, from the
+	 * utilization history composed with that of the VM.
+	 * 
+	 * @param host the host
+	 * @param additionalVm a VM that is not on the host, or null to check the host as it is
+	 * @return true, if the host would be over utilized
+	 */
+	@Override
+	protected boolean isHostOverUtilized(PowerHost host, Vm additionalVm) {
 		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
-		double[] utilizationHistory = _host.getUtilizationHistory();
+		PowerVm _additionalVm = (PowerVm) additionalVm;
 		int length = 10; // we use 10 to make the regression responsive enough to latest values
-		if (utilizationHistory.length < length) {
-			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
+		if (_host.getUtilizationHistoryLength(_additionalVm) < length) {
+			return getFallbackVmAllocationPolicy().isHostOverUtilized(host, additionalVm);
 		}
 		double[] utilizationHistoryReversed = new double[length];
 		for (int i = 0; i < length; i++) {
-			utilizationHistoryReversed[i] = utilizationHistory[length - i - 1];
+			utilizationHistoryReversed[i] = _host.getUtilizationHistoryValue(_additionalVm, length - i - 1);
 		}
 		double[] estimates = null;
 		try {
 			estimates = getParameterEstimates(utilizationHistoryReversed);
 		} catch (IllegalArgumentException e) {
-			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
+			return getFallbackVmAllocationPolicy().isHostOverUtilized(host, additionalVm);
 		}
-		double migrationIntervals = Math.ceil(getMaximumVmMigrationTime(_host) / getSchedulingInterval());
+		double migrationIntervals = Math.ceil(getMaximumVmMigrationTime(_host, additionalVm)
+				/ getSchedulingInterval());
 		double predictedUtilization = estimates[0] + estimates[1] * (length + migrationIntervals);
 		predictedUtilization *= getSafetyParameter();
 
@@ -131,6 +145,17 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	 * @return the maximum vm migration time
 	 */
 	protected double getMaximumVmMigrationTime(PowerHost host) {
+		return getMaximumVmMigrationTime(host, null);
+	}
+
+	/**
+	 * Gets the maximum vm migration time with an additional VM allocated to the host.
+	 * 
+	 * @param host the host
+	 * @param additionalVm a VM that is not on the host, or null for the host as it is
+	 * @return the maximum vm migration time
+	 */
+	protected double getMaximumVmMigrationTime(PowerHost host, Vm additionalVm) {
 		int maxRam = Integer.MIN_VALUE;
 		for (Vm vm : host.getVmList()) {
 			int ram = vm.getRam();
@@ -138,6 +163,9 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 				maxRam = ram;
 			}
 		}
+		if (additionalVm != null && additionalVm.getRam() > maxRam) {
+			maxRam = additionalVm.getRam();
+		}
 		return maxRam / ((double) host.getBw() / (2 * 8000));
 	}
 
@@ -55,11 +55,26 @@ public class PowerVmAllocationPolicyMigrationStaticThreshold extends PowerVmAllo
 	 */
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
+		return isHostOverUtilized(host, null);
+	}
+
+	/**
+	 * Checks if a host would be over utilized with an additional VM allocated to it.
+	 * 
+	 * @param host the host
+	 * @param additionalVm a VM that is not on the host, or null to check the host as it is
+	 * @return true, if the host would be over utilized
+	 */
+	@Override
+	protected boolean isHostOverUtilized(PowerHost host, Vm additionalVm) {
 		addHistoryEntry(host, getUtilizationThreshold());
 		double totalRequestedMips = 0;
 		for (Vm vm : host.getVmList()) {
 			totalRequestedMips += vm.getCurrentRequestedTotalMips();
 		}
+		if (additionalVm != null) {
+			totalRequestedMips += additionalVm.getCurrentRequestedTotalMips();
+		}
 		double utilization = totalRequestedMips / host.getTotalMips();
 		return utilization > getUtilizationThreshold();
 	}
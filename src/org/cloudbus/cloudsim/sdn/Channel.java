@@ -8,8 +8,13 @@
 
 package org.cloudbus.cloudsim.sdn;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -35,8 +40,32 @@ public class Channel {
 	private double allocatedBandwidth; // Actual bandwidth allocated to the channel
 	private double previousTime;
 
-	private LinkedList<Transmission> inTransmission;
-	private LinkedList<Transmission> completed;
+	// All transmissions share the bandwidth equally and so progress by the same amount: they are
+	// ordered by the amount left to transmit, which is their finish amount minus processedAmount.
+	private PriorityQueue<Transmission> inTransmission;
+	private ArrayList<Transmission> completed;
+	private long processedAmount;	// Amount processed per transmission since the channel was created
+	private long transmissionCount;
+	
+	// Next finish time and position in the NOS queue of channels, when only changed channels are updated
+	double finishTime = Double.POSITIVE_INFINITY;
+	int queueIndex = -1;
+	
+	private static final Comparator<Transmission> FINISH_ORDER = new Comparator<Transmission>() {
+		@Override
+		public int compare(Transmission t1, Transmission t2) {
+			if(t1.finishAmount != t2.finishAmount)
+				return t1.finishAmount < t2.finishAmount ? -1 : 1;
+			return t1.sequence < t2.sequence ? -1 : (t1.sequence == t2.sequence ? 0 : 1);
+		}
+	};
+	
+	private static final Comparator<Transmission> ADDITION_ORDER = new Comparator<Transmission>() {
+		@Override
+		public int compare(Transmission t1, Transmission t2) {
+			return t1.sequence < t2.sequence ? -1 : (t1.sequence == t2.sequence ? 0 : 1);
+		}
+	};
 	
 	private final int srcId;
 	private final int dstId;
@@ -51,8 +80,8 @@ public class Channel {
 		this.links = links;
 		this.allocatedBandwidth = bandwidth;
 		this.requestedBandwidth = bandwidth;
-		this.inTransmission = new LinkedList<Transmission>();
-		this.completed = new LinkedList<Transmission>();
+		this.inTransmission = new PriorityQueue<Transmission>(11, FINISH_ORDER);
+		this.completed = new ArrayList<Transmission>();
 	}
 	
 	public void initialize() {
@@ -207,28 +236,33 @@ public class Channel {
 		//update the amount of transmission 
 		long processedThisRound =  Math.round(timeSpent*getAllocatedBandwidthPerTransmission());
 		
-		//update transmission table; remove finished transmission
-		LinkedList<Transmission> completedTransmissions = new LinkedList<Transmission>();
-		for(Transmission transmission: inTransmission){
-			transmission.addCompletedLength(processedThisRound);
-			
-			if (transmission.isCompleted()){
-				completedTransmissions.add(transmission);
-				this.completed.add(transmission);
-			}	
+		//update transmission table; remove finished transmission, in the order they were added
+		processedAmount += processedThisRound;
+		int completedBefore = this.completed.size();
+		while(!inTransmission.isEmpty() && getRemainingAmount(inTransmission.peek()) <= 0) {
+			Transmission transmission = inTransmission.poll();
+			transmission.addCompletedLength(transmission.getSize());
+			this.completed.add(transmission);
 		}
+		int completedThisRound = this.completed.size() - completedBefore;
+		if(completedThisRound > 1)
+			Collections.sort(this.completed.subList(completedBefore, this.completed.size()), ADDITION_ORDER);
 		
-		this.inTransmission.removeAll(completedTransmissions);
 		previousTime=currentTime;
 
 		Log.printLine(CloudSim.clock() + ": Channel.updatePackageProcessing() ("+this.toString()+"):Time spent:"+timeSpent+
 				", BW/host:"+getAllocatedBandwidthPerTransmission()+", Processed:"+processedThisRound);
 		
-		if(completedTransmissions.isEmpty())
+		if(completedThisRound == 0)
 			return false;	// Nothing changed
 		return true;
 	}
 	
+	// Amount left to transmit; the size of a transmission is only updated when it completes 
+	private long getRemainingAmount(Transmission t) {
+		return t.finishAmount - processedAmount;
+	}
+	
 	// Estimated finish time of one transmission
 	private double estimateFinishTime(Transmission t) {
 		double bw = getAllocatedBandwidthPerTransmission();
@@ -237,7 +271,7 @@ public class Channel {
 			return Double.POSITIVE_INFINITY;
 		}
 		
-		double eft= (double)t.getSize()/bw;
+		double eft= (double)getRemainingAmount(t)/bw;
 		return eft;
 	}
 	
@@ -246,10 +280,9 @@ public class Channel {
 		//now, predicts delay to next transmission completion
 		double delay = Double.POSITIVE_INFINITY;
 
-		for (Transmission transmission:this.inTransmission){
-			double eft = estimateFinishTime(transmission);
-			if (eft<delay)
-				delay = eft;
+		if(!this.inTransmission.isEmpty()) {
+			// all transmissions progress at the same rate: the first one finishes first
+			delay = estimateFinishTime(this.inTransmission.peek());
 		}
 		
 		if(delay == Double.POSITIVE_INFINITY) {
@@ -279,6 +312,8 @@ public class Channel {
 		if (this.inTransmission.isEmpty()) 
 			previousTime=CloudSim.clock();
 		
+		transmission.finishAmount = transmission.getSize() + processedAmount;
+		transmission.sequence = transmissionCount++;
 		this.inTransmission.add(transmission);
 		double eft = estimateFinishTime(transmission);
 
@@ -291,7 +326,8 @@ public class Channel {
 	 * 
 	 */
 	public void removeTransmission(Transmission transmission){
-		inTransmission.remove(transmission);
+		if(inTransmission.remove(transmission))
+			transmission.addCompletedLength(transmission.getSize() - getRemainingAmount(transmission));
 	}
 
 	/**
@@ -303,12 +339,36 @@ public class Channel {
 
 		if (!completed.isEmpty()){
 			returnList.addAll(completed);
+			completed.clear();
 		}
-		completed.removeAll(returnList);
 
 		return returnList;
 	}
 	
+	boolean hasArrivedPackages() {
+		return !completed.isEmpty();
+	}
+	
+	/**
+	 * Adds the channels going through a link of this channel in the same direction, dedicated and
+	 * default ones separately.
+	 * @param dedicated channels with a flow id, or null to skip them
+	 * @param shared default channels
+	 */
+	void collectChannelsAlongLinks(Collection<Channel> dedicated, Collection<Channel> shared) {
+		for(int i=0; i<nodes.size()-1; i++) {
+			for(Channel ch: links.get(i).getChannels(nodes.get(i))) {
+				if(ch.getChId() != -1) {
+					if(dedicated != null)
+						dedicated.add(ch);
+				}
+				else {
+					shared.add(ch);
+				}
+			}
+		}
+	}
+	
 	public int getChId() {
 		return chId;
 	}
@@ -0,0 +1,110 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2015, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of channels ordered by their next finish time, used by the NOS
+ * to find the channels to update without visiting all of them. Each channel keeps its
+ * position in the heap, so that its finish time can be changed or the channel removed
+ * in O(log n).
+ *
+ * @since CloudSimSDN 1.0
+ */
+class ChannelFinishQueue {
+	private Channel[] heap = new Channel[16];
+	private int size;
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public Channel peek() {
+		return size == 0 ? null : heap[0];
+	}
+
+	public Channel poll() {
+		if(size == 0)
+			return null;
+		Channel first = heap[0];
+		removeAt(0);
+		return first;
+	}
+
+	/**
+	 * Adds a channel, or moves it to the position of its current finish time.
+	 */
+	public void update(Channel ch) {
+		if(ch.queueIndex < 0) {
+			if(size == heap.length)
+				heap = Arrays.copyOf(heap, 2 * heap.length);
+			ch.queueIndex = size;
+			heap[size++] = ch;
+			siftUp(ch.queueIndex);
+		}
+		else {
+			siftDown(siftUp(ch.queueIndex));
+		}
+	}
+
+	public boolean remove(Channel ch) {
+		if(ch.queueIndex < 0)
+			return false;
+		removeAt(ch.queueIndex);
+		return true;
+	}
+
+	private void removeAt(int index) {
+		Channel removed = heap[index];
+		Channel last = heap[--size];
+		heap[size] = null;
+		removed.queueIndex = -1;
+		if(index < size) {
+			heap[index] = last;
+			last.queueIndex = index;
+			siftDown(siftUp(index));
+		}
+	}
+
+	private int siftUp(int index) {
+		Channel ch = heap[index];
+		while(index > 0) {
+			int parent = (index - 1) >>> 1;
+			if(heap[parent].finishTime <= ch.finishTime)
+				break;
+			heap[index] = heap[parent];
+			heap[index].queueIndex = index;
+			index = parent;
+		}
+		heap[index] = ch;
+		ch.queueIndex = index;
+		return index;
+	}
+
+	private void siftDown(int index) {
+		Channel ch = heap[index];
+		int child;
+		while((child = 2 * index + 1) < size) {
+			if(child + 1 < size && heap[child + 1].finishTime < heap[child].finishTime)
+				child++;
+			if(ch.finishTime <= heap[child].finishTime)
+				break;
+			heap[index] = heap[child];
+			heap[index].queueIndex = index;
+			index = child;
+		}
+		heap[index] = ch;
+		ch.queueIndex = index;
+	}
+}
@@ -16,9 +16,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.Host;
@@ -30,7 +32,6 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
-import org.cloudbus.cloudsim.core.predicates.PredicateType;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
@@ -58,6 +59,12 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	Hashtable<Package,Node> pkgTable;
 	
 	Hashtable<String, Channel> channelTable;
+	
+	// The pending SDN_INTERNAL_PACKAGE_PROCESS event, cancelled when the next one is sent
+	private SimEvent internalEvent;
+	
+	// Channels by next finish time, when only the channels that change are updated
+	private final ChannelFinishQueue finishQueue = new ChannelFinishQueue();
 
 	List<Host> hosts;
 	protected List<SDNHost> sdnhosts;
@@ -80,6 +87,11 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	public static int resolutionPlaces = 5;
 	public static int timeUnit = 1;	// 1: sec, 1000: msec
 	
+	// Update only the channels whose transmissions or bandwidth change on an event, finding the next
+	// one to finish in a heap, instead of updating every channel on every event. The amount transmitted
+	// is then rounded over longer periods, which changes the results slightly.
+	public static boolean updateChangedChannelsOnly = false;
+	
 
 
 
@@ -177,7 +189,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			return;
 		}
 		
-		updatePackageProcessing();
+		if(!updateChangedChannelsOnly)
+			updatePackageProcessing();
 		
 		pkgTable.put(pkg,sender);
 		
@@ -192,8 +205,13 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			}
 			addChannel(src, dst, flowId, channel);
 		}
+		else if(updateChangedChannelsOnly) {
+			channel.updatePackageProcessing();
+		}
 		
 		double eft = channel.addTransmission(new Transmission(pkg));
+		if(updateChangedChannelsOnly)
+			updateFinishTime(channel);
 		Log.printLine(CloudSim.clock() + ": " + getName() + ".addPackageToChannel ("+channel
 				+"): Transmission added:" + 
 				NetworkOperatingSystem.debugVmIdName.get(src) + "->"+
@@ -204,20 +222,30 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	
 
 	private void internalPackageProcess() {
+		if(updateChangedChannelsOnly) {
+			updateFinishedChannels();
+			sendInternalEvent();
+			return;
+		}
+		
 		if(updatePackageProcessing()) {
 			sendInternalEvent();
 		}
 	}
 	
 	private void sendInternalEvent() {
-		CloudSim.cancelAll(getId(), new PredicateType(Constants.SDN_INTERNAL_PACKAGE_PROCESS));
+		if(internalEvent != null) {
+			cancelEvent(internalEvent);
+			internalEvent = null;
+		}
 		
 		if(channelTable.size() != 0) {
 			// More to process. Send event again
-			double delay = this.nextFinishTime();
+			double delay = updateChangedChannelsOnly ?
+					this.nextQueuedFinishTime() : this.nextFinishTime();
 			Log.printLine(CloudSim.clock() + ": " + getName() + ".sendInternalEvent(): next finish time: "+ delay);
 			
-			send(this.getId(), delay, Constants.SDN_INTERNAL_PACKAGE_PROCESS);
+			internalEvent = send(this.getId(), delay, Constants.SDN_INTERNAL_PACKAGE_PROCESS);
 		}
 	}
 	
@@ -238,6 +266,52 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		
 	}
 	
+	private double nextQueuedFinishTime() {
+		double earliestFinishTime = finishQueue.isEmpty() ? 
+				Double.POSITIVE_INFINITY : finishQueue.peek().finishTime;
+		
+		if(earliestFinishTime == Double.POSITIVE_INFINITY) {
+			throw new IllegalArgumentException("NOS.nextFinishTime(): next finish time is infinite!");
+		}
+		return Math.max(earliestFinishTime - CloudSim.clock(), 0);
+	}
+	
+	// Brings a channel up to date and sets its next finish time in the queue.
+	private void updateFinishTime(Channel ch) {
+		ch.updatePackageProcessing();
+		if(ch.hasArrivedPackages())
+			ch.finishTime = CloudSim.clock();	// deliver them with the next event
+		else
+			ch.finishTime = CloudSim.clock() + ch.nextFinishTime();
+		finishQueue.update(ch);
+	}
+	
+	// Updates the channels whose finish time has come, forwards their completed packages and
+	// removes the channels left without transmissions.
+	private void updateFinishedChannels() {
+		if(finishQueue.isEmpty())
+			return;
+		
+		double dueTime = Math.max(CloudSim.clock(), finishQueue.peek().finishTime);
+		List<Channel> finishedChannels = new ArrayList<Channel>();
+		while(!finishQueue.isEmpty() && finishQueue.peek().finishTime <= dueTime) {
+			Channel ch = finishQueue.poll();
+			ch.updatePackageProcessing();
+			finishedChannels.add(ch);
+		}
+		
+		processCompletePackages(finishedChannels);
+		
+		for(Channel ch:finishedChannels) {
+			if(ch.getActiveTransmissionNum() == 0) {
+				removeChannel(getKey(ch.getSrcId(), ch.getDstId(), ch.getChId()));
+			}
+			else if(ch.queueIndex < 0) {
+				updateFinishTime(ch);
+			}
+		}
+	}
+	
 	private boolean updatePackageProcessing() {
 		boolean needSendEvent = false;
 		
@@ -296,17 +370,51 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		//System.err.println("NOS.addChannel:"+getKey(src, dst, chId));
 		this.channelTable.put(getKey(src, dst, chId), ch);
 		ch.initialize();
-		adjustAllChannels();
+		if(updateChangedChannelsOnly) {
+			adjustChannelsAlongLinks(ch);
+			updateFinishTime(ch);
+		}
+		else {
+			adjustAllChannels();
+		}
 	}
 	
 	private Channel removeChannel(String key) {
 		//System.err.println("NOS.removeChannel:"+key);
 		Channel ch = this.channelTable.remove(key);
 		ch.terminate();
-		adjustAllChannels();
+		if(updateChangedChannelsOnly) {
+			finishQueue.remove(ch);
+			adjustChannelsAlongLinks(ch);
+		}
+		else {
+			adjustAllChannels();
+		}
 		return ch;
 	}
 	
+	// Adjusts the bandwidth of the channels affected by adding or removing a channel: the channels
+	// sharing a link with it, then the default channels sharing a link with a dedicated channel whose
+	// bandwidth changed. The bandwidth of the other channels does not depend on the changed channel.
+	private void adjustChannelsAlongLinks(Channel changed) {
+		Set<Channel> dedicated = new LinkedHashSet<Channel>();
+		Set<Channel> shared = new LinkedHashSet<Channel>();
+		changed.collectChannelsAlongLinks(dedicated, shared);
+		
+		for(Channel ch:dedicated) {
+			if(ch.adjustDedicatedBandwidthAlongLink()) {
+				ch.collectChannelsAlongLinks(null, shared);
+				updateFinishTime(ch);
+			}
+		}
+		
+		for(Channel ch:shared) {
+			if(ch.adjustSharedBandwidthAlongLink()) {
+				updateFinishTime(ch);
+			}
+		}
+	}
+	
 	private void adjustAllChannels() {
 		for(Channel ch:this.channelTable.values()) {
 			if(ch.adjustDedicatedBandwidthAlongLink()) {
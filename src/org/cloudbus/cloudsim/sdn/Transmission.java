@@ -24,6 +24,11 @@ public class Transmission implements Activity {
 	Package pkg;
 	long amountToBeProcessed;
 	
+	// Set by the channel: the amount the channel will have processed per transmission when this
+	// transmission completes, and the order in which the transmission was added to the channel
+	long finishAmount;
+	long sequence;
+	
 	public Transmission(int origin, int destination, long size, int flowId, Request payload) {
 		this.pkg = new Package(origin, destination, size, flowId, payload);
 		this.amountToBeProcessed=pkg.getSize();
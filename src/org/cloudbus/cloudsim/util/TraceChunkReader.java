@@ -0,0 +1,179 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * This class reads a trace file as a sequence of chunks of whole lines, so that the chunks can be
+ * parsed independently of each other. A plain text file is memory-mapped by windows and its chunks
+ * are slices of the mapping, without any copy; a gz file or the entries of a zip file are
+ * decompressed into a new array for every chunk.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see WorkloadFileReader
+ */
+class TraceChunkReader implements Closeable {
+
+	/** Size from which a chunk ends at the end of the current line. */
+	static final int CHUNK_SIZE = 1 << 20;
+
+	/** Size of the windows in which a plain text file is mapped. */
+	private static final long MAP_SIZE = 1L << 28;
+
+	/** The mapped file, or null for a compressed file. */
+	private RandomAccessFile mappedFile;
+	private long fileSize;
+	private long mapPosition;
+	private MappedByteBuffer map;
+
+	/** The zip file and its entries, or null for a gz or plain text file. */
+	private ZipFile zipFile;
+	private Enumeration<? extends ZipEntry> zipEntries;
+
+	/** The decompressed stream being read, and the start of a line read past the last chunk. */
+	private InputStream input;
+	private byte[] pending = new byte[0];
+	private int pendingLength;
+
+	/**
+	 * @param file a trace file in one of the following format: <i>ASCII text, zip, gz.</i>
+	 * @throws IOException if the file can not be opened
+	 */
+	TraceChunkReader(File file) throws IOException {
+		if (file.getName().endsWith(".gz")) {
+			input = new GZIPInputStream(new FileInputStream(file), 1 << 16);
+		} else if (file.getName().endsWith(".zip")) {
+			zipFile = new ZipFile(file);
+			zipEntries = zipFile.entries();
+		} else {
+			mappedFile = new RandomAccessFile(file, "r");
+			fileSize = mappedFile.length();
+		}
+	}
+
+	/**
+	 * Reads the next chunk of lines, the last line of a chunk possibly lacking its line break.
+	 *
+	 * @return a buffer whose remaining bytes are the chunk, or null at the end of the file
+	 * @throws IOException if the file can not be read
+	 */
+	ByteBuffer next() throws IOException {
+		return mappedFile != null ? nextMapped() : nextDecompressed();
+	}
+
+	private ByteBuffer nextMapped() throws IOException {
+		while (true) {
+			if (map == null || !map.hasRemaining()) {
+				if (mapPosition >= fileSize) {
+					return null;
+				}
+				mapWindow(mapPosition);
+			}
+
+			int start = map.position();
+			int end = Math.min(start + CHUNK_SIZE, map.limit());
+			while (end < map.limit() && map.get(end - 1) != '\n') {
+				end++;
+			}
+			if (end == map.limit() && map.get(end - 1) != '\n' && mapPosition < fileSize) {
+				// the last line of the window continues in the next one
+				if (start == 0) {
+					throw new IOException("Line longer than " + MAP_SIZE + " bytes at offset "
+							+ (mapPosition - map.limit()));
+				}
+				mapWindow(mapPosition - map.limit() + start);
+				continue;
+			}
+
+			ByteBuffer chunk = map.duplicate();
+			chunk.limit(end);
+			map.position(end);
+			return chunk;
+		}
+	}
+
+	private void mapWindow(long position) throws IOException {
+		long size = Math.min(MAP_SIZE, fileSize - position);
+		map = mappedFile.getChannel().map(FileChannel.MapMode.READ_ONLY, position, size);
+		mapPosition = position + size;
+	}
+
+	private ByteBuffer nextDecompressed() throws IOException {
+		while (true) {
+			if (input == null) {
+				if (zipEntries == null || !zipEntries.hasMoreElements()) {
+					return null;
+				}
+				input = zipFile.getInputStream(zipEntries.nextElement());
+			}
+
+			byte[] buffer = Arrays.copyOf(pending, Math.max(CHUNK_SIZE, 2 * pendingLength));
+			int length = pendingLength;
+			int read = 0;
+			while (length < buffer.length && (read = input.read(buffer, length, buffer.length - length)) >= 0) {
+				length += read;
+			}
+
+			if (read < 0) {
+				// the lines of an entry do not continue in the next one
+				input.close();
+				input = null;
+				pendingLength = 0;
+				if (length == 0) {
+					continue;
+				}
+				return ByteBuffer.wrap(buffer, 0, length);
+			}
+
+			int end = length;
+			while (end > 0 && buffer[end - 1] != '\n') {
+				end--;
+			}
+			if (end == 0) {
+				// a single line fills the buffer
+				pending = buffer;
+				pendingLength = length;
+				continue;
+			}
+			pendingLength = length - end;
+			pending = Arrays.copyOfRange(buffer, end, end + pendingLength);
+			return ByteBuffer.wrap(buffer, 0, end);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (input != null) {
+				input.close();
+			}
+		} finally {
+			if (zipFile != null) {
+				zipFile.close();
+			}
+			if (mappedFile != null) {
+				mappedFile.close();
+			}
+		}
+	}
+}
@@ -8,17 +8,23 @@
 
 package org.cloudbus.cloudsim.util;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.UtilizationModel;
@@ -34,8 +40,10 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  * <li>If you need to load multiple trace files, then you need to create multiple instances of this
  * class <tt>each with a unique 
  *      	 entity name</tt>.
- * <li>If size of the trace file is huge or contains lots of traces please increase the JVM heap
- * size accordingly by using <tt>java -Xmx</tt> option when running the simulation.
+ * <li>If size of the trace file is huge or contains lots of traces, read its jobs one at a time
+ * with {@link #openStream()}, e.g. through a {@link org.cloudbus.cloudsim.WorkloadStreamBroker},
+ * instead of generating the whole list of jobs, or increase the JVM heap size accordingly by using
+ * <tt>java -Xmx</tt> option when running the simulation.
  * <li>The default job file size for sending to and receiving from a resource is
  * {@link gridsim.net.Link#DEFAULT_MTU}. However, you can specify the file size by using
  * {@link #setGridletFileSize(int)}.
@@ -53,6 +61,10 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  * <li> {@link #setComment(String)}
  * <li> {@link #setField(int, int, int, int, int)}
  * </ul>
+ * <p>
+ * A plain text trace is memory-mapped, and its fields are parsed in place without creating any
+ * string. The trace can also be parsed by several threads, see {@link #setParallelism(int, int)},
+ * while another one reads it, which mostly helps with the decompression of gz and zip traces.
  * 
  * @author Anthony Sulistio and Marcos Dias de Assuncao
  * @since 5.0
@@ -96,7 +108,9 @@ public class WorkloadFileReader implements WorkloadModel {
 	// comment
 	private static final int IRRELEVANT = -1; // irrelevant number
 
-	private String[] fieldArray = null; // a temp array storing all the fields
+	private int parallelism = 0; // number of threads parsing the trace
+
+	private int lookahead = 4; // max number of chunks read ahead of the jobs
 
 	/**
 	 * Create a new {@link WorkloadFileReader} object.
@@ -139,25 +153,62 @@ public class WorkloadFileReader implements WorkloadModel {
 		if (jobs == null) {
 			jobs = new ArrayList<Cloudlet>();
 
-			// create a temp array
-			fieldArray = new String[MAX_FIELD];
-
+			WorkloadStream stream = null;
 			try {
-				if (file.getName().endsWith(".gz")) {
-					readGZIPFile(file);
-				} else if (file.getName().endsWith(".zip")) {
-					readZipFile(file);
-				} else {
-					readFile(file);
+				stream = openStream();
+				while (stream.hasNext()) {
+					jobs.add(stream.next());
 				}
-			} catch (final FileNotFoundException e) {
 			} catch (final IOException e) {
+			} catch (final IllegalStateException e) {
+			} finally {
+				try {
+					if (stream != null) {
+						stream.close();
+					}
+				} catch (final IOException e) {
+				}
 			}
 		}
 
 		return jobs;
 	}
 
+	/**
+	 * Opens the trace to read its jobs one at a time, in the order of the file. The trace is read
+	 * by chunks, and with a parallelism set, at most <tt>lookahead</tt> chunks are read ahead of
+	 * the jobs returned, so that the memory used does not depend on the size of the trace.
+	 * 
+	 * @return a stream over the jobs of the trace, which must be closed
+	 * @throws IOException if the trace can not be opened
+	 */
+	public WorkloadStream openStream() throws IOException {
+		return new TraceStream();
+	}
+
+	/**
+	 * Sets the number of threads parsing the trace. A separate thread then reads and decompresses
+	 * the trace ahead of the jobs read from the stream.
+	 * 
+	 * @param parallelism number of parsing threads, or 0 to parse the trace in the thread reading
+	 *        the jobs
+	 * @param lookahead max number of chunks of the trace read ahead of the jobs
+	 * @throws IllegalArgumentException if the parallelism is negative or the lookahead is not
+	 *         positive
+	 * @pre parallelism >= 0
+	 * @pre lookahead > 0
+	 * @post $none
+	 */
+	public void setParallelism(final int parallelism, final int lookahead) {
+		if (parallelism < 0) {
+			throw new IllegalArgumentException("Invalid number of parsing threads.");
+		} else if (lookahead <= 0) {
+			throw new IllegalArgumentException("Invalid number of chunks read ahead.");
+		}
+		this.parallelism = parallelism;
+		this.lookahead = lookahead;
+	}
+
 	/**
 	 * Identifies the start of a comment line.
 	 * 
@@ -249,80 +300,137 @@ public class WorkloadFileReader implements WorkloadModel {
 	// ------------------- PRIVATE METHODS -------------------
 
 	/**
-	 * Creates a Gridlet with the given information and adds to the list
+	 * Creates a Gridlet with the given information
 	 * 
 	 * @param id a Gridlet ID
-	 * @param submitTime Gridlet's submit time
 	 * @param runTime Gridlet's run time
 	 * @param numProc number of processors
-	 * @param reqRunTime user estimated run time
-	 * @param userID user id
-	 * @param groupID user's group id
+	 * @param utilizationModel utilization model of the Gridlet
+	 * @return the Gridlet
 	 * @pre id >= 0
-	 * @pre submitTime >= 0
 	 * @pre runTime >= 0
 	 * @pre numProc > 0
 	 * @post $none
 	 */
-	private void createJob(
+	private Cloudlet createJob(
 			final int id,
-			final long submitTime,
 			final int runTime,
 			final int numProc,
-			final int reqRunTime,
-			final int userID,
-			final int groupID) {
+			final UtilizationModel utilizationModel) {
 		// create the cloudlet
 		final int len = runTime * rating;
-		UtilizationModel utilizationModel = new UtilizationModelFull();
-		final Cloudlet wgl = new Cloudlet(
-				id,
-				len,
-				numProc,
-				0,
-				0,
-				utilizationModel,
-				utilizationModel,
-				utilizationModel);
-		jobs.add(wgl);
+		return new Cloudlet(id, len, numProc, 0, 0, utilizationModel, utilizationModel, utilizationModel);
 	}
 
 	/**
-	 * Extracts relevant information from a given array
+	 * Parses the lines of a chunk of the trace.
 	 * 
-	 * @param array an array of String
-	 * @param line a line number
-	 * @pre array != null
-	 * @pre line > 0
+	 * @param chunk a buffer whose remaining bytes are whole lines
+	 * @param comment the bytes denoting the start of a comment line
+	 * @return the jobs of the chunk
 	 */
-	private void extractField(final String[] array, final int line) {
-		try {
-			Integer obj = null;
+	private ParsedChunk parseChunk(final ByteBuffer chunk, final byte[] comment) {
+		final int[] starts = new int[MAX_FIELD];
+		final int[] ends = new int[MAX_FIELD];
+		final ParsedChunk jobs = new ParsedChunk(chunk.remaining() / 64 + 16);
+
+		int position = chunk.position();
+		final int limit = chunk.limit();
+		while (position < limit) {
+			int lineEnd = position;
+			while (lineEnd < limit && chunk.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			parseValue(chunk, position, lineEnd, comment, starts, ends, jobs);
+			position = lineEnd + 1;
+		}
+		return jobs;
+	}
 
-			// get the job number
+	/**
+	 * Breaks a line into many fields, keeping the bounds of every field.
+	 * 
+	 * @param chunk the chunk holding the line
+	 * @param start the position of the line
+	 * @param end the position of the end of the line
+	 * @param comment the bytes denoting the start of a comment line
+	 * @param starts receives the position of every field
+	 * @param ends receives the end of every field
+	 * @param jobs receives the job of the line
+	 */
+	private void parseValue(
+			final ByteBuffer chunk,
+			final int start,
+			final int end,
+			final byte[] comment,
+			final int[] starts,
+			final int[] ends,
+			final ParsedChunk jobs) {
+		// skip a comment line
+		if (end - start >= comment.length) {
+			int i = 0;
+			while (i < comment.length && chunk.get(start + i) == comment[i]) {
+				i++;
+			}
+			if (i == comment.length) {
+				return;
+			}
+		}
+
+		int index = 0; // the index of a field
+		int position = start;
+		while (position < end) {
+			// skip the spaces before a field
+			while (position < end && isSpace(chunk.get(position))) {
+				position++;
+			}
+			if (position == end) {
+				break;
+			}
+			if (index == MAX_FIELD) {
+				return;
+			}
+			starts[index] = position;
+			while (position < end && !isSpace(chunk.get(position))) {
+				position++;
+			}
+			ends[index] = position;
+			index++;
+		}
+
+		if (index == MAX_FIELD) {
+			extractField(chunk, starts, ends, jobs);
+		}
+	}
+
+	/**
+	 * Extracts relevant information from the fields of a line
+	 * 
+	 * @param chunk the chunk holding the line
+	 * @param starts the position of every field
+	 * @param ends the end of every field
+	 * @param jobs receives the job of the line
+	 */
+	private void extractField(final ByteBuffer chunk, final int[] starts, final int[] ends, final ParsedChunk jobs) {
+		try {
+			// get the job number, which is the position of the job when irrelevant
 			int id = 0;
-			if (JOB_NUM == IRRELEVANT) {
-				id = jobs.size() + 1;
-			} else {
-				obj = new Integer(array[JOB_NUM].trim());
-				id = obj.intValue();
+			if (JOB_NUM != IRRELEVANT) {
+				id = parseInt(chunk, starts[JOB_NUM], ends[JOB_NUM]);
 			}
 
 			// get the submit time
-			final Long l = new Long(array[SUBMIT_TIME].trim());
-			final long submitTime = l.intValue();
+			final long submitTime = (int) parseLong(chunk, starts[SUBMIT_TIME], ends[SUBMIT_TIME]);
 
 			// get the user estimated run time
-			obj = new Integer(array[REQ_RUN_TIME].trim());
-			final int reqRunTime = obj.intValue();
+			parseInt(chunk, starts[REQ_RUN_TIME], ends[REQ_RUN_TIME]);
 
 			// if the required run time field is ignored, then use
 			// the actual run time
-			obj = new Integer(array[RUN_TIME].trim());
-			int runTime = obj.intValue();
+			int runTime = parseInt(chunk, starts[RUN_TIME], ends[RUN_TIME]);
 
-			final int userID = new Integer(array[USER_ID].trim()).intValue();
-			final int groupID = new Integer(array[GROUP_ID].trim()).intValue();
+			parseInt(chunk, starts[USER_ID], ends[USER_ID]);
+			parseInt(chunk, starts[GROUP_ID], ends[GROUP_ID]);
 
 			// according to the SWF manual, runtime of 0 is possible due
 			// to rounding down. E.g. runtime is 0.4 seconds -> runtime = 0
@@ -331,165 +439,270 @@ public class WorkloadFileReader implements WorkloadModel {
 			}
 
 			// get the number of allocated processors
-			obj = new Integer(array[REQ_NUM_PROC].trim());
-			int numProc = obj.intValue();
+			int numProc = parseInt(chunk, starts[REQ_NUM_PROC], ends[REQ_NUM_PROC]);
 
 			// if the required num of allocated processors field is ignored
 			// or zero, then use the actual field
 			if (numProc == IRRELEVANT || numProc == 0) {
-				obj = new Integer(array[NUM_PROC].trim());
-				numProc = obj.intValue();
+				numProc = parseInt(chunk, starts[NUM_PROC], ends[NUM_PROC]);
 			}
 
 			// finally, check if the num of PEs required is valid or not
 			if (numProc <= 0) {
 				numProc = 1;
 			}
-			createJob(id, submitTime, runTime, numProc, reqRunTime, userID, groupID);
-		} catch (final Exception e) {
+			jobs.add(id, submitTime, runTime, numProc);
+		} catch (final RuntimeException e) {
 
 		}
 	}
 
+	private static boolean isSpace(final byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+
 	/**
-	 * Breaks a line of string into many fields.
+	 * Parses a field as a decimal integer, as {@link Integer#parseInt(String)} does.
 	 * 
-	 * @param line a line of string
-	 * @param lineNum a line number
-	 * @pre line != null
-	 * @pre lineNum > 0
-	 * @post $none
+	 * @throws NumberFormatException if the field is not an integer
 	 */
-	private void parseValue(final String line, final int lineNum) {
-		// skip a comment line
-		if (line.startsWith(COMMENT)) {
-			return;
+	private static int parseInt(final ByteBuffer chunk, final int start, final int end) {
+		final long value = parseLong(chunk, start, end);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw new NumberFormatException("Integer out of range");
 		}
+		return (int) value;
+	}
 
-		final String[] sp = line.split("\\s+"); // split the fields based on a
-		// space
-		int len = 0; // length of a string
-		int index = 0; // the index of an array
-
-		// check for each field in the array
-		for (final String elem : sp) {
-			len = elem.length(); // get the length of a string
+	/**
+	 * Parses a field as a decimal long, as {@link Long#parseLong(String)} does.
+	 * 
+	 * @throws NumberFormatException if the field is not a long
+	 */
+	private static long parseLong(final ByteBuffer chunk, final int start, final int end) {
+		int position = start;
+		final boolean negative = position < end && chunk.get(position) == '-';
+		if (position < end && (negative || chunk.get(position) == '+')) {
+			position++;
+		}
+		if (position == end) {
+			throw new NumberFormatException("Empty number");
+		}
 
-			// if it is empty then ignore
-			if (len == 0) {
-				continue;
+		// accumulate negatively, as the range of long is larger on that side
+		long value = 0;
+		for (; position < end; position++) {
+			final int digit = chunk.get(position) - '0';
+			if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+				throw new NumberFormatException("Invalid number");
 			}
-			fieldArray[index] = elem;
-			index++;
+			value = value * 10 - digit;
 		}
-
-		if (index == MAX_FIELD) {
-			extractField(fieldArray, lineNum);
+		if (!negative) {
+			if (value == Long.MIN_VALUE) {
+				throw new NumberFormatException("Long out of range");
+			}
+			value = -value;
 		}
+		return value;
 	}
 
 	/**
-	 * Reads a text file one line at the time
-	 * 
-	 * @param fl a file name
-	 * @return <code>true</code> if successful, <code>false</code> otherwise.
-	 * @throws IOException if the there was any error reading the file
-	 * @throws FileNotFoundException if the file was not found
+	 * The jobs parsed from a chunk of the trace, by columns.
 	 */
-	private boolean readFile(final File fl) throws IOException, FileNotFoundException {
-		boolean success = false;
-		BufferedReader reader = null;
-		try {
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(fl)));
+	private static class ParsedChunk {
 
-			// read one line at the time
-			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
-				line++;
-			}
+		private int size;
 
-			reader.close();
-			success = true;
-		} finally {
-			if (reader != null) {
-				reader.close();
-			}
+		private int[] ids;
+
+		private long[] submitTimes;
+
+		private int[] runTimes;
+
+		private int[] numProcs;
+
+		ParsedChunk(final int capacity) {
+			ids = new int[capacity];
+			submitTimes = new long[capacity];
+			runTimes = new int[capacity];
+			numProcs = new int[capacity];
 		}
 
-		return success;
+		void add(final int id, final long submitTime, final int runTime, final int numProc) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, 2 * size);
+				submitTimes = Arrays.copyOf(submitTimes, 2 * size);
+				runTimes = Arrays.copyOf(runTimes, 2 * size);
+				numProcs = Arrays.copyOf(numProcs, 2 * size);
+			}
+			ids[size] = id;
+			submitTimes[size] = submitTime;
+			runTimes[size] = runTime;
+			numProcs[size] = numProc;
+			size++;
+		}
 	}
 
 	/**
-	 * Reads a gzip file one line at the time
-	 * 
-	 * @param fl a gzip file name
-	 * @return <code>true</code> if successful; <code>false</code> otherwise.
-	 * @throws IOException if the there was any error reading the file
-	 * @throws FileNotFoundException if the file was not found
+	 * Stream over the jobs of the trace. Without parallelism, the chunks of the trace are read and
+	 * parsed as the jobs are read. Otherwise, a thread reads the chunks and submits them to the
+	 * parsing threads, queueing the pending results in the order of the chunks, and blocks once
+	 * <tt>lookahead</tt> results are pending.
 	 */
-	private boolean readGZIPFile(final File fl) throws IOException, FileNotFoundException {
-		boolean success = false;
-		BufferedReader reader = null;
-		try {
-			reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(fl))));
+	private class TraceStream implements WorkloadStream {
+
+		private final TraceChunkReader chunks;
+
+		private final byte[] comment;
+
+		private final UtilizationModel utilizationModel = new UtilizationModelFull();
+
+		private final ExecutorService executor;
+
+		private final BlockingQueue<Future<ParsedChunk>> parsedChunks;
+
+		private ParsedChunk current;
 
-			// read one line at the time
-			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
-				line++;
+		private int index;
+
+		private boolean ended;
+
+		private int jobsRead;
+
+		TraceStream() throws IOException {
+			chunks = new TraceChunkReader(file);
+			comment = COMMENT.getBytes("ISO-8859-1");
+			if (parallelism > 0) {
+				executor = Executors.newFixedThreadPool(parallelism + 1, new ThreadFactory() {
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable, "WorkloadFileReader-" + file.getName());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+				parsedChunks = new ArrayBlockingQueue<Future<ParsedChunk>>(lookahead);
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						readChunks();
+					}
+				});
+			} else {
+				executor = null;
+				parsedChunks = null;
 			}
+		}
 
-			reader.close();
-			success = true;
-		} finally {
-			if (reader != null) {
-				reader.close();
+		/**
+		 * Reads the chunks of the trace and submits them to the parsing threads, ending with a
+		 * null result, or with the error met.
+		 */
+		private void readChunks() {
+			try {
+				try {
+					ByteBuffer chunk;
+					while ((chunk = chunks.next()) != null) {
+						final ByteBuffer parsedChunk = chunk;
+						parsedChunks.put(executor.submit(new Callable<ParsedChunk>() {
+
+							@Override
+							public ParsedChunk call() {
+								return parseChunk(parsedChunk, comment);
+							}
+						}));
+					}
+					parsedChunks.put(getResult(null, null));
+				} catch (final IOException e) {
+					parsedChunks.put(getResult(null, e));
+				}
+			} catch (final InterruptedException e) {
+				// the stream was closed
 			}
 		}
 
-		return success;
-	}
+		private Future<ParsedChunk> getResult(final ParsedChunk chunk, final Exception error) {
+			final FutureTask<ParsedChunk> result = new FutureTask<ParsedChunk>(new Callable<ParsedChunk>() {
 
-	/**
-	 * Reads a Zip file.
-	 * 
-	 * @param fl a zip file name
-	 * @return <code>true</code> if reading a file is successful; <code>false</code> otherwise.
-	 * @throws IOException if the there was any error reading the file
-	 */
-	private boolean readZipFile(final File fl) throws IOException {
-		boolean success = false;
-		ZipFile zipFile = null;
-		try {
-			BufferedReader reader = null;
-
-			// ZipFile offers an Enumeration of all the files in the file
-			zipFile = new ZipFile(fl);
-			final Enumeration<? extends ZipEntry> e = zipFile.entries();
-			while (e.hasMoreElements()) {
-				success = false; // reset the value again
-				final ZipEntry zipEntry = e.nextElement();
-
-				reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(zipEntry)));
-
-				// read one line at the time
-				int line = 1;
-				while (reader.ready()) {
-					parseValue(reader.readLine(), line);
-					line++;
+				@Override
+				public ParsedChunk call() throws Exception {
+					if (error != null) {
+						throw error;
+					}
+					return chunk;
 				}
+			});
+			result.run();
+			return result;
+		}
 
-				reader.close();
-				success = true;
+		private ParsedChunk nextChunk() {
+			try {
+				if (executor == null) {
+					final ByteBuffer chunk = chunks.next();
+					return chunk != null ? parseChunk(chunk, comment) : null;
+				}
+				return parsedChunks.take().get();
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			} catch (final ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
 			}
-		} finally {
-			if (zipFile != null) {
-				zipFile.close();
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!ended && (current == null || index == current.size)) {
+				current = nextChunk();
+				index = 0;
+				ended = current == null;
 			}
+			return !ended;
 		}
 
-		return success;
+		@Override
+		public long getNextSubmitTime() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return current.submitTimes[index];
+		}
+
+		@Override
+		public Cloudlet next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			jobsRead++;
+			final int id = JOB_NUM == IRRELEVANT ? jobsRead : current.ids[index];
+			final Cloudlet job = createJob(id, current.runTimes[index], current.numProcs[index], utilizationModel);
+			index++;
+			return job;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() throws IOException {
+			ended = true;
+			if (executor != null) {
+				executor.shutdownNow();
+				try {
+					executor.awaitTermination(1, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			chunks.close();
+		}
 	}
 }
@@ -0,0 +1,34 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import org.cloudbus.cloudsim.Cloudlet;
+
+/**
+ * This interface defines a workload whose jobs are read one at a time, in the order of the trace,
+ * instead of being generated as a list up front. The errors met while reading the trace are thrown
+ * by {@link #hasNext()} and {@link #next()} as an {@link IllegalStateException} wrapping the
+ * original exception. The stream must be closed once it is no longer read.
+ * 
+ * @since CloudSim Toolkit 3.0
+ * @see WorkloadFileReader#openStream()
+ * @see org.cloudbus.cloudsim.WorkloadStreamBroker
+ */
+public interface WorkloadStream extends Iterator<Cloudlet>, Closeable {
+
+	/**
+	 * @return the submit time of the job returned by the next call to {@link #next()}
+	 * @throws java.util.NoSuchElementException if there is no more job
+	 */
+	long getNextSubmitTime();
+
+}
@@ -6,12 +6,12 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.math3.util.Pair;
-import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.fog.application.selectivity.SelectivityModel;
 import org.fog.entities.Tuple;
+import org.fog.entities.TuplePool;
 import org.fog.scheduler.TupleScheduler;
-import org.fog.utils.FogUtils;
 import org.fog.utils.GeoCoverage;
+import org.fog.utils.SimulationContext;
 
 /**
  * Class represents an application in the Distributed Dataflow Model.
@@ -23,6 +23,8 @@ public class Application {
 	private String appId;
 	private int userId;
 	private GeoCoverage geoCoverage;
+	/** Context of the simulation the application belongs to. */
+	private final SimulationContext context = SimulationContext.getCurrent();
 
 	/**
 	 * List of application modules in the application
@@ -40,6 +42,13 @@ public class Application {
 	private List<AppLoop> loops;
 	
 	private Map<String, AppEdge> edgeMap;
+	
+	/**
+	 * Index from module name and incoming tuple type to the outgoing edges of the module emitting tuples for that 
+	 * type, in the order of the edges of the application. Discarded whenever modules, edges or tuple mappings are 
+	 * added through this class, and rebuilt on the next call to getResultantTuples.
+	 */
+	private Map<String, Map<String, OutputEdge[]>> outputEdgeIndex;
 
 	/**
 	 * Creates a plain vanilla application with no modules and edges.
@@ -62,18 +71,20 @@ public class Application {
 		long bw = 1000;
 		String vmm = "Xen";
 		
-		AppModule module = new AppModule(FogUtils.generateEntityId(), moduleName, appId, userId, 
+		AppModule module = new AppModule(context.generateEntityId(), moduleName, appId, userId, 
 				mips, ram, bw, size, vmm, new
 				TupleScheduler(mips, 1), new HashMap<Pair<String, String>, SelectivityModel>());
 		
 		getModules().add(module);
+		outputEdgeIndex = null;
 	}
 
 	public void addAppModule(String moduleName, int ram, int mips, long size, long bw) {
 		String vmm = "Xen";
-		AppModule module = new AppModule(FogUtils.generateEntityId(), moduleName, appId, userId, mips, ram, bw, size,
+		AppModule module = new AppModule(context.generateEntityId(), moduleName, appId, userId, mips, ram, bw, size,
 				vmm, new TupleScheduler(mips, 1), new HashMap<Pair<String, String>, SelectivityModel>());
 		getModules().add(module);
+		outputEdgeIndex = null;
 	}
 	
 	/**
@@ -91,6 +102,7 @@ public class Application {
 		AppEdge edge = new AppEdge(source, destination, tupleCpuLength, tupleNwLength, tupleType, direction, edgeType);
 		getEdges().add(edge);
 		getEdgeMap().put(edge.getTupleType(), edge);
+		outputEdgeIndex = null;
 	}
 	
 	/**
@@ -108,6 +120,7 @@ public class Application {
 		AppEdge edge = new AppEdge(source, destination, periodicity, tupleCpuLength, tupleNwLength, tupleType, direction, edgeType);
 		getEdges().add(edge);
 		getEdgeMap().put(edge.getTupleType(), edge);
+		outputEdgeIndex = null;
 	}
 	
 	/**
@@ -120,6 +133,7 @@ public class Application {
 	public void addTupleMapping(String moduleName, String inputTupleType, String outputTupleType, SelectivityModel selectivityModel){
 		AppModule module = getModuleByName(moduleName);
 		module.getSelectivityMap().put(new Pair<String, String>(inputTupleType, outputTupleType), selectivityModel);
+		outputEdgeIndex = null;
 	}
 	
 	/**
@@ -181,42 +195,35 @@ public class Application {
 	 */
 	public List<Tuple> getResultantTuples(String moduleName, Tuple inputTuple, int sourceDeviceId, int sourceModuleId){
 		List<Tuple> tuples = new ArrayList<Tuple>();
-		AppModule module = getModuleByName(moduleName);
-		for(AppEdge edge : getEdges()){
-			if(edge.getSource().equals(moduleName)){
-				Pair<String, String> pair = new Pair<String, String>(inputTuple.getTupleType(), edge.getTupleType());
-				
-				if(module.getSelectivityMap().get(pair)==null)
-					continue;
-				SelectivityModel selectivityModel = module.getSelectivityMap().get(pair);
-				if(selectivityModel.canSelect()){
-					//TODO check if the edge is ACTUATOR, then create multiple tuples
-					if(edge.getEdgeType() == AppEdge.ACTUATOR){
-						//for(Integer actuatorId : module.getActuatorSubscriptions().get(edge.getTupleType())){
-							Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),  
-									(long) (edge.getTupleCpuLength()),
-									inputTuple.getNumberOfPes(),
-									(long) (edge.getTupleNwLength()),
-									inputTuple.getCloudletOutputSize(),
-									inputTuple.getUtilizationModelCpu(),
-									inputTuple.getUtilizationModelRam(),
-									inputTuple.getUtilizationModelBw()
-									);
-							tuple.setActualTupleId(inputTuple.getActualTupleId());
-							tuple.setUserId(inputTuple.getUserId());
-							tuple.setAppId(inputTuple.getAppId());
-							tuple.setDestModuleName(edge.getDestination());
-							tuple.setSrcModuleName(edge.getSource());
-							tuple.setDirection(Tuple.ACTUATOR);
-							tuple.setTupleType(edge.getTupleType());
-							tuple.setSourceDeviceId(sourceDeviceId);
-							tuple.setSourceModuleId(sourceModuleId);
-							//tuple.setActuatorId(actuatorId);
-							
-							tuples.add(tuple);
-						//}
-					}else{
-						Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),  
+		getResultantTuples(moduleName, inputTuple, sourceDeviceId, sourceModuleId, tuples);
+		return tuples;
+	}
+	
+	/**
+	 * Get the tuples generated upon execution of incoming tuple <i>inputTuple</i> by module named <i>moduleName</i>,
+	 * appending them to <i>tuples</i>. Only the outgoing edges of the module having a selectivity model for the type 
+	 * of the incoming tuple are visited.
+	 * @param moduleName name of the module performing execution of incoming tuple and emitting resultant tuples
+	 * @param inputTuple incoming tuple, whose execution creates resultant tuples
+	 * @param sourceDeviceId
+	 * @param sourceModuleId
+	 * @param tuples list to which the resultant tuples are appended
+	 */
+	public void getResultantTuples(String moduleName, Tuple inputTuple, int sourceDeviceId, int sourceModuleId, List<Tuple> tuples){
+		Map<String, OutputEdge[]> inputTypeToOutputEdges = getOutputEdgeIndex().get(moduleName);
+		if(inputTypeToOutputEdges == null)
+			return;
+		OutputEdge[] outputEdges = inputTypeToOutputEdges.get(inputTuple.getTupleType());
+		if(outputEdges == null)
+			return;
+		for(OutputEdge outputEdge : outputEdges){
+			AppEdge edge = outputEdge.getEdge();
+			SelectivityModel selectivityModel = outputEdge.getSelectivityModel();
+			if(selectivityModel.canSelect()){
+				//TODO check if the edge is ACTUATOR, then create multiple tuples
+				if(edge.getEdgeType() == AppEdge.ACTUATOR){
+					//for(Integer actuatorId : module.getActuatorSubscriptions().get(edge.getTupleType())){
+						Tuple tuple = context.getTuplePool().obtain(appId, context.generateTupleId(), edge.getDirection(),  
 								(long) (edge.getTupleCpuLength()),
 								inputTuple.getNumberOfPes(),
 								(long) (edge.getTupleNwLength()),
@@ -230,16 +237,72 @@ public class Application {
 						tuple.setAppId(inputTuple.getAppId());
 						tuple.setDestModuleName(edge.getDestination());
 						tuple.setSrcModuleName(edge.getSource());
-						tuple.setDirection(edge.getDirection());
+						tuple.setDirection(Tuple.ACTUATOR);
 						tuple.setTupleType(edge.getTupleType());
+						tuple.setSourceDeviceId(sourceDeviceId);
 						tuple.setSourceModuleId(sourceModuleId);
-
+						//tuple.setActuatorId(actuatorId);
+						
 						tuples.add(tuple);
+					//}
+				}else{
+					Tuple tuple = context.getTuplePool().obtain(appId, context.generateTupleId(), edge.getDirection(),  
+							(long) (edge.getTupleCpuLength()),
+							inputTuple.getNumberOfPes(),
+							(long) (edge.getTupleNwLength()),
+							inputTuple.getCloudletOutputSize(),
+							inputTuple.getUtilizationModelCpu(),
+							inputTuple.getUtilizationModelRam(),
+							inputTuple.getUtilizationModelBw()
+							);
+					tuple.setActualTupleId(inputTuple.getActualTupleId());
+					tuple.setUserId(inputTuple.getUserId());
+					tuple.setAppId(inputTuple.getAppId());
+					tuple.setDestModuleName(edge.getDestination());
+					tuple.setSrcModuleName(edge.getSource());
+					tuple.setDirection(edge.getDirection());
+					tuple.setTupleType(edge.getTupleType());
+					tuple.setSourceModuleId(sourceModuleId);
+
+					tuples.add(tuple);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the index from module name and incoming tuple type to the outgoing edges of the module that emit tuples 
+	 * for that type, building it if the application was modified since it was last built.
+	 * @return
+	 */
+	private Map<String, Map<String, OutputEdge[]>> getOutputEdgeIndex(){
+		if(outputEdgeIndex == null){
+			Map<String, Map<String, OutputEdge[]>> index = new HashMap<String, Map<String, OutputEdge[]>>();
+			for(AppModule module : getModules()){
+				if(index.containsKey(module.getName()))
+					continue;
+				Map<String, List<OutputEdge>> inputTypeToOutputEdges = new HashMap<String, List<OutputEdge>>();
+				for(AppEdge edge : getEdges()){
+					if(!edge.getSource().equals(module.getName()))
+						continue;
+					for(Map.Entry<Pair<String, String>, SelectivityModel> entry : module.getSelectivityMap().entrySet()){
+						String outputTupleType = entry.getKey().getSecond();
+						if(entry.getValue() == null || (outputTupleType == null ? edge.getTupleType() != null : !outputTupleType.equals(edge.getTupleType())))
+							continue;
+						String inputTupleType = entry.getKey().getFirst();
+						if(!inputTypeToOutputEdges.containsKey(inputTupleType))
+							inputTypeToOutputEdges.put(inputTupleType, new ArrayList<OutputEdge>());
+						inputTypeToOutputEdges.get(inputTupleType).add(new OutputEdge(edge, entry.getValue()));
 					}
 				}
+				Map<String, OutputEdge[]> moduleIndex = new HashMap<String, OutputEdge[]>();
+				for(Map.Entry<String, List<OutputEdge>> entry : inputTypeToOutputEdges.entrySet())
+					moduleIndex.put(entry.getKey(), entry.getValue().toArray(new OutputEdge[entry.getValue().size()]));
+				index.put(module.getName(), moduleIndex);
 			}
+			outputEdgeIndex = index;
 		}
-		return tuples;
+		return outputEdgeIndex;
 	}
 	
 	/**
@@ -252,14 +315,14 @@ public class Application {
 		AppModule module = getModuleByName(edge.getSource());
 		if(edge.getEdgeType() == AppEdge.ACTUATOR){
 			for(Integer actuatorId : module.getActuatorSubscriptions().get(edge.getTupleType())){
-				Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),  
+				Tuple tuple = context.getTuplePool().obtain(appId, context.generateTupleId(), edge.getDirection(),  
 						(long) (edge.getTupleCpuLength()),
 						1,
 						(long) (edge.getTupleNwLength()),
 						100,
-						new UtilizationModelFull(), 
-						new UtilizationModelFull(), 
-						new UtilizationModelFull()
+						TuplePool.UTILIZATION_MODEL_FULL, 
+						TuplePool.UTILIZATION_MODEL_FULL, 
+						TuplePool.UTILIZATION_MODEL_FULL
 						);
 				tuple.setUserId(getUserId());
 				tuple.setAppId(getAppId());
@@ -274,14 +337,14 @@ public class Application {
 				return tuple;
 			}
 		}else{
-			Tuple tuple = new Tuple(appId, FogUtils.generateTupleId(), edge.getDirection(),  
+			Tuple tuple = context.getTuplePool().obtain(appId, context.generateTupleId(), edge.getDirection(),  
 					(long) (edge.getTupleCpuLength()),
 					1,
 					(long) (edge.getTupleNwLength()),
 					100,
-					new UtilizationModelFull(), 
-					new UtilizationModelFull(), 
-					new UtilizationModelFull()
+					TuplePool.UTILIZATION_MODEL_FULL, 
+					TuplePool.UTILIZATION_MODEL_FULL, 
+					TuplePool.UTILIZATION_MODEL_FULL
 					);
 			//tuple.setActualTupleId(inputTuple.getActualTupleId());
 			tuple.setUserId(getUserId());
@@ -308,12 +371,14 @@ public class Application {
 	}
 	public void setModules(List<AppModule> modules) {
 		this.modules = modules;
+		outputEdgeIndex = null;
 	}
 	public List<AppEdge> getEdges() {
 		return edges;
 	}
 	public void setEdges(List<AppEdge> edges) {
 		this.edges = edges;
+		outputEdgeIndex = null;
 	}
 	public GeoCoverage getGeoCoverage() {
 		return geoCoverage;
@@ -345,4 +410,25 @@ public class Application {
 	public void setEdgeMap(Map<String, AppEdge> edgeMap) {
 		this.edgeMap = edgeMap;
 	}
+
+	/**
+	 * Outgoing edge of a module together with the selectivity model governing it for a given incoming tuple type.
+	 */
+	private static class OutputEdge {
+		private final AppEdge edge;
+		private final SelectivityModel selectivityModel;
+		
+		OutputEdge(AppEdge edge, SelectivityModel selectivityModel) {
+			this.edge = edge;
+			this.selectivityModel = selectivityModel;
+		}
+		
+		AppEdge getEdge() {
+			return edge;
+		}
+		
+		SelectivityModel getSelectivityModel() {
+			return selectivityModel;
+		}
+	}
 }
@@ -1,14 +1,14 @@
 package org.fog.entities;
 
-import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.fog.application.AppLoop;
 import org.fog.application.Application;
 import org.fog.utils.FogEvents;
+import org.fog.utils.GatewayIndex;
 import org.fog.utils.GeoLocation;
 import org.fog.utils.Logger;
-import org.fog.utils.TimeKeeper;
+import org.fog.utils.SimulationContext;
 
 public class Actuator extends SimEntity{
 
@@ -19,6 +19,8 @@ public class Actuator extends SimEntity{
 	private int userId;
 	private String actuatorType;
 	private Application app;
+	/** Context of the simulation the actuator belongs to. */
+	private final SimulationContext context = SimulationContext.getCurrent();
 	
 	public Actuator(String name, int userId, String appId, int gatewayDeviceId, double latency, GeoLocation geoLocation, String actuatorType, String srcModuleName) {
 		super(name);
@@ -39,6 +41,9 @@ public class Actuator extends SimEntity{
 
 	@Override
 	public void startEntity() {
+		GatewayIndex gatewayIndex = context.getGatewayIndex();
+		if (gatewayIndex != null)
+			gatewayIndex.assignGateway(this);
 		sendNow(gatewayDeviceId, FogEvents.ACTUATOR_JOINED, getLatency());
 	}
 
@@ -47,34 +52,21 @@ public class Actuator extends SimEntity{
 		switch(ev.getTag()){
 		case FogEvents.TUPLE_ARRIVAL:
 			processTupleArrival(ev);
+			context.getTuplePool().release((Tuple) ev.getData());
 			break;
 		}		
 	}
 
 	private void processTupleArrival(SimEvent ev) {
 		Tuple tuple = (Tuple)ev.getData();
-		Logger.debug(getName(), "Received tuple "+tuple.getCloudletId()+"on "+tuple.getDestModuleName());
+		Logger.debug(getName(), "Received tuple {}on {}", tuple.getCloudletId(), tuple.getDestModuleName());
 		String srcModule = tuple.getSrcModuleName();
 		String destModule = tuple.getDestModuleName();
 		Application app = getApp();
 		
 		for(AppLoop loop : app.getLoops()){
 			if(loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)){
-				
-				Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				if(startTime==null)
-					break;
-				if(!TimeKeeper.getInstance().getLoopIdToCurrentAverage().containsKey(loop.getLoopId())){
-					TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-					TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-				}
-				double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loop.getLoopId());
-				int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loop.getLoopId());
-				double delay = CloudSim.clock()- TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-				double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
-				TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), newAverage);
-				TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), currentCount+1);
+				context.getTimeKeeper().loopEnded(loop.getLoopId(), tuple.getActualTupleId());
 				break;
 			}
 		}
@@ -1,10 +1,15 @@
 package org.fog.entities;
 
+import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.power.PowerDatacenterBroker;
+import org.fog.utils.SimulationContext;
 
 public class FogBroker extends PowerDatacenterBroker{
 
+	/** Context of the simulation the broker belongs to. */
+	private final SimulationContext context = SimulationContext.getCurrent();
+
 	public FogBroker(String name) throws Exception {
 		super(name);
 		// TODO Auto-generated constructor stub
@@ -18,8 +23,18 @@ public class FogBroker extends PowerDatacenterBroker{
 
 	@Override
 	public void processEvent(SimEvent ev) {
-		// TODO Auto-generated method stub
-		
+		switch (ev.getTag()) {
+		case CloudSimTags.CLOUDLET_RETURN:
+			// drops the reference taken for the event by the device that executed the tuple
+			if (ev.getData() instanceof Tuple)
+				context.getTuplePool().release((Tuple) ev.getData());
+			break;
+		case CloudSimTags.CLOUDLET_CANCEL:
+			// drops the reference of the scheduler the tuple was cancelled from
+			if (ev.getData() instanceof Tuple)
+				context.getTuplePool().release((Tuple) ev.getData());
+			break;
+		}
 	}
 
 	@Override
@@ -1,6 +1,8 @@
 package org.fog.entities;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -84,6 +86,22 @@ public class FogDevice extends PowerDataCenter {
     //TODO: 判断周围邻居节点是否繁忙
     protected boolean isNeighborLinkBusy;
 
+    /**
+     * Links to the parent and the children, used instead of the busy flags and the shared queues
+     * when {@link Config#MULTI_CHANNEL_LINKS} is set, and links to the neighbors
+     */
+    protected Link uplink;
+    protected final Map<Integer, Link> childLinks = new HashMap<Integer, Link>();
+    protected final Map<Integer, Link> neighborLinks = new HashMap<Integer, Link>();
+    /**
+     * Last load reported by every neighbor when {@link Config#NEIGHBOR_OFFLOADING} is set
+     */
+    protected final Map<Integer, LoadReport> neighborLoads = new HashMap<Integer, LoadReport>();
+    /**
+     * Number of tuples offloaded to every module of every neighbor since its last load report
+     */
+    protected final Map<Integer, Map<String, Integer>> neighborOffloadedTuples = new HashMap<Integer, Map<String, Integer>>();
+
     protected double uplinkBandwidth;
     protected double downlinkBandwidth;
     //TODO: 邻居节点之间的传输带宽
@@ -94,15 +112,38 @@ public class FogDevice extends PowerDataCenter {
     protected Map<Integer, Double> neighborLatency;
     protected List<Pair<Integer, Double>> associatedActuatorIds; //Pair可以返回一个键值对(<actuatorId, delay>)
 
-    protected double energyConsumption;
-    protected double lastUtilizationUpdateTime;
-    protected double lastUtilization;
+    protected PowerMonitor powerMonitor;
+    protected RoutingTable routingTable;
     protected double ratePerMips;
-    protected double totalCost;
     protected Map<String, Map<String, Integer>> moduleInstanceCount;
+    /**
+     * Context of the simulation the device belongs to
+     */
+    protected final SimulationContext context = SimulationContext.getCurrent();
+    /**
+     * Buffer reused for the tuples resulting from the execution of a tuple
+     */
+    private final List<Tuple> resultantTuples = new ArrayList<Tuple>();
+    /**
+     * MIPS shares requested by a busy operator, the whole host, and by an idle one
+     */
+    private List<Double> busyMipsShare;
+    private static final List<Double> IDLE_MIPS_SHARE = Collections.singletonList(0.0);
+    /**
+     * Buffer reused for the indexes of the busy operators in the VM list of the host
+     */
+    private final BitSet busyVms = new BitSet();
     int numClients = 0;
     private int level;
 
+    /** Location of the device, used to associate sensors and actuators with their nearest gateway. */
+    private GeoLocation geoLocation;
+    /**
+     * Latency of the links of the sensors and actuators that join the device as their nearest
+     * gateway, or a negative value if they keep the latency they were created with
+     */
+    private double accessLatency = -1;
+
     //DCNSFog的第一种调用
     public FogDevice(String name, FogDeviceCharacteristics characteristics, VmAllocationPolicy vmAllocationPolicy,
                      List<Storage> storageList, double schedulingInterval, double uplinkBandwidth, double downlinkBandwidth,
@@ -148,9 +189,7 @@ public class FogDevice extends PowerDataCenter {
 
         this.lockTime = 0;
 
-        this.energyConsumption = 0;
-        this.lastUtilization = 0;
-        setTotalCost(0);
+        this.powerMonitor = new PowerMonitor(getHost().getPowerModel(), getHost().getTotalMips());
         setModuleInstanceCount(new HashMap<String, Map<String, Integer>>());
         setChildToLatencyMap(new HashMap<Integer, Double>());
         setNeighborToLatencyMap(new HashMap<Integer, Double>());
@@ -275,9 +314,7 @@ public class FogDevice extends PowerDataCenter {
 
         this.lockTime = 0;
 
-        this.energyConsumption = 0;
-        this.lastUtilization = 0;
-        setTotalCost(0);
+        this.powerMonitor = new PowerMonitor(getHost().getPowerModel(), getHost().getTotalMips());
         setModuleInstanceCount(new HashMap<String, Map<String, Integer>>());
         setChildToLatencyMap(new HashMap<Integer, Double>());
         setNeighborToLatencyMap(new HashMap<Integer, Double>());
@@ -310,7 +347,7 @@ public class FogDevice extends PowerDataCenter {
         // 3. Create PEs and add these into a list.
         peList.add(new Pe(0, new PeProvisionerOverbooking(mips))); // need to store Pe id and MIPS Rating
 
-        int hostId = FogUtils.generateEntityId();
+        int hostId = context.generateEntityId();
         long storage = 1000000; // host storage
         int bw = 10000;
 
@@ -329,14 +366,15 @@ public class FogDevice extends PowerDataCenter {
 
         setVmAllocationPolicy(new AppModuleAllocationPolicy(hostList));
 
-        String arch = Config.FOG_DEVICE_ARCH;
-        String os = Config.FOG_DEVICE_OS;
-        String vmm = Config.FOG_DEVICE_VMM;
-        double time_zone = Config.FOG_DEVICE_TIMEZONE;
-        double cost = Config.FOG_DEVICE_COST;
-        double costPerMem = Config.FOG_DEVICE_COST_PER_MEMORY;
-        double costPerStorage = Config.FOG_DEVICE_COST_PER_STORAGE;
-        double costPerBw = Config.FOG_DEVICE_COST_PER_BW;
+        SimulationConfig config = context.getConfig();
+        String arch = config.getFogDeviceArch();
+        String os = config.getFogDeviceOs();
+        String vmm = config.getFogDeviceVmm();
+        double time_zone = config.getFogDeviceTimeZone();
+        double cost = config.getFogDeviceCost();
+        double costPerMem = config.getFogDeviceCostPerMemory();
+        double costPerStorage = config.getFogDeviceCostPerStorage();
+        double costPerBw = config.getFogDeviceCostPerBw();
 
         FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics(
                 arch, os, vmm, host, time_zone, cost, costPerMem,
@@ -377,9 +415,7 @@ public class FogDevice extends PowerDataCenter {
 
         this.lockTime = 0;
 
-        this.energyConsumption = 0;
-        this.lastUtilization = 0;
-        setTotalCost(0);
+        this.powerMonitor = new PowerMonitor(getHost().getPowerModel(), getHost().getTotalMips());
         setChildToLatencyMap(new HashMap<Integer, Double>());
         setNeighborToLatencyMap(new HashMap<Integer, Double>());
         setModuleInstanceCount(new HashMap<String, Map<String, Integer>>());
@@ -393,7 +429,8 @@ public class FogDevice extends PowerDataCenter {
      * @post $none
      */
     protected void registerOtherEntity() {
-
+        if (canOffload())
+            sendNow(getId(), FogEvents.PUBLISH_LOAD);
     }
 
     @Override
@@ -401,6 +438,7 @@ public class FogDevice extends PowerDataCenter {
         switch (ev.getTag()) {
             case FogEvents.TUPLE_ARRIVAL:
                 processTupleArrival(ev);
+                context.getTuplePool().release((Tuple) ev.getData());
                 break;
             case FogEvents.LAUNCH_MODULE:
                 processModuleArrival(ev);
@@ -432,6 +470,12 @@ public class FogDevice extends PowerDataCenter {
             case FogEvents.LAUNCH_MODULE_INSTANCE:
                 updateModuleInstanceCount(ev);
                 break;
+            case FogEvents.PUBLISH_LOAD:
+                publishLoad();
+                break;
+            case FogEvents.NEIGHBOR_LOAD:
+                processNeighborLoad(ev);
+                break;
             case FogEvents.RESOURCE_MGMT:
                 manageResources(ev);
             default:
@@ -439,6 +483,41 @@ public class FogDevice extends PowerDataCenter {
         }
     }
 
+    /**
+     * @return whether the device offloads tuples to its neighbors and publishes its load to them
+     */
+    protected boolean canOffload() {
+        return context.getConfig().isNeighborOffloading() && getNeighborIds() != null && !getNeighborIds().isEmpty()
+                && getNeighborBandwidth() > 0;
+    }
+
+    /**
+     * Sends the number of tuples queued on every module of the device to the neighbors, which
+     * receive it after the latency of their link, and schedules the next report. The neighbors all
+     * receive the same report. A device that can no longer offload, e.g. as it lost its neighbors,
+     * stops reporting its load.
+     */
+    protected void publishLoad() {
+        if (!canOffload())
+            return;
+        Map<String, Integer> queueLengths = new HashMap<String, Integer>();
+        for (Vm vm : getHost().getVmList())
+            queueLengths.put(((AppModule) vm).getName(), vm.getCloudletScheduler().runningCloudlets());
+        LoadReport load = new LoadReport(getId(), CloudSim.clock(), getHost().getTotalMips(), queueLengths);
+        for (int neighborId : getNeighborIds())
+            send(neighborId, getNeighborLink(neighborId).getLatency(), FogEvents.NEIGHBOR_LOAD, load);
+        send(getId(), context.getConfig().getLoadReportInterval(), FogEvents.PUBLISH_LOAD);
+    }
+
+    protected void processNeighborLoad(SimEvent ev) {
+        LoadReport load = (LoadReport) ev.getData();
+        // a device without neighbor bandwidth does not offload, so it ignores the reports
+        if (canOffload()) {
+            neighborLoads.put(load.getDeviceId(), load);
+            neighborOffloadedTuples.remove(load.getDeviceId());
+        }
+    }
+
     /**
      * Perform miscellaneous resource management tasks
      *
@@ -530,6 +609,7 @@ public class FogDevice extends PowerDataCenter {
         double timeDiff = currentTime - getLastProcessTime();
         double timeFrameDatacenterEnergy = 0.0;
 
+        boolean logEnabled = !Log.isDisabled();
         for (PowerHost host : this.<PowerHost>getHostList()) {
             Log.printLine();
 
@@ -538,18 +618,22 @@ public class FogDevice extends PowerDataCenter {
                 minTime = time;
             }
 
-            Log.formatLine(
-                    "%.2f: [Host #%d] utilization is %.2f%%",
-                    currentTime,
-                    host.getId(),
-                    host.getUtilizationOfCpu() * 100);
+            if (logEnabled) {
+                Log.formatLine(
+                        "%.2f: [Host #%d] utilization is %.2f%%",
+                        currentTime,
+                        host.getId(),
+                        host.getUtilizationOfCpu() * 100);
+            }
         }
 
         if (timeDiff > 0) {
-            Log.formatLine(
-                    "\nEnergy consumption for the last time frame from %.2f to %.2f:",
-                    getLastProcessTime(),
-                    currentTime);
+            if (logEnabled) {
+                Log.formatLine(
+                        "\nEnergy consumption for the last time frame from %.2f to %.2f:",
+                        getLastProcessTime(),
+                        currentTime);
+            }
 
             for (PowerHost host : this.<PowerHost>getHostList()) {
                 double previousUtilizationOfCpu = host.getPreviousUtilizationOfCpu();
@@ -560,25 +644,29 @@ public class FogDevice extends PowerDataCenter {
                         timeDiff);
                 timeFrameDatacenterEnergy += timeFrameHostEnergy;
 
-                Log.printLine();
-                Log.formatLine(
-                        "%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
-                        currentTime,
-                        host.getId(),
-                        getLastProcessTime(),
-                        previousUtilizationOfCpu * 100,
-                        utilizationOfCpu * 100);
+                if (logEnabled) {
+                    Log.printLine();
+                    Log.formatLine(
+                            "%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
+                            currentTime,
+                            host.getId(),
+                            getLastProcessTime(),
+                            previousUtilizationOfCpu * 100,
+                            utilizationOfCpu * 100);
+                    Log.formatLine(
+                            "%.2f: [Host #%d] energy is %.2f W*sec",
+                            currentTime,
+                            host.getId(),
+                            timeFrameHostEnergy);
+                }
+            }
+
+            if (logEnabled) {
                 Log.formatLine(
-                        "%.2f: [Host #%d] energy is %.2f W*sec",
+                        "\n%.2f: Data center's energy is %.2f W*sec\n",
                         currentTime,
-                        host.getId(),
-                        timeFrameHostEnergy);
+                        timeFrameDatacenterEnergy);
             }
-
-            Log.formatLine(
-                    "\n%.2f: Data center's energy is %.2f W*sec\n",
-                    currentTime,
-                    timeFrameDatacenterEnergy);
         }
 
         setPower(getPower() + timeFrameDatacenterEnergy);
@@ -616,17 +704,28 @@ public class FogDevice extends PowerDataCenter {
 
                         cloudletCompleted = true;
                         Tuple tuple = (Tuple) cl;
-                        TimeKeeper.getInstance().tupleEndedExecution(tuple);
+                        context.getTimeKeeper().tupleEndedExecution(tuple);
                         Application application = getApplicationMap().get(tuple.getAppId());
-                        Logger.debug(getName(), "Completed execution of tuple " + tuple.getCloudletId() + "on " + tuple.getDestModuleName());
-                        List<Tuple> resultantTuples = application.getResultantTuples(tuple.getDestModuleName(), tuple, getId(), vm.getId());
+                        Logger.debug(getName(), "Completed execution of tuple {}on {}", tuple.getCloudletId(), tuple.getDestModuleName());
+                        application.getResultantTuples(tuple.getDestModuleName(), tuple, getId(), vm.getId(), resultantTuples);
                         for (Tuple resTuple : resultantTuples) {
-                            resTuple.setModuleCopyMap(new HashMap<String, Integer>(tuple.getModuleCopyMap()));
+                            resTuple.getModuleCopyMap().putAll(tuple.getModuleCopyMap());
                             resTuple.getModuleCopyMap().put(((AppModule) vm).getName(), vm.getId());
                             updateTimingsOnSending(resTuple);
-                            sendToSelf(resTuple);
+                            if (tuple.getOffloadOriginId() >= 0) {
+                                // results of an offloaded tuple continue from the instance it was
+                                // offloaded from
+                                resTuple.getModuleCopyMap().put(((AppModule) vm).getName(), tuple.getOffloadOriginVmId());
+                                sendOnLink(resTuple, tuple.getOffloadOriginId(), getNeighborLink(tuple.getOffloadOriginId()));
+                            } else {
+                                sendToSelf(resTuple);
+                            }
                         }
+                        resultantTuples.clear();
+                        // the event holds its own reference, dropped by the broker on receipt
+                        context.getTuplePool().retain(tuple);
                         sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
+                        context.getTuplePool().release(tuple);
                     }
                 }
             }
@@ -635,6 +734,59 @@ public class FogDevice extends PowerDataCenter {
             updateAllocatedMips(null);
     }
 
+    /**
+     * Moves a tuple in execution to another module instance, as DataCenter does, while keeping
+     * the reference of the scheduler on the tuple: the reference goes with the tuple to its new
+     * scheduler or CLOUDLET_SUBMIT event, to the CLOUDLET_RETURN event if the tuple has already
+     * finished, and is released if the tuple cannot be moved. A cancelled tuple takes the reference
+     * to the CLOUDLET_CANCEL event, released by the broker.
+     */
+    @Override
+    protected void processCloudletMove(int[] receivedData, int type) {
+        updateCloudletProcessing();
+
+        int cloudletId = receivedData[0];
+        int userId = receivedData[1];
+        int vmId = receivedData[2];
+        int vmDestId = receivedData[3];
+        int destId = receivedData[4];
+
+        Cloudlet cl = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId, userId)
+                .getCloudletScheduler().cloudletCancel(cloudletId);
+
+        boolean failed = false;
+        if (cl == null) {
+            failed = true;
+        } else if (cl.getCloudletStatus() == Cloudlet.SUCCESS) {
+            sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
+        } else {
+            cl.setVmId(vmDestId);
+            if (destId == getId()) {
+                Host host = getVmAllocationPolicy().getHost(vmDestId, userId);
+                Vm vm = host == null ? null : host.getVm(vmDestId, userId);
+                if (vm == null) {
+                    failed = true;
+                    if (cl instanceof Tuple)
+                        context.getTuplePool().release((Tuple) cl);
+                } else {
+                    vm.getCloudletScheduler().cloudletSubmit(cl, predictFileTransferTime(cl.getRequiredFiles()));
+                }
+            } else {
+                int tag = type == CloudSimTags.CLOUDLET_MOVE_ACK ? CloudSimTags.CLOUDLET_SUBMIT_ACK
+                        : CloudSimTags.CLOUDLET_SUBMIT;
+                sendNow(destId, tag, cl);
+            }
+        }
+
+        if (type == CloudSimTags.CLOUDLET_MOVE_ACK) {
+            int[] data = new int[3];
+            data[0] = getId();
+            data[1] = cloudletId;
+            data[2] = failed ? 0 : 1;
+            sendNow(userId, CloudSimTags.CLOUDLET_SUBMIT_ACK, data);
+        }
+    }
+
     protected void updateTimingsOnSending(Tuple resTuple) {
         // TODO ADD CODE FOR UPDATING TIMINGS WHEN A TUPLE IS GENERATED FROM A PREVIOUSLY RECIEVED TUPLE.
         // WILL NEED TO CHECK IF A NEW LOOP STARTS AND INSERT A UNIQUE TUPLE ID TO IT.
@@ -642,12 +794,8 @@ public class FogDevice extends PowerDataCenter {
         String destModule = resTuple.getDestModuleName();
         for (AppLoop loop : getApplicationMap().get(resTuple.getAppId()).getLoops()) {
             if (loop.hasEdge(srcModule, destModule) && loop.isStartModule(srcModule)) {
-                int tupleId = TimeKeeper.getInstance().getUniqueId();
+                int tupleId = context.getTimeKeeper().tupleEmitted(loop.getLoopId());
                 resTuple.setActualTupleId(tupleId);
-                if (!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-                    TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-                TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-                TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
 
                 //Logger.debug(getName(), "\tSENDING\t"+tuple.getActualTupleId()+"\tSrc:"+srcModule+"\tDest:"+destModule);
 
@@ -666,6 +814,8 @@ public class FogDevice extends PowerDataCenter {
 //    }
 
     protected int getChildIdWithRouteTo(int targetDeviceId) {
+        if (routingTable != null)
+            return routingTable.getChildForDevice(targetDeviceId);
         for (Integer childId : getChildrenIds()) {
             if (targetDeviceId == childId)
                 return childId;
@@ -685,24 +835,23 @@ public class FogDevice extends PowerDataCenter {
 
     //应用程序的调度可通过覆盖此方法，实现定制策略
     protected void updateAllocatedMips(String incomingOperator) {
-        getHost().getVmScheduler().deallocatePesForAllVms();
-        for (final Vm vm : getHost().getVmList()) {
-            if (vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule) vm).getName().equals(incomingOperator)) {
-                getHost().getVmScheduler().allocatePesForVm(vm, new ArrayList<Double>() {
-                    protected static final long serialVersionUID = 1L;
-
-                    {
-                        add((double) getHost().getTotalMips());
-                    }
-                });
-            } else {
-                getHost().getVmScheduler().allocatePesForVm(vm, new ArrayList<Double>() {
-                    protected static final long serialVersionUID = 1L;
-
-                    {
-                        add(0.0);
-                    }
-                });
+        List<Vm> vms = getHost().getVmList();
+        if (getHost().getVmScheduler() instanceof StreamOperatorScheduler) {
+            busyVms.clear();
+            for (int i = 0; i < vms.size(); i++) {
+                Vm vm = vms.get(i);
+                if (vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule) vm).getName().equals(incomingOperator))
+                    busyVms.set(i);
+            }
+            ((StreamOperatorScheduler) getHost().getVmScheduler()).allocatePesForVms(vms, busyVms, getBusyMipsShare(),
+                    IDLE_MIPS_SHARE);
+        } else {
+            getHost().getVmScheduler().deallocatePesForAllVms();
+            for (Vm vm : vms) {
+                if (vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule) vm).getName().equals(incomingOperator))
+                    getHost().getVmScheduler().allocatePesForVm(vm, getBusyMipsShare());
+                else
+                    getHost().getVmScheduler().allocatePesForVm(vm, IDLE_MIPS_SHARE);
             }
         }
 
@@ -710,6 +859,12 @@ public class FogDevice extends PowerDataCenter {
 
     }
 
+    private List<Double> getBusyMipsShare() {
+        if (busyMipsShare == null || busyMipsShare.get(0) != getHost().getTotalMips())
+            busyMipsShare = Collections.singletonList((double) getHost().getTotalMips());
+        return busyMipsShare;
+    }
+
     private void updateEnergyConsumption() {
         double totalMipsAllocated = 0;
         for (final Vm vm : getHost().getVmList()) {
@@ -720,26 +875,7 @@ public class FogDevice extends PowerDataCenter {
         }
 
         //TODO:能耗计算需要修改，加入在传输链路上的功耗
-        double timeNow = CloudSim.clock();
-        double currentEnergyConsumption = getEnergyConsumption();
-        double newEnergyConsumption = currentEnergyConsumption + (timeNow - lastUtilizationUpdateTime)
-                * getHost().getPowerModel().getPower(lastUtilization);
-//        System.out.println("id: " + getHost().getId() + "\nnew energy consumption: " + newEnergyConsumption);
-        setEnergyConsumption(newEnergyConsumption);
-
-		/*if(getName().equals("d-0")){
-			System.out.println("------------------------");
-			System.out.println("Utilization = "+lastUtilization);
-			System.out.println("Power = "+getHost().getPowerModel().getPower(lastUtilization));
-			System.out.println(timeNow-lastUtilizationUpdateTime);
-		}*/
-
-        double currentCost = getTotalCost();
-        double newcost = currentCost + (timeNow - lastUtilizationUpdateTime) * getRatePerMips() * lastUtilization * getHost().getTotalMips();
-        setTotalCost(newcost);
-
-        lastUtilization = Math.min(1, totalMipsAllocated / getHost().getTotalMips());
-        lastUtilizationUpdateTime = timeNow;
+        getPowerMonitor().update(CloudSim.clock(), totalMipsAllocated, getRatePerMips());
     }
 
     protected void processAppSubmit(SimEvent ev) {
@@ -750,8 +886,13 @@ public class FogDevice extends PowerDataCenter {
     protected void addChild(int childId) {
         if (CloudSim.getEntityName(childId).toLowerCase().contains("sensor"))
             return;
-        if (!getChildrenIds().contains(childId) && childId != getId())
+        if (!getChildrenIds().contains(childId) && childId != getId()) {
             getChildrenIds().add(childId);
+            if (routingTable != null) {
+                routingTable.addChild(childId);
+                addRoutesToAncestors(childId, null);
+            }
+        }
         if (!getChildToOperatorsMap().containsKey(childId))
             getChildToOperatorsMap().put(childId, new ArrayList<String>());
     }
@@ -780,6 +921,7 @@ public class FogDevice extends PowerDataCenter {
             double delay = actuatorAssociation.getSecond();
             String actuatorType = ((Actuator) CloudSim.getEntity(actuatorId)).getActuatorType();
             if (tuple.getDestModuleName().equals(actuatorType)) {
+                context.getTuplePool().retain(tuple);
                 send(actuatorId, delay, FogEvents.TUPLE_ARRIVAL, tuple);
                 return;
             }
@@ -789,6 +931,11 @@ public class FogDevice extends PowerDataCenter {
         }
     }
 
+    /**
+     * Processes the arrival of a tuple. The reference that the event holds on the tuple is released
+     * by {@link #processOtherEvent(SimEvent)} once this returns, whether the tuple was dropped or
+     * not, so a tuple kept by the device must be retained.
+     */
     // 接收传来的元组
     protected void processTupleArrival(SimEvent ev) {
         Tuple tuple = (Tuple) ev.getData();
@@ -800,19 +947,29 @@ public class FogDevice extends PowerDataCenter {
 		/*if(getName().equals("d-0") && tuple.getTupleType().equals("_SENSOR")){
 			System.out.println(++numClients);
 		}*/
-        Logger.debug(getName(), "Received tuple " + tuple.getCloudletId() + "with tupleType = " + tuple.getTupleType() + "\t| Source : " +
-                CloudSim.getEntityName(ev.getSource()) + "|Dest : " + CloudSim.getEntityName(ev.getDestination()));
+        if (Logger.isDebugEnabled())
+            Logger.debug(getName(), "Received tuple {}with tupleType = {}\t| Source : {}|Dest : {}", tuple.getCloudletId(),
+                    tuple.getTupleType(), CloudSim.getEntityName(ev.getSource()), CloudSim.getEntityName(ev.getDestination()));
 
         //TODO:消息传递打印
 //        System.out.println(getName() + ":\nReceived tuple " + tuple.getCloudletId() + " with tupleType = " + tuple.getTupleType() + " | Source : " +
 //                CloudSim.getEntityName(ev.getSource()) + " |Dest : " + CloudSim.getEntityName(ev.getDestination()));
 
+        if (context.getAppIdToGeoCoverageMap().containsKey(tuple.getAppId())) {
+            // a gateway outside the area covered by the application does not serve its sensors, and
+            // does not acknowledge their tuples; the reference of the arrival event on a dropped
+            // tuple is released by processOtherEvent, like for any other arrival
+            GeoCoverage coverage = context.getAppIdToGeoCoverageMap().get(tuple.getAppId());
+            if (coverage != null && geoLocation != null && !coverage.covers(geoLocation)
+                    && CloudSim.getEntity(ev.getSource()) instanceof Sensor) {
+                Logger.debug(getName(), "Dropping tuple {}outside the coverage of {}", tuple.getCloudletId(), tuple.getAppId());
+                return;
+            }
+        }
+
         // 任务元组到达，开始下一个请求的发送
         send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 
-        if (FogUtils.appIdToGeoCoverageMap.containsKey(tuple.getAppId())) {
-        }
-
         if (tuple.getDirection() == Tuple.ACTUATOR) {
             sendTupleToActuator(tuple);
             return;
@@ -821,14 +978,12 @@ public class FogDevice extends PowerDataCenter {
         if (getHost().getVmList().size() > 0) {
             final AppModule operator = (AppModule) getHost().getVmList().get(0);
             if (CloudSim.clock() > 0) {
-                getHost().getVmScheduler().deallocatePesForVm(operator);
-                getHost().getVmScheduler().allocatePesForVm(operator, new ArrayList<Double>() {
-                    protected static final long serialVersionUID = 1L;
-
-                    {
-                        add((double) getHost().getTotalMips());
-                    }
-                });
+                if (getHost().getVmScheduler() instanceof StreamOperatorScheduler) {
+                    ((StreamOperatorScheduler) getHost().getVmScheduler()).allocateBusyPesForVm(operator, getBusyMipsShare());
+                } else {
+                    getHost().getVmScheduler().deallocatePesForVm(operator);
+                    getHost().getVmScheduler().allocatePesForVm(operator, getBusyMipsShare());
+                }
             }
         }
 
@@ -837,6 +992,11 @@ public class FogDevice extends PowerDataCenter {
             sendNow(getControllerId(), FogEvents.TUPLE_FINISHED, null);
         }
 
+        if (tuple.getOffloadOriginId() >= 0 && getModuleInstance(tuple.getDestModuleName()) == null) {
+            returnOffloadedTuple(tuple);
+            return;
+        }
+
         if (appToModulesMap.containsKey(tuple.getAppId())) {
             //包含该元组应用的所有模块是否能够匹配该元组的目的模块
             if (appToModulesMap.get(tuple.getAppId()).contains(tuple.getDestModuleName())) {
@@ -848,9 +1008,13 @@ public class FogDevice extends PowerDataCenter {
                 if (vmId < 0
                         || (tuple.getModuleCopyMap().containsKey(tuple.getDestModuleName()) &&
                         tuple.getModuleCopyMap().get(tuple.getDestModuleName()) != vmId)) {
+                    // no instance of the module for the tuple here: the tuple is dropped, and the
+                    // reference of the arrival event released by processOtherEvent
                     return;
                 }
                 tuple.setVmId(vmId);
+                if (offloadToNeighbor(tuple, ev.getSource()))
+                    return;
                 //Logger.error(getName(), "Executing tuple for operator " + moduleName);
 
                 updateTimingsOnReceipt(tuple);
@@ -860,12 +1024,9 @@ public class FogDevice extends PowerDataCenter {
                 if (tuple.getDirection() == Tuple.UP)
                     sendUp(tuple);
                 else if (tuple.getDirection() == Tuple.DOWN) {
-                    for (int childId : getChildrenIds())
-                        sendDown(tuple, childId);
+                    routeDown(tuple);
                 } else if (tuple.getDirection() == Tuple.NEIGHBOR) {
-                    //TODO
-                    for (int neighborId : getNeighborIds())
-                        sendNext(tuple, neighborId);
+                    routeToNeighbors(tuple, ev.getSource());
                 }
             } else {
                 sendUp(tuple);
@@ -874,12 +1035,9 @@ public class FogDevice extends PowerDataCenter {
             if (tuple.getDirection() == Tuple.UP)
                 sendUp(tuple);
             else if (tuple.getDirection() == Tuple.DOWN) {
-                for (int childId : getChildrenIds())
-                    sendDown(tuple, childId);
+                routeDown(tuple);
             } else if (tuple.getDirection() == Tuple.NEIGHBOR) {
-                //TODO
-                for (int neighborId : getNeighborIds())
-                    sendNext(tuple, neighborId);
+                routeToNeighbors(tuple, ev.getSource());
             }
         }
     }
@@ -891,20 +1049,7 @@ public class FogDevice extends PowerDataCenter {
         List<AppLoop> loops = app.getLoops();
         for (AppLoop loop : loops) {
             if (loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)) {
-                Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-                if (startTime == null)
-                    break;
-                if (!TimeKeeper.getInstance().getLoopIdToCurrentAverage().containsKey(loop.getLoopId())) {
-                    TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-                    TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-                }
-                double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loop.getLoopId());
-                int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loop.getLoopId());
-                double delay = CloudSim.clock() - TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-                TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-                double newAverage = (currentAverage * currentCount + delay) / (currentCount + 1);
-                TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), newAverage);
-                TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), currentCount + 1);
+                context.getTimeKeeper().loopEnded(loop.getLoopId(), tuple.getActualTupleId());
                 break;
             }
         }
@@ -917,7 +1062,7 @@ public class FogDevice extends PowerDataCenter {
     //处理从传感器或是其他雾设备传来的元组
     //（与功率模型（例如PowerModelLinear）相关联，它包含元组处理逻辑，其中相关的功耗模型用于根据资源利用率的变化更新设备功耗。）
     protected void executeTuple(SimEvent ev, String moduleName) {
-        Logger.debug(getName(), "Executing tuple on module " + moduleName);
+        Logger.debug(getName(), "Executing tuple on module {}", moduleName);
         Tuple tuple = (Tuple) ev.getData();
 
         AppModule module = getModuleByName(moduleName);
@@ -939,8 +1084,9 @@ public class FogDevice extends PowerDataCenter {
             //TODO：tuple发送到周围的邻接边缘节点中执行
         }
 
-        TimeKeeper.getInstance().tupleStartedExecution(tuple);
+        context.getTimeKeeper().tupleStartedExecution(tuple);
         updateAllocatedMips(moduleName);
+        context.getTuplePool().retain(tuple);
         processCloudletSubmit(ev, false);
         updateAllocatedMips(moduleName);
 		/*for(Vm vm : getHost().getVmList()){
@@ -956,6 +1102,8 @@ public class FogDevice extends PowerDataCenter {
         }
         appToModulesMap.get(appId).add(module.getName());
         processVmCreate(ev, false);
+        if (routingTable != null)
+            addRoutesToAncestors(getId(), module);
         if (module.isBeingInstantiated()) {
             module.setBeingInstantiated(false);
         }
@@ -984,6 +1132,7 @@ public class FogDevice extends PowerDataCenter {
         if (!getNorthTupleQueue().isEmpty()) {
             Tuple tuple = getNorthTupleQueue().poll();
             sendUpFreeLink(tuple);
+            context.getTuplePool().release(tuple);
         } else {
             setNorthLinkBusy(false);
         }
@@ -993,21 +1142,27 @@ public class FogDevice extends PowerDataCenter {
         double networkDelay = tuple.getCloudletFileSize() / getUplinkBandwidth();
         setNorthLinkBusy(true);
         send(getId(), networkDelay, FogEvents.UPDATE_NORTH_TUPLE_QUEUE);
+        context.getTuplePool().retain(tuple);
         send(parentId, networkDelay + getUplinkLatency(), FogEvents.TUPLE_ARRIVAL, tuple);
-        NetworkUsageMonitor.sendingTuple(getUplinkLatency(), tuple.getCloudletFileSize());
+        context.addNetworkUsage(getUplinkLatency() * tuple.getCloudletFileSize());
     }
 
+    /**
+     * Sends a tuple to all the neighbors, each on its neighbor link.
+     */
     protected void sendAroundFreeLink(Tuple tuple) {
-        //TODO: 添加邻居节点的send
-        //TODO: 添加邻居节点的sendingTuple
-
+        for (int neighborId : getNeighborIds())
+            sendNeighborFreeLink(tuple, neighborId);
     }
 
     protected void sendUp(Tuple tuple) {
         if (parentId > 0) {
-            if (!isNorthLinkBusy()) {
+            if (context.getConfig().isMultiChannelLinks()) {
+                sendOnLink(tuple, parentId, getUplink());
+            } else if (!isNorthLinkBusy()) {
                 sendUpFreeLink(tuple);
             } else {
+                context.getTuplePool().retain(tuple);
                 northTupleQueue.add(tuple);
             }
         }
@@ -1018,6 +1173,7 @@ public class FogDevice extends PowerDataCenter {
         if (!getSouthTupleQueue().isEmpty()) {
             Pair<Tuple, Integer> pair = getSouthTupleQueue().poll();
             sendDownFreeLink(pair.getFirst(), pair.getSecond());
+            context.getTuplePool().release(pair.getFirst());
         } else {
             setSouthLinkBusy(false);
         }
@@ -1030,36 +1186,244 @@ public class FogDevice extends PowerDataCenter {
         setSouthLinkBusy(true);
         double latency = getChildToLatencyMap().get(childId);
         send(getId(), networkDelay, FogEvents.UPDATE_SOUTH_TUPLE_QUEUE);
+        context.getTuplePool().retain(tuple);
         send(childId, networkDelay + latency, FogEvents.TUPLE_ARRIVAL, tuple);
-        NetworkUsageMonitor.sendingTuple(latency, tuple.getCloudletFileSize());
+        context.addNetworkUsage(latency * tuple.getCloudletFileSize());
+    }
+
+    /**
+     * Sends a tuple going down towards its destination module. Without a routing table, or unless
+     * {@link Config#UNICAST_DOWN_TUPLES} is set, the tuple is flooded to all the children. Otherwise
+     * a tuple bound to an instance of its destination module is only sent to the child leading to
+     * that instance, and any other tuple to the children whose subtree hosts the module; the
+     * children that would only drop the tuple do not receive it.
+     */
+    protected void routeDown(Tuple tuple) {
+        if (!context.getConfig().isUnicastDownTuples() || routingTable == null) {
+            for (int childId : getChildrenIds())
+                sendDown(tuple, childId);
+            return;
+        }
+        Integer vmId = tuple.getModuleCopyMap().get(tuple.getDestModuleName());
+        if (vmId != null) {
+            int childId = routingTable.getChildForModuleInstance(vmId);
+            if (childId != -1)
+                sendDown(tuple, childId);
+            return;
+        }
+        for (int childId : routingTable.getChildrenForModule(tuple.getDestModuleName()))
+            sendDown(tuple, childId);
     }
 
     protected void sendDown(Tuple tuple, int childId) {
-        if (getChildrenIds().contains(childId)) {
-            if (!isSouthLinkBusy()) {
+        if (routingTable != null ? routingTable.isChild(childId) : getChildrenIds().contains(childId)) {
+            if (context.getConfig().isMultiChannelLinks()) {
+                sendOnLink(tuple, childId, getChildLink(childId));
+            } else if (!isSouthLinkBusy()) {
                 sendDownFreeLink(tuple, childId);
             } else {
+                context.getTuplePool().retain(tuple);
                 southTupleQueue.add(new Pair<Tuple, Integer>(tuple, childId));
             }
         }
     }
 
+    /**
+     * Sends a tuple on a link, queued after the tuples already sent on it, with a single event for
+     * its arrival.
+     */
+    protected void sendOnLink(Tuple tuple, int destinationId, Link link) {
+        double delay = link.send(CloudSim.clock(), tuple.getCloudletFileSize());
+        context.getTuplePool().retain(tuple);
+        send(destinationId, delay, FogEvents.TUPLE_ARRIVAL, tuple);
+        context.addNetworkUsage(link.getLatency() * tuple.getCloudletFileSize());
+    }
+
+    /**
+     * Sends a tuple going to a neighbor to all the neighbors, unless it comes from a neighbor, as it
+     * only travels one hop.
+     */
+    protected void routeToNeighbors(Tuple tuple, int sourceId) {
+        if (getNeighborIds().contains(sourceId))
+            return;
+        sendAroundFreeLink(tuple);
+    }
+
+    /**
+     * Offloads a tuple about to be queued on one of the modules of the device, if its module already
+     * has {@link Config#OFFLOAD_QUEUE_THRESHOLD} tuples queued, to the neighbor expected to complete
+     * it the earliest. The completion of the tuple on the device is estimated from the tuples queued
+     * before it, and on a neighbor from its last reported load, the delay of its link and the
+     * latency of the return of the results. Tuples coming from a neighbor, tuples bound to an
+     * instance of their module and tuples already offloaded are executed locally, as are all the
+     * tuples of a device that cannot offload (see {@link #canOffload()}).
+     * <p>
+     * Only the neighbors that reported their load receive offloaded tuples, and they only report
+     * it when they can offload themselves, so that they have a link to send the results back on.
+     *
+     * @param tuple tuple whose VM id is set to the instance of its module on the device
+     * @param sourceId entity the tuple comes from
+     * @return whether the tuple was offloaded
+     */
+    protected boolean offloadToNeighbor(Tuple tuple, int sourceId) {
+        if (!canOffload() || neighborLoads.isEmpty() || getNeighborIds().contains(sourceId)
+                || tuple.getOffloadOriginId() >= 0 || tuple.getModuleCopyMap().containsKey(tuple.getDestModuleName()))
+            return false;
+        AppModule module = getModuleInstance(tuple.getDestModuleName());
+        int queueLength = module.getCloudletScheduler().runningCloudlets();
+        if (queueLength < context.getConfig().getOffloadQueueThreshold())
+            return false;
+
+        double time = CloudSim.clock();
+        double bestDelay = (queueLength + 1) * tuple.getCloudletLength() / getHost().getTotalMips();
+        int bestNeighborId = -1;
+        for (int neighborId : getNeighborIds()) {
+            LoadReport load = neighborLoads.get(neighborId);
+            if (load == null)
+                continue;
+            int neighborQueueLength = load.getQueueLength(tuple.getDestModuleName());
+            if (neighborQueueLength < 0)
+                continue;
+            Map<String, Integer> offloadedTuples = neighborOffloadedTuples.get(neighborId);
+            Integer offloaded = offloadedTuples != null ? offloadedTuples.get(tuple.getDestModuleName()) : null;
+            if (offloaded != null)
+                neighborQueueLength += offloaded;
+            Link link = getNeighborLink(neighborId);
+            double delay = link.getQueueingDelay(time) + link.getTransmissionTime(tuple.getCloudletFileSize())
+                    + 2 * link.getLatency() + (neighborQueueLength + 1) * tuple.getCloudletLength() / load.getMips();
+            if (delay < bestDelay) {
+                bestDelay = delay;
+                bestNeighborId = neighborId;
+            }
+        }
+        if (bestNeighborId < 0)
+            return false;
+
+        if (Logger.isDebugEnabled())
+            Logger.debug(getName(), "Offloading tuple {}to {}", tuple.getCloudletId(), CloudSim.getEntityName(bestNeighborId));
+        tuple.setOffloadOriginId(getId());
+        tuple.setOffloadOriginVmId(tuple.getVmId());
+        Map<String, Integer> offloadedTuples = neighborOffloadedTuples.get(bestNeighborId);
+        if (offloadedTuples == null) {
+            offloadedTuples = new HashMap<String, Integer>();
+            neighborOffloadedTuples.put(bestNeighborId, offloadedTuples);
+        }
+        Integer offloaded = offloadedTuples.get(tuple.getDestModuleName());
+        offloadedTuples.put(tuple.getDestModuleName(), offloaded != null ? offloaded + 1 : 1);
+        sendOnLink(tuple, bestNeighborId, getNeighborLink(bestNeighborId));
+        return true;
+    }
+
+    /**
+     * Sends back an offloaded tuple whose module is not on the device, as the load report it was
+     * offloaded on is stale, so that it is executed on the device it was offloaded from.
+     */
+    protected void returnOffloadedTuple(Tuple tuple) {
+        int originId = tuple.getOffloadOriginId();
+        tuple.setOffloadOriginId(-1);
+        tuple.setOffloadOriginVmId(-1);
+        if (originId != getId())
+            sendOnLink(tuple, originId, getNeighborLink(originId));
+    }
+
+    /**
+     * @return the instance of the module on the device, or null if it does not host the module
+     */
+    protected AppModule getModuleInstance(String moduleName) {
+        for (Vm vm : getHost().getVmList()) {
+            if (((AppModule) vm).getName().equals(moduleName))
+                return (AppModule) vm;
+        }
+        return null;
+    }
+
+    /**
+     * Sends a tuple to a neighbor on its neighbor link. A device without neighbor bandwidth has no
+     * link to send it on, so the tuple does not reach the neighbor.
+     */
     protected void sendNeighborFreeLink(Tuple tuple, int neighborId) {
-        double networkDelay = tuple.getCloudletFileSize() / getNeighborBandwidth();
-        setNeighborLinkBusy(true);
-//        double latency = getN
+        if (!hasNeighborLink(neighborId)) {
+            if (Logger.isDebugEnabled())
+                Logger.debug(getName(), "No link to send tuple {} to {}", tuple.getCloudletId(),
+                        CloudSim.getEntityName(neighborId));
+            return;
+        }
+        sendOnLink(tuple, neighborId, getNeighborLink(neighborId));
     }
 
-    //TODO：发送给周围的节点
     protected void sendNext(Tuple tuple, int neighborId) {
-        if (getNeighborIds().contains(neighborId)) {
-            if (!isNeighborLinkBusy()) {
+        if (getNeighborIds().contains(neighborId))
+            sendNeighborFreeLink(tuple, neighborId);
+    }
 
-            }
+    /**
+     * @return the link to the parent, with the uplink bandwidth and latency of the device
+     */
+    public Link getUplink() {
+        if (uplink == null)
+            uplink = new Link(getUplinkBandwidth(), getUplinkLatency(), context.getConfig().getLinkMtu(),
+                    context.getConfig().getLinkPacketHeaderSize());
+        return uplink;
+    }
+
+    public void setUplink(Link uplink) {
+        this.uplink = uplink;
+    }
+
+    /**
+     * @return the link to a child, with the downlink bandwidth of the device and the latency of the
+     *         child
+     */
+    public Link getChildLink(int childId) {
+        Link link = childLinks.get(childId);
+        if (link == null) {
+            Double latency = getChildToLatencyMap().get(childId);
+            link = new Link(getDownlinkBandwidth(), latency != null ? latency : 0, context.getConfig().getLinkMtu(),
+                    context.getConfig().getLinkPacketHeaderSize());
+            childLinks.put(childId, link);
         }
+        return link;
+    }
+
+    public void setChildLink(int childId, Link link) {
+        childLinks.put(childId, link);
+    }
+
+    /**
+     * @return the link to a neighbor, with the neighbor bandwidth of the device and the latency of
+     *         the neighbor
+     * @throws IllegalStateException if the device has no neighbor bandwidth and no link was set
+     */
+    public Link getNeighborLink(int neighborId) {
+        Link link = neighborLinks.get(neighborId);
+        if (link == null) {
+            if (getNeighborBandwidth() <= 0)
+                throw new IllegalStateException(getName() + " has no link to its neighbor "
+                        + CloudSim.getEntityName(neighborId) + ": its neighbor bandwidth is " + getNeighborBandwidth());
+            Double latency = getNeighborToLatencyMap() != null ? getNeighborToLatencyMap().get(neighborId) : null;
+            if (latency == null && getNeighborLatency() != null)
+                latency = getNeighborLatency().get(neighborId);
+            link = new Link(getNeighborBandwidth(), latency != null ? latency : 0, context.getConfig().getLinkMtu(),
+                    context.getConfig().getLinkPacketHeaderSize());
+            neighborLinks.put(neighborId, link);
+        }
+        return link;
+    }
+
+    /**
+     * @return whether the device has a link to the neighbor, i.e. a link was set or the device has
+     *         neighbor bandwidth
+     */
+    public boolean hasNeighborLink(int neighborId) {
+        return neighborLinks.containsKey(neighborId) || getNeighborBandwidth() > 0;
+    }
+
+    public void setNeighborLink(int neighborId, Link link) {
+        neighborLinks.put(neighborId, link);
     }
 
     protected void sendToSelf(Tuple tuple) {
+        context.getTuplePool().retain(tuple);
         send(getId(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ARRIVAL, tuple);
     }
 
@@ -1083,6 +1447,39 @@ public class FogDevice extends PowerDataCenter {
         this.neighborIds = neighborIds;
     }
 
+    /**
+     * Adds the routes to a device of the subtree of this device, or to a module instance launched
+     * on it, to the routing tables of the ancestors of this device.
+     * @param deviceId device to route to, this device or one of its children
+     * @param module module instance to route to, or null
+     */
+    private void addRoutesToAncestors(int deviceId, AppModule module) {
+        int childId = getId();
+        int ancestorId = getParentId();
+        while (ancestorId >= 0 && CloudSim.getEntity(ancestorId) instanceof FogDevice) {
+            FogDevice ancestor = (FogDevice) CloudSim.getEntity(ancestorId);
+            if (ancestor.getRoutingTable() == null)
+                break;
+            if (module != null)
+                ancestor.getRoutingTable().addModuleRoute(module.getName(), module.getId(), childId);
+            else
+                ancestor.getRoutingTable().addDeviceRoute(deviceId, childId);
+            childId = ancestorId;
+            ancestorId = ancestor.getParentId();
+        }
+    }
+
+    /**
+     * @return the downward routes of the device, or null until the controller builds them
+     */
+    public RoutingTable getRoutingTable() {
+        return routingTable;
+    }
+
+    public void setRoutingTable(RoutingTable routingTable) {
+        this.routingTable = routingTable;
+    }
+
     public List<Integer> getChildrenIds() {
         return childrenIds;
     }
@@ -1212,11 +1609,18 @@ public class FogDevice extends PowerDataCenter {
     }
 
     public double getEnergyConsumption() {
-        return energyConsumption;
+        return getPowerMonitor().getEnergyConsumption();
     }
 
     public void setEnergyConsumption(double energyConsumption) {
-        this.energyConsumption = energyConsumption;
+        getPowerMonitor().setEnergyConsumption(energyConsumption);
+    }
+
+    /**
+     * @return the energy and cost accounting of the device, with its power time series
+     */
+    public PowerMonitor getPowerMonitor() {
+        return powerMonitor;
     }
 
     public Map<Integer, Double> getChildToLatencyMap() {
@@ -1251,6 +1655,22 @@ public class FogDevice extends PowerDataCenter {
         this.level = level;
     }
 
+    public GeoLocation getGeoLocation() {
+        return geoLocation;
+    }
+
+    public void setGeoLocation(GeoLocation geoLocation) {
+        this.geoLocation = geoLocation;
+    }
+
+    public double getAccessLatency() {
+        return accessLatency;
+    }
+
+    public void setAccessLatency(double accessLatency) {
+        this.accessLatency = accessLatency;
+    }
+
     public double getRatePerMips() {
         return ratePerMips;
     }
@@ -1260,11 +1680,11 @@ public class FogDevice extends PowerDataCenter {
     }
 
     public double getTotalCost() {
-        return totalCost;
+        return getPowerMonitor().getTotalCost();
     }
 
     public void setTotalCost(double totalCost) {
-        this.totalCost = totalCost;
+        getPowerMonitor().setTotalCost(totalCost);
     }
 
     public Map<String, Map<String, Integer>> getModuleInstanceCount() {
@@ -0,0 +1,107 @@
+package org.fog.entities;
+
+/**
+ * Point-to-point link from a fog device to its parent, one of its children or one of its
+ * neighbors. Tuples are transmitted one at a time in FIFO order at the bandwidth of the link, and
+ * reach the other end after its latency. The link is fully described by the time its last
+ * transmission ends, so the arrival of a tuple is computed when the tuple is sent, without any
+ * event for the end of the transmissions.
+ *
+ * With an MTU, a tuple is transmitted as packets of at most MTU bytes of payload, each of which
+ * carries a header, and it is received when its last packet is.
+ */
+public class Link {
+
+    private final double bandwidth;
+    private final double latency;
+    private final double mtu;
+    private final double headerSize;
+
+    /** Time at which the last transmission ends. */
+    private double busyUntil;
+    private long transmittedTuples;
+    private double transmittedBytes;
+
+    /**
+     * @param bandwidth bandwidth of the link, in the unit of the tuple sizes per time unit
+     * @param latency propagation delay of the link
+     */
+    public Link(double bandwidth, double latency) {
+        this(bandwidth, latency, 0, 0);
+    }
+
+    /**
+     * @param bandwidth bandwidth of the link, in the unit of the tuple sizes per time unit
+     * @param latency propagation delay of the link
+     * @param mtu maximum payload of a packet, or 0 to transmit the tuples as single frames
+     * @param headerSize size of the header of every packet
+     */
+    public Link(double bandwidth, double latency, double mtu, double headerSize) {
+        if (bandwidth <= 0)
+            throw new IllegalArgumentException("The bandwidth should be positive, but is: " + bandwidth);
+        if (mtu < 0 || headerSize < 0)
+            throw new IllegalArgumentException("The MTU and the header size should not be negative");
+        this.bandwidth = bandwidth;
+        this.latency = latency;
+        this.mtu = mtu;
+        this.headerSize = headerSize;
+    }
+
+    /**
+     * @return the time taken to put a tuple of the given size on the link
+     */
+    public double getTransmissionTime(double size) {
+        if (mtu > 0 && size > 0)
+            size += Math.ceil(size / mtu) * headerSize;
+        return size / bandwidth;
+    }
+
+    /**
+     * Queues a tuple for transmission after the tuples already sent on the link.
+     * @param time current time
+     * @param size size of the tuple
+     * @return the delay after which the tuple is received at the other end of the link
+     */
+    public double send(double time, double size) {
+        double transmissionTime = getTransmissionTime(size);
+        busyUntil = Math.max(time, busyUntil) + transmissionTime;
+        transmittedTuples++;
+        transmittedBytes += size;
+        return busyUntil - time + latency;
+    }
+
+    /**
+     * @return the time a tuple sent at the given time waits before its transmission starts
+     */
+    public double getQueueingDelay(double time) {
+        return Math.max(0, busyUntil - time);
+    }
+
+    public boolean isBusy(double time) {
+        return busyUntil > time;
+    }
+
+    public double getBandwidth() {
+        return bandwidth;
+    }
+
+    public double getLatency() {
+        return latency;
+    }
+
+    public double getMtu() {
+        return mtu;
+    }
+
+    public double getHeaderSize() {
+        return headerSize;
+    }
+
+    public long getTransmittedTuples() {
+        return transmittedTuples;
+    }
+
+    public double getTransmittedBytes() {
+        return transmittedBytes;
+    }
+}
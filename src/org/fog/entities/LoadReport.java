@@ -0,0 +1,51 @@
+package org.fog.entities;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Load of a fog device as published to its neighbors: the MIPS of its host and the number of
+ * tuples queued on each of its modules at the time of the report. A report is immutable, so that
+ * the device sends the same report to all its neighbors; each neighbor counts on its side the
+ * tuples it offloads to the device until the next report.
+ */
+public class LoadReport {
+
+    private final int deviceId;
+    private final double time;
+    private final double mips;
+    private final Map<String, Integer> queueLengths;
+
+    /**
+     * @param deviceId id of the device reporting its load
+     * @param time time of the report
+     * @param mips MIPS of the host of the device
+     * @param queueLengths number of tuples queued on every module of the device, by module name
+     */
+    public LoadReport(int deviceId, double time, double mips, Map<String, Integer> queueLengths) {
+        this.deviceId = deviceId;
+        this.time = time;
+        this.mips = mips;
+        this.queueLengths = Collections.unmodifiableMap(queueLengths);
+    }
+
+    /**
+     * @return the number of tuples queued on the module, or -1 if the device does not host it
+     */
+    public int getQueueLength(String moduleName) {
+        Integer queueLength = queueLengths.get(moduleName);
+        return queueLength != null ? queueLength : -1;
+    }
+
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public double getMips() {
+        return mips;
+    }
+}
@@ -1,8 +1,5 @@
 package org.fog.entities;
 
-import java.util.ArrayList;
-
-import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
@@ -10,10 +7,10 @@ import org.fog.application.AppEdge;
 import org.fog.application.AppLoop;
 import org.fog.application.Application;
 import org.fog.utils.FogEvents;
-import org.fog.utils.FogUtils;
+import org.fog.utils.GatewayIndex;
 import org.fog.utils.GeoLocation;
 import org.fog.utils.Logger;
-import org.fog.utils.TimeKeeper;
+import org.fog.utils.SimulationContext;
 import org.fog.utils.distribution.Distribution;
 
 public class Sensor extends SimEntity {
@@ -30,6 +27,8 @@ public class Sensor extends SimEntity {
     private int controllerId;
     private Application app;
     private double latency;
+    /** Context of the simulation the sensor belongs to. */
+    protected final SimulationContext context = SimulationContext.getCurrent();
 
     public Sensor(String name, int userId, String appId, int gatewayDeviceId, double latency, GeoLocation geoLocation,
                   Distribution transmitDistribution, int cpuLength, int nwLength, String tupleType, String destModuleName) {
@@ -78,8 +77,7 @@ public class Sensor extends SimEntity {
         setUserId(userId);
 
         //TODO:打印传感器的相关信息
-        System.out.println("name: " + name + System.lineSeparator() + "tupleType: " + tupleType + System.lineSeparator()
-                + "userId: " + userId + System.lineSeparator() + "appId: " + appId + System.lineSeparator());
+        Logger.debug(name, "tupleType: {}, userId: {}, appId: {}", tupleType, userId, appId);
     }
 
     //边缘传感器检测节点发送信息到雾设备
@@ -96,18 +94,19 @@ public class Sensor extends SimEntity {
         long cpuLength = (long) _edge.getTupleCpuLength();
         long nwLength = (long) _edge.getTupleNwLength();
 
-        Tuple tuple = new Tuple(getAppId(), FogUtils.generateTupleId(), Tuple.UP, cpuLength, 1, nwLength, outputSize,
-                new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+        Tuple tuple = context.getTuplePool().obtain(getAppId(), context.generateTupleId(), Tuple.UP, cpuLength, 1, nwLength, outputSize,
+                TuplePool.UTILIZATION_MODEL_FULL, TuplePool.UTILIZATION_MODEL_FULL, TuplePool.UTILIZATION_MODEL_FULL);
         tuple.setUserId(getUserId());
         tuple.setTupleType(getTupleType());
 
         tuple.setDestModuleName(_edge.getDestination());
         tuple.setSrcModuleName(getSensorName());
-        Logger.debug(getName(), "Sending tuple with tupleId = " + tuple.getCloudletId());
+        Logger.debug(getName(), "Sending tuple with tupleId = {}", tuple.getCloudletId());
 
         int actualTupleId = updateTimings(getSensorName(), tuple.getDestModuleName());
         tuple.setActualTupleId(actualTupleId);
 
+        context.getTuplePool().retain(tuple);
         send(gatewayDeviceId, getLatency(), FogEvents.TUPLE_ARRIVAL, tuple);
     }
 
@@ -115,13 +114,7 @@ public class Sensor extends SimEntity {
         Application application = getApp();
         for (AppLoop loop : application.getLoops()) {
             if (loop.hasEdge(src, dest)) {
-
-                int tupleId = TimeKeeper.getInstance().getUniqueId();
-                if (!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-                    TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-                TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-                TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-                return tupleId;
+                return context.getTimeKeeper().tupleEmitted(loop.getLoopId());
             }
         }
         return -1;
@@ -129,6 +122,9 @@ public class Sensor extends SimEntity {
 
     @Override
     public void startEntity() {
+        GatewayIndex gatewayIndex = context.getGatewayIndex();
+        if (gatewayIndex != null)
+            gatewayIndex.assignGateway(this);
         send(gatewayDeviceId, CloudSim.getMinTimeBetweenEvents(), FogEvents.SENSOR_JOINED, geoLocation);
         send(getId(), getTransmitDistribution().getNextValue(), FogEvents.EMIT_TUPLE);
     }
@@ -156,6 +152,17 @@ public class Sensor extends SimEntity {
         return gatewayDeviceId;
     }
 
+    /**
+     * @return the number of sensors this entity stands for that send their tuples to a gateway
+     */
+    public int getSensorCount(int gatewayDeviceId) {
+        return this.gatewayDeviceId == gatewayDeviceId ? 1 : 0;
+    }
+
+    public long getOutputSize() {
+        return outputSize;
+    }
+
     public void setGatewayDeviceId(int gatewayDeviceId) {
         this.gatewayDeviceId = gatewayDeviceId;
     }
@@ -0,0 +1,280 @@
+package org.fog.entities;
+
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.application.AppEdge;
+import org.fog.application.AppLoop;
+import org.fog.application.Application;
+import org.fog.utils.FogEvents;
+import org.fog.utils.GatewayIndex;
+import org.fog.utils.GeoLocation;
+import org.fog.utils.IntIntHashMap;
+import org.fog.utils.Logger;
+import org.fog.utils.TimeKeeper;
+import org.fog.utils.distribution.Distribution;
+
+/**
+ * A single entity standing for many sensors of the same tuple type and transmit distribution, each
+ * with its own gateway and latency, so that N sensors do not need N entities.
+ *
+ * Each member sensor keeps its own next emission time, drawn from the shared distribution exactly
+ * as a {@link Sensor} does, and the group keeps them in a heap: one EMIT_TUPLE event serves all the
+ * members due at exactly the same time. The events are thus only merged when the members emit at
+ * the same times, as with a deterministic distribution; with a random one, the emission times
+ * differ and the group still schedules about one event per member and period, like separate
+ * sensors. Every member still emits its own tuple, registered with the
+ * {@link TimeKeeper} and sent to its gateway with its latency, so the gateways see the same arrivals
+ * as from separate sensors. The tuples of one emission are sent gateway by gateway. The application
+ * edge and loop of the tuples are looked up once.
+ *
+ * A group can be put in the sensor list given to the controller and the module placements, which
+ * count its members through {@link #getSensorCount(int)}.
+ */
+public class SensorGroup extends Sensor {
+
+    /** Gateway, latency and location of the member sensors, by member index. */
+    private int[] gatewayDeviceIds = new int[16];
+    private double[] latencies = new double[16];
+    private GeoLocation[] geoLocations = new GeoLocation[16];
+    private int numSensors;
+
+    /** Number of member sensors by gateway. */
+    private final IntIntHashMap sensorsPerGateway = new IntIntHashMap();
+
+    /** Min-heap of the member indices by next emission time. */
+    private int[] heap;
+    private double[] nextEmitTimes;
+
+    /** Gateway and index of the members due at an emission, to send their tuples by gateway. */
+    private long[] dueSensors;
+
+    /** Edge and loop of the emitted tuples, looked up at the first emission. */
+    private AppEdge edge;
+    private int loopId = -1;
+
+    /** Emission time of the pending EMIT_TUPLE event. */
+    private double scheduledEmitTime;
+
+    public SensorGroup(String name, String tupleType, int userId, String appId, Distribution transmitDistribution) {
+        super(name, tupleType, userId, appId, transmitDistribution);
+    }
+
+    /**
+     * Adds a member sensor. Members must be added before the simulation starts.
+     *
+     * @param gatewayDeviceId the fog device the sensor sends its tuples to
+     * @param latency         latency of the connection between the sensor and its gateway
+     * @return the index of the member
+     */
+    public int addSensor(int gatewayDeviceId, double latency) {
+        return addSensor(gatewayDeviceId, latency, null);
+    }
+
+    /**
+     * Adds a member sensor. Members must be added before the simulation starts.
+     *
+     * @param gatewayDeviceId the fog device the sensor sends its tuples to
+     * @param latency         latency of the connection between the sensor and its gateway
+     * @param geoLocation     location of the sensor, sent to the gateway when the sensor joins
+     * @return the index of the member
+     */
+    public int addSensor(int gatewayDeviceId, double latency, GeoLocation geoLocation) {
+        if (numSensors == gatewayDeviceIds.length) {
+            int capacity = 2 * numSensors;
+            gatewayDeviceIds = Arrays.copyOf(gatewayDeviceIds, capacity);
+            latencies = Arrays.copyOf(latencies, capacity);
+            geoLocations = Arrays.copyOf(geoLocations, capacity);
+        }
+        gatewayDeviceIds[numSensors] = gatewayDeviceId;
+        latencies[numSensors] = latency;
+        geoLocations[numSensors] = geoLocation;
+        sensorsPerGateway.put(gatewayDeviceId, sensorsPerGateway.get(gatewayDeviceId, 0) + 1);
+        return numSensors++;
+    }
+
+    @Override
+    public int getSensorCount(int gatewayDeviceId) {
+        return sensorsPerGateway.get(gatewayDeviceId, 0);
+    }
+
+    public int getNumSensors() {
+        return numSensors;
+    }
+
+    public int getGatewayDeviceId(int sensor) {
+        return gatewayDeviceIds[sensor];
+    }
+
+    public double getLatency(int sensor) {
+        return latencies[sensor];
+    }
+
+    public GeoLocation getGeoLocation(int sensor) {
+        return geoLocations[sensor];
+    }
+
+    public void setLatency(int sensor, double latency) {
+        latencies[sensor] = latency;
+    }
+
+    /**
+     * Sets the gateway of a member sensor. Members must not change gateway once the simulation has
+     * started, except when joining.
+     */
+    public void setGatewayDeviceId(int sensor, int gatewayDeviceId) {
+        int previous = gatewayDeviceIds[sensor];
+        if (previous == gatewayDeviceId)
+            return;
+        sensorsPerGateway.put(previous, sensorsPerGateway.get(previous, 0) - 1);
+        if (sensorsPerGateway.get(previous, 0) == 0)
+            sensorsPerGateway.remove(previous, 0);
+        sensorsPerGateway.put(gatewayDeviceId, sensorsPerGateway.get(gatewayDeviceId, 0) + 1);
+        gatewayDeviceIds[sensor] = gatewayDeviceId;
+    }
+
+    @Override
+    public void startEntity() {
+        heap = new int[numSensors];
+        nextEmitTimes = new double[numSensors];
+        dueSensors = new long[numSensors];
+        GatewayIndex gatewayIndex = context.getGatewayIndex();
+        for (int i = 0; i < numSensors; i++) {
+            if (gatewayIndex != null)
+                gatewayIndex.assignGateway(this, i);
+            send(gatewayDeviceIds[i], CloudSim.getMinTimeBetweenEvents(), FogEvents.SENSOR_JOINED, geoLocations[i]);
+            nextEmitTimes[i] = getTransmitDistribution().getNextValue();
+            heap[i] = i;
+            siftUp(i);
+        }
+        scheduleNextEmission();
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        switch (ev.getTag()) {
+            case FogEvents.TUPLE_ACK:
+                break;
+            case FogEvents.EMIT_TUPLE:
+                emitDueTuples();
+                scheduleNextEmission();
+                break;
+        }
+    }
+
+    /**
+     * Emits the tuples of all the members due now, ordered by gateway and then by member index, so
+     * that the tuples for the same gateway are sent one after the other, and draws their next
+     * emission time.
+     */
+    private void emitDueTuples() {
+        double now = Math.max(CloudSim.clock(), scheduledEmitTime);
+        int due = 0;
+        while (due < numSensors && nextEmitTimes[heap[0]] <= now) {
+            // the due members are moved to the end of the heap array
+            int sensor = heap[0];
+            int last = numSensors - 1 - due;
+            heap[0] = heap[last];
+            heap[last] = sensor;
+            due++;
+            siftDown(0, last);
+        }
+        for (int i = 0; i < due; i++) {
+            int sensor = heap[numSensors - due + i];
+            dueSensors[i] = ((long) gatewayDeviceIds[sensor] << 32) | sensor;
+        }
+        Arrays.sort(dueSensors, 0, due);
+        for (int i = 0; i < due; i++) {
+            int sensor = (int) dueSensors[i];
+            transmit(sensor);
+            nextEmitTimes[sensor] = CloudSim.clock() + getTransmitDistribution().getNextValue();
+            heap[numSensors - due + i] = sensor;
+            siftUp(numSensors - due + i);
+        }
+    }
+
+    private void scheduleNextEmission() {
+        if (numSensors > 0) {
+            scheduledEmitTime = nextEmitTimes[heap[0]];
+            send(getId(), scheduledEmitTime - CloudSim.clock(), FogEvents.EMIT_TUPLE);
+        }
+    }
+
+    /**
+     * Emits the tuple of a member sensor, as {@link Sensor#transmit()} does for a sensor.
+     */
+    public void transmit(int sensor) {
+        if (edge == null) {
+            lookupEdge();
+        }
+        Tuple tuple = context.getTuplePool().obtain(getAppId(), context.generateTupleId(), Tuple.UP,
+                (long) edge.getTupleCpuLength(), 1, (long) edge.getTupleNwLength(), getOutputSize(),
+                TuplePool.UTILIZATION_MODEL_FULL, TuplePool.UTILIZATION_MODEL_FULL, TuplePool.UTILIZATION_MODEL_FULL);
+        tuple.setUserId(getUserId());
+        tuple.setTupleType(getTupleType());
+
+        tuple.setDestModuleName(edge.getDestination());
+        tuple.setSrcModuleName(getSensorName());
+        Logger.debug(getName(), "Sending tuple with tupleId = {}", tuple.getCloudletId());
+
+        tuple.setActualTupleId(loopId >= 0 ? context.getTimeKeeper().tupleEmitted(loopId) : -1);
+
+        context.getTuplePool().retain(tuple);
+        send(gatewayDeviceIds[sensor], latencies[sensor], FogEvents.TUPLE_ARRIVAL, tuple);
+    }
+
+    @Override
+    public void transmit() {
+        for (int i = 0; i < numSensors; i++) {
+            transmit(i);
+        }
+    }
+
+    private void lookupEdge() {
+        Application application = getApp();
+        for (AppEdge appEdge : application.getEdges()) {
+            if (appEdge.getSource().equals(getTupleType()))
+                edge = appEdge;
+        }
+        if (edge == null)
+            throw new IllegalStateException("No application edge from " + getTupleType() + " in " + getAppId());
+        for (AppLoop loop : application.getLoops()) {
+            if (loop.hasEdge(getSensorName(), edge.getDestination())) {
+                loopId = loop.getLoopId();
+                break;
+            }
+        }
+    }
+
+    private boolean before(int s1, int s2) {
+        double t1 = nextEmitTimes[s1], t2 = nextEmitTimes[s2];
+        return t1 < t2 || (t1 == t2 && s1 < s2);
+    }
+
+    private void siftUp(int index) {
+        int sensor = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(sensor, heap[parent]))
+                break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = sensor;
+    }
+
+    private void siftDown(int index, int size) {
+        int sensor = heap[index];
+        int child;
+        while ((child = 2 * index + 1) < size) {
+            if (child + 1 < size && before(heap[child + 1], heap[child]))
+                child++;
+            if (!before(heap[child], sensor))
+                break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = sensor;
+    }
+}
@@ -31,6 +31,21 @@ public class Tuple extends Cloudlet{
 	 * Map from moduleName to vmId of a module instance
 	 */
 	private Map<String, Integer> moduleCopyMap;
+	/**
+	 * Device that offloaded the tuple to one of its neighbors, and the instance of the destination
+	 * module it would have executed the tuple on, to which the results of the tuple are returned;
+	 * -1 if the tuple was not offloaded.
+	 */
+	private int offloadOriginId;
+	private int offloadOriginVmId;
+	/**
+	 * Whether the tuple was obtained from the {@link TuplePool} and returns to it once released.
+	 */
+	private boolean pooled;
+	/**
+	 * Number of holders (in-flight events, link queues and schedulers) of a pooled tuple.
+	 */
+	private int references;
 	
 	public Tuple(String appId, int cloudletId, int direction, long cloudletLength, int pesNumber,
 			long cloudletFileSize, long cloudletOutputSize,
@@ -44,6 +59,35 @@ public class Tuple extends Cloudlet{
 		setDirection(direction);
 		setSourceDeviceId(-1);
 		setModuleCopyMap(new HashMap<String, Integer>());
+		setOffloadOriginId(-1);
+		setOffloadOriginVmId(-1);
+	}
+
+	/**
+	 * Resets the tuple to the state of a newly constructed one, keeping its module copy map
+	 * instance. Used by the {@link TuplePool} to recycle released tuples.
+	 */
+	void reinitialize(String appId, int cloudletId, int direction, long cloudletLength, int pesNumber,
+			long cloudletFileSize, long cloudletOutputSize,
+			UtilizationModel utilizationModelCpu,
+			UtilizationModel utilizationModelRam,
+			UtilizationModel utilizationModelBw) {
+		reinitialize(cloudletId, cloudletLength, pesNumber, cloudletFileSize,
+				cloudletOutputSize, utilizationModelCpu, utilizationModelRam,
+				utilizationModelBw);
+		setAppId(appId);
+		setDirection(direction);
+		setSourceDeviceId(-1);
+		setTupleType(null);
+		setDestModuleName(null);
+		setSrcModuleName(null);
+		setActualTupleId(0);
+		setActuatorId(0);
+		setSourceModuleId(0);
+		getModuleCopyMap().clear();
+		setOffloadOriginId(-1);
+		setOffloadOriginVmId(-1);
+		references = 0;
 	}
 
 	public int getActualTupleId() {
@@ -126,4 +170,36 @@ public class Tuple extends Cloudlet{
 		this.sourceModuleId = sourceModuleId;
 	}
 
+	public int getOffloadOriginId() {
+		return offloadOriginId;
+	}
+
+	public void setOffloadOriginId(int offloadOriginId) {
+		this.offloadOriginId = offloadOriginId;
+	}
+
+	public int getOffloadOriginVmId() {
+		return offloadOriginVmId;
+	}
+
+	public void setOffloadOriginVmId(int offloadOriginVmId) {
+		this.offloadOriginVmId = offloadOriginVmId;
+	}
+
+	boolean isPooled() {
+		return pooled;
+	}
+
+	void setPooled(boolean pooled) {
+		this.pooled = pooled;
+	}
+
+	int getReferences() {
+		return references;
+	}
+
+	void setReferences(int references) {
+		this.references = references;
+	}
+
 }
@@ -0,0 +1,138 @@
+package org.fog.entities;
+
+import java.util.ArrayDeque;
+
+import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.fog.utils.SimulationContext;
+
+/**
+ * Recycling factory for the tuples created on the hot path of the simulation (sensor emissions,
+ * periodic tuples and tuples resulting from a module execution).
+ *
+ * A pooled tuple is reference counted: every holder of the tuple (a TUPLE_ARRIVAL event in flight,
+ * a link queue or a cloudlet scheduler) takes a reference with {@link #retain(Tuple)} and drops it
+ * with {@link #release(Tuple)}. The same tuple object may be held several times at once, e.g. when
+ * a DOWN tuple is broadcast to all the children of a device. The tuple returns to the pool only when
+ * its last reference is dropped, so entities must not keep a pooled tuple after having released it.
+ * Every path that ends the life of a tuple drops the references it holds: completion, cancellation,
+ * a failed move, and arrivals that are dropped (no module instance, outside the coverage of the
+ * application). Releasing a tuple that has no reference left is an error.
+ * Tuples created with the {@link Tuple} constructor are never recycled.
+ *
+ * Every {@link SimulationContext} has its own pool, so that tuples never cross simulations.
+ */
+public class TuplePool {
+
+	/** Utilization model shared by all the tuples, {@link UtilizationModelFull} being stateless. */
+	public static final UtilizationModel UTILIZATION_MODEL_FULL = new UtilizationModelFull();
+
+	/** Maximum number of idle tuples kept by the pool. */
+	public static final int MAX_SIZE = 65536;
+
+	private final ArrayDeque<Tuple> pool = new ArrayDeque<Tuple>();
+
+	private boolean enabled = true;
+	private long numCreated = 0;
+	private long numReused = 0;
+
+	/**
+	 * @return the pool of the current simulation context
+	 * @see SimulationContext#getCurrent()
+	 */
+	public static TuplePool getInstance() {
+		return SimulationContext.getCurrent().getTuplePool();
+	}
+
+	/**
+	 * Returns a tuple with the same state as a tuple constructed with
+	 * {@link Tuple#Tuple(String, int, int, long, int, long, long, UtilizationModel, UtilizationModel, UtilizationModel)},
+	 * reusing a released tuple when one is available.
+	 */
+	public Tuple obtain(String appId, int cloudletId, int direction, long cloudletLength, int pesNumber,
+			long cloudletFileSize, long cloudletOutputSize,
+			UtilizationModel utilizationModelCpu,
+			UtilizationModel utilizationModelRam,
+			UtilizationModel utilizationModelBw) {
+		Tuple tuple = pool.pollLast();
+		if (tuple == null) {
+			numCreated++;
+			tuple = new Tuple(appId, cloudletId, direction, cloudletLength, pesNumber, cloudletFileSize,
+					cloudletOutputSize, utilizationModelCpu, utilizationModelRam, utilizationModelBw);
+			tuple.setPooled(enabled);
+			return tuple;
+		}
+		numReused++;
+		tuple.reinitialize(appId, cloudletId, direction, cloudletLength, pesNumber, cloudletFileSize,
+				cloudletOutputSize, utilizationModelCpu, utilizationModelRam, utilizationModelBw);
+		return tuple;
+	}
+
+	/**
+	 * Takes a reference to a pooled tuple. Has no effect on other tuples.
+	 */
+	public void retain(Tuple tuple) {
+		if (tuple.isPooled())
+			tuple.setReferences(tuple.getReferences() + 1);
+	}
+
+	/**
+	 * Drops a reference to a pooled tuple, returning the tuple to the pool if it was the last one.
+	 * Has no effect on other tuples.
+	 *
+	 * @throws IllegalStateException if the tuple has no reference left, i.e. a reference was dropped twice
+	 */
+	public void release(Tuple tuple) {
+		if (!tuple.isPooled())
+			return;
+		if (tuple.getReferences() <= 0)
+			throw new IllegalStateException("Tuple " + tuple.getCloudletId() + " released without a reference");
+		tuple.setReferences(tuple.getReferences() - 1);
+		if (tuple.getReferences() == 0 && enabled && pool.size() < MAX_SIZE)
+			pool.addLast(tuple);
+	}
+
+	/**
+	 * Empties the pool and resets its counters.
+	 */
+	public void clear() {
+		pool.clear();
+		numCreated = 0;
+		numReused = 0;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables recycling. When disabled, every obtained tuple is a new, unpooled tuple.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled)
+			pool.clear();
+	}
+
+	/**
+	 * @return the number of idle tuples in the pool
+	 */
+	public int size() {
+		return pool.size();
+	}
+
+	/**
+	 * @return the number of tuples allocated by {@link #obtain}
+	 */
+	public long getNumCreated() {
+		return numCreated;
+	}
+
+	/**
+	 * @return the number of tuples recycled by {@link #obtain}
+	 */
+	public long getNumReused() {
+		return numReused;
+	}
+
+}
@@ -1,7 +1,12 @@
 package org.fog.placement;
 
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 
+import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
@@ -12,16 +17,27 @@ import org.fog.application.Application;
 import org.fog.entities.Actuator;
 import org.fog.entities.FogDevice;
 import org.fog.entities.Sensor;
-import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
-import org.fog.utils.FogUtils;
-import org.fog.utils.NetworkUsageMonitor;
-import org.fog.utils.TimeKeeper;
+import org.fog.utils.GatewayIndex;
+import org.fog.utils.PowerMonitor;
+import org.fog.utils.RoutingTable;
+import org.fog.utils.SimulationConfig;
+import org.fog.utils.SimulationContext;
 
 public class Controller extends SimEntity {
 
+    /**
+     * Only-cloud switch of the default simulation context, which reads and writes this field.
+     *
+     * @deprecated use {@link SimulationConfig#isOnlyCloud()} and
+     *             {@link SimulationConfig#setOnlyCloud(boolean)} on the settings of the context
+     */
+    @Deprecated
     public static boolean ONLY_CLOUD = false;
 
+    /** Context of the simulation the controller belongs to. */
+    private final SimulationContext context = SimulationContext.getCurrent();
+
     private List<FogDevice> fogDevices;
     private List<Sensor> sensors;
     private List<Actuator> actuators;
@@ -43,6 +59,8 @@ public class Controller extends SimEntity {
         setActuators(actuators);
         setSensors(sensors);
         connectWithLatencies();
+        buildRoutingTables();
+        assignNearestGateways();
     }
 
     private FogDevice getFogDeviceById(int id) {
@@ -53,6 +71,51 @@ public class Controller extends SimEntity {
         return null;
     }
 
+    /**
+     * Builds the routing table of every device once the topology is wired, routing each device of
+     * its subtree through the child leading to it.
+     */
+    private void buildRoutingTables() {
+        Map<Integer, FogDevice> devicesById = new HashMap<Integer, FogDevice>();
+        for (FogDevice fogDevice : getFogDevices()) {
+            devicesById.put(fogDevice.getId(), fogDevice);
+            fogDevice.setRoutingTable(new RoutingTable(fogDevice.getChildrenIds()));
+        }
+        for (FogDevice fogDevice : getFogDevices()) {
+            int childId = fogDevice.getId();
+            FogDevice ancestor = devicesById.get(fogDevice.getParentId());
+            for (int depth = 0; ancestor != null && depth < getFogDevices().size(); depth++) {
+                ancestor.getRoutingTable().addDeviceRoute(fogDevice.getId(), childId);
+                childId = ancestor.getId();
+                ancestor = devicesById.get(ancestor.getParentId());
+            }
+        }
+    }
+
+    /**
+     * Connects the sensors and actuators having a location to the nearest of the gateways having
+     * one, if any, and sets the index of these gateways on the simulation context, so that the
+     * sensors and actuators join their nearest gateway. The gateways are the devices of the gateway
+     * level of the settings, or the devices without children if it is not set, so that the cloud
+     * and the proxies are never chosen. Topologies without locations are left unchanged.
+     * @see SimulationConfig#getGatewayLevel()
+     */
+    private void assignNearestGateways() {
+        int gatewayLevel = context.getConfig().getGatewayLevel();
+        List<FogDevice> gateways = new ArrayList<FogDevice>();
+        for (FogDevice fogDevice : getFogDevices()) {
+            if (fogDevice.getGeoLocation() == null)
+                continue;
+            if (gatewayLevel >= 0 ? fogDevice.getLevel() == gatewayLevel : fogDevice.getChildrenIds().isEmpty())
+                gateways.add(fogDevice);
+        }
+        if (gateways.isEmpty())
+            return;
+        GatewayIndex gatewayIndex = new GatewayIndex(gateways);
+        gatewayIndex.assignGateways(getSensors(), getActuators());
+        context.setGatewayIndex(gatewayIndex);
+    }
+
     //TODO: 设计传输连接延迟(上一级资源节点和下级资源节点之间||同级资源节点之间)
     private void connectWithLatencies() {
         System.out.println("========= child latency ==========");
@@ -101,9 +164,9 @@ public class Controller extends SimEntity {
                 send(getId(), getAppLaunchDelays().get(appId), FogEvents.APP_SUBMIT, applications.get(appId));
         }
 
-        send(getId(), Config.RESOURCE_MANAGE_INTERVAL, FogEvents.CONTROLLER_RESOURCE_MANAGE);
+        send(getId(), context.getConfig().getResourceManageInterval(), FogEvents.CONTROLLER_RESOURCE_MANAGE);
 
-        send(getId(), Config.MAX_SIMULATION_TIME, FogEvents.STOP_SIMULATION);
+        send(getId(), context.getConfig().getMaxSimulationTime(), FogEvents.STOP_SIMULATION);
 
         for (FogDevice dev : getFogDevices())
             sendNow(dev.getId(), FogEvents.RESOURCE_MGMT);
@@ -128,17 +191,41 @@ public class Controller extends SimEntity {
                 printPowerDetails();
                 printCostDetails();
                 printNetworkUsageDetails();
-                System.exit(0);
+                writePowerTimeSeries();
+                if (context.getConfig().isExitOnStop())
+                    System.exit(0);
+                CloudSim.abruptallyTerminate();
                 break;
 
         }
     }
 
     private void printNetworkUsageDetails() {
-        System.out.println("Total network usage = " + NetworkUsageMonitor.getNetworkUsage() / Config.MAX_SIMULATION_TIME);
+        System.out.println("Total network usage = " + context.getNetworkUsage() / context.getConfig().getMaxSimulationTime());
+    }
+
+    /**
+     * Writes the power time series of the devices to the file of the power time series of the
+     * settings of the simulation, if set.
+     * @see SimulationConfig#getPowerTimeSeriesFile()
+     */
+    private void writePowerTimeSeries() {
+        String file = context.getConfig().getPowerTimeSeriesFile();
+        if (file == null)
+            return;
+        try {
+            Writer output = new BufferedWriter(new FileWriter(file));
+            try {
+                PowerMonitor.writeTimeSeries(output, getFogDevices());
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            Log.printLine("Could not write the power time series to {}: {}", file, e.getMessage());
+        }
     }
 
-    private FogDevice getCloud() {
+    public FogDevice getCloud() {
         for (FogDevice dev : getFogDevices())
             if (dev.getName().equals("cloud"))
                 return dev;
@@ -155,7 +242,7 @@ public class Controller extends SimEntity {
         }
     }
 
-    private String getStringForLoopId(int loopId) {
+    public String getStringForLoopId(int loopId) {
         for (String appId : getApplications().keySet()) {
             Application app = getApplications().get(appId);
             for (AppLoop loop : app.getLoops()) {
@@ -171,11 +258,11 @@ public class Controller extends SimEntity {
         System.out.println("=========================================");
         System.out.println("============== RESULTS ==================");
         System.out.println("=========================================");
-        System.out.println("EXECUTION TIME : " + (Calendar.getInstance().getTimeInMillis() - TimeKeeper.getInstance().getSimulationStartTime()));
+        System.out.println("EXECUTION TIME : " + (Calendar.getInstance().getTimeInMillis() - context.getTimeKeeper().getSimulationStartTime()));
         System.out.println("=========================================");
         System.out.println("APPLICATION LOOP DELAYS");
         System.out.println("=========================================");
-        for (Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()) {
+        for (Integer loopId : context.getTimeKeeper().getLoopIds()) {
 			/*double average = 0, count = 0;
 			for(int tupleId : TimeKeeper.getInstance().getLoopIdToTupleIds().get(loopId)){
 				Double startTime = 	TimeKeeper.getInstance().getEmitTimes().get(tupleId);
@@ -186,21 +273,35 @@ public class Controller extends SimEntity {
 				count += 1;
 			}
 			System.out.println(getStringForLoopId(loopId) + " ---> "+(average/count));*/
-            System.out.println(getStringForLoopId(loopId) + " ---> " + TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId));
+            System.out.println(getStringForLoopId(loopId) + " ---> " + context.getTimeKeeper().getLoopIdToCurrentAverage().get(loopId));
         }
         System.out.println("=========================================");
         System.out.println("TUPLE CPU EXECUTION DELAY");
         System.out.println("=========================================");
 
-        for (String tupleType : TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().keySet()) {
-            System.out.println(tupleType + " ---> " + TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().get(tupleType));
+        for (String tupleType : context.getTimeKeeper().getTupleTypeToAverageCpuTime().keySet()) {
+            System.out.println(tupleType + " ---> " + context.getTimeKeeper().getTupleTypeToAverageCpuTime().get(tupleType));
         }
 
         System.out.println("=========================================");
+        if (context.getTimeKeeper().isStreaming()) {
+            System.out.println("APPLICATION LOOP DELAY PERCENTILES");
+            System.out.println("=========================================");
+            for (Integer loopId : context.getTimeKeeper().getLoopIdToLatencies().keySet()) {
+                System.out.println(getStringForLoopId(loopId) + " ---> " + context.getTimeKeeper().getLoopIdToLatencies().get(loopId));
+            }
+            System.out.println("=========================================");
+            System.out.println("TUPLE CPU EXECUTION DELAY PERCENTILES");
+            System.out.println("=========================================");
+            for (String tupleType : context.getTimeKeeper().getTupleTypeToCpuTimes().keySet()) {
+                System.out.println(tupleType + " ---> " + context.getTimeKeeper().getTupleTypeToCpuTimes().get(tupleType));
+            }
+            System.out.println("=========================================");
+        }
     }
 
     protected void manageResources() {
-        send(getId(), Config.RESOURCE_MANAGE_INTERVAL, FogEvents.CONTROLLER_RESOURCE_MANAGE);
+        send(getId(), context.getConfig().getResourceManageInterval(), FogEvents.CONTROLLER_RESOURCE_MANAGE);
     }
 
     private void processTupleFinished(SimEvent ev) {
@@ -211,7 +312,7 @@ public class Controller extends SimEntity {
     }
 
     public void submitApplication(Application application, int delay, ModulePlacement modulePlacement) {
-        FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+        context.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
         getApplications().put(application.getAppId(), application);
         getAppLaunchDelays().put(application.getAppId(), delay);
         getAppModulePlacementPolicy().put(application.getAppId(), modulePlacement);
@@ -247,7 +348,7 @@ public class Controller extends SimEntity {
     //处理整体应用的开端
     private void processAppSubmit(Application application) {
         System.out.println(CloudSim.clock() + " Submitted application " + application.getAppId());
-        FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+        context.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
         getApplications().put(application.getAppId(), application);
 
         ModulePlacement modulePlacement = getAppModulePlacementPolicy().get(application.getAppId());
@@ -412,10 +412,11 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	private Map<String, Integer> getAssociatedSensors(FogDevice device) {
 		Map<String, Integer> endpoints = new HashMap<String, Integer>();
 		for(Sensor sensor : getSensors()){
-			if(sensor.getGatewayDeviceId()==device.getId()){
+			int count = sensor.getSensorCount(device.getId());
+			if(count > 0){
 				if(!endpoints.containsKey(sensor.getTupleType()))
 					endpoints.put(sensor.getTupleType(), 0);
-				endpoints.put(sensor.getTupleType(), endpoints.get(sensor.getTupleType())+1);
+				endpoints.put(sensor.getTupleType(), endpoints.get(sensor.getTupleType())+count);
 			}
 		}
 		return endpoints;
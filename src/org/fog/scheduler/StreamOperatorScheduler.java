@@ -1,16 +1,235 @@
 package org.fog.scheduler;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.Pe;
-import org.cloudbus.cloudsim.VmSchedulerTimeShared;
-import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.lists.PeList;
 import org.cloudbus.cloudsim.sdn.overbooking.VmSchedulerTimeSharedOverbookingEnergy;
 
+/**
+ * VM scheduler of the fog devices, on which the operators are either busy, requesting the whole
+ * capacity of the host, or idle, requesting nothing.
+ *
+ * Reallocating the PEs of all the VMs whenever an operator becomes busy or idle costs a time
+ * quadratic in the number of VMs, as every allocation over the capacity of the host redistributes
+ * the MIPS of all the VMs allocated so far. The allocation of such a host only depends on its set of
+ * busy VMs though, so {@link #allocatePesForVms(List, BitSet, List, List)} and
+ * {@link #allocateBusyPesForVm(Vm, List)} keep that set and only update the VMs whose state or share
+ * changes. Any other allocation or deallocation goes through the regular time-shared policy and
+ * makes the next call rebuild the allocation of all the VMs.
+ *
+ * A VM listed several times by the host shares its allocation between its occurrences, as the
+ * time-shared policy keys its allocations by VM uid, so the busy VMs of such an allocation are
+ * counted once, as long as they request the whole host.
+ */
 public class StreamOperatorScheduler extends VmSchedulerTimeSharedOverbookingEnergy{
 
+	/** Whether the current allocation was made by {@link #allocatePesForVms(List, BitSet, List, List)}. */
+	private boolean incremental;
+
+	/** VMs of the current allocation, and their number with repetitions. */
+	private final Set<String> allocatedVmUids = new HashSet<String>();
+	private int allocatedVmCount;
+
+	/**
+	 * Whether a VM appears several times in the VM list of the host, which happens when the same
+	 * module is placed twice on a device, and the state of every occurrence of a VM in a call.
+	 */
+	private boolean repeatedVms;
+	private final Map<String, Boolean> vmStates = new HashMap<String, Boolean>();
+
+	/** Busy VMs of the current allocation. */
+	private final Set<String> busyVmUids = new HashSet<String>();
+
+	/** VMs whose state changed since the last update of the allocation. */
+	private final List<String> changedVmUids = new ArrayList<String>();
+
+	/** Shares requested by the busy and the idle VMs of the current allocation. */
+	private List<Double> busyMipsRequested;
+	private List<Double> idleMipsRequested;
+
+	/** Share allocated to every busy VM, and its value. */
+	private List<Double> busyMipsAllocated;
+	private double busyMips = -1;
+
+	private static final List<Double> IDLE_MIPS_ALLOCATED = Collections.singletonList(0.0);
+
 	public StreamOperatorScheduler(List<? extends Pe> pelist) {
 		super(pelist);
 	}
+
+	/**
+	 * Allocates the PEs of all the VMs of the host, the busy ones requesting
+	 * <tt>busyMipsShare</tt> and the others <tt>idleMipsShare</tt>. The scheduler ends in the same
+	 * state as after {@link #deallocatePesForAllVms()} followed by
+	 * {@link #allocatePesForVm(Vm, List)} for every VM in order, except that the utilization history
+	 * only records the changes of the available MIPS.
+	 *
+	 * @param vms all the VMs of the host
+	 * @param busy index in <tt>vms</tt> of the busy VMs
+	 * @param busyMipsShare share of one PE requested by a busy VM
+	 * @param idleMipsShare share of one PE of zero MIPS requested by an idle VM
+	 */
+	public void allocatePesForVms(List<? extends Vm> vms, BitSet busy, List<Double> busyMipsShare, List<Double> idleMipsShare) {
+		if (!canUpdate(vms, busy, busyMipsShare, idleMipsShare)) {
+			deallocatePesForAllVms();
+			for (int i = 0; i < vms.size(); i++) {
+				allocatePesForVm(vms.get(i), busy.get(i) ? busyMipsShare : idleMipsShare);
+			}
+			startUpdates(vms, busy, busyMipsShare, idleMipsShare);
+			return;
+		}
+		for (int i = 0; i < vms.size(); i++) {
+			setBusy(vms.get(i).getUid(), busy.get(i));
+		}
+		setPesInUse(vms.size());
+		updateAllocation();
+	}
+
+	/**
+	 * Makes a VM busy, leaving the scheduler in the same state as after
+	 * {@link #deallocatePesForVm(Vm)} followed by {@link #allocatePesForVm(Vm, List)} with
+	 * <tt>busyMipsShare</tt>.
+	 */
+	public void allocateBusyPesForVm(Vm vm, List<Double> busyMipsShare) {
+		if (incremental && busyMipsShare.equals(busyMipsRequested) && allocatedVmUids.contains(vm.getUid())
+				&& !vm.isInMigration()) {
+			setBusy(vm.getUid(), true);
+			setPesInUse(allocatedVmUids.size());
+			updateAllocation();
+			return;
+		}
+		deallocatePesForVm(vm);
+		allocatePesForVm(vm, busyMipsShare);
+	}
+
+	@Override
+	public boolean allocatePesForVm(Vm vm, List<Double> mipsShareRequested) {
+		incremental = false;
+		return super.allocatePesForVm(vm, mipsShareRequested);
+	}
+
+	@Override
+	public void deallocatePesForVm(Vm vm) {
+		incremental = false;
+		super.deallocatePesForVm(vm);
+	}
+
+	@Override
+	public void deallocatePesForAllVms() {
+		incremental = false;
+		super.deallocatePesForAllVms();
+	}
+
+	private boolean canUpdate(List<? extends Vm> vms, BitSet busy, List<Double> busyMipsShare, List<Double> idleMipsShare) {
+		if (!incremental || vms.size() != allocatedVmCount || !busyMipsShare.equals(busyMipsRequested)
+				|| !idleMipsShare.equals(idleMipsRequested)) {
+			return false;
+		}
+		vmStates.clear();
+		for (int i = 0; i < vms.size(); i++) {
+			Vm vm = vms.get(i);
+			if (vm.isInMigration() || !allocatedVmUids.contains(vm.getUid())) {
+				return false;
+			}
+			if (repeatedVms) {
+				Boolean state = vmStates.put(vm.getUid(), busy.get(i));
+				if (state != null && state != busy.get(i)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records the state of an allocation made by the time-shared policy, if it only depends on the
+	 * set of busy VMs.
+	 */
+	private void startUpdates(List<? extends Vm> vms, BitSet busy, List<Double> busyMipsShare, List<Double> idleMipsShare) {
+		allocatedVmUids.clear();
+		busyVmUids.clear();
+		changedVmUids.clear();
+		if (busyMipsShare.size() != 1 || idleMipsShare.size() != 1 || idleMipsShare.get(0) != 0.0
+				|| !getVmsMigratingIn().isEmpty() || !getVmsMigratingOut().isEmpty()) {
+			return;
+		}
+		repeatedVms = false;
+		for (int i = 0; i < vms.size(); i++) {
+			String vmUid = vms.get(i).getUid();
+			if (!allocatedVmUids.add(vmUid)) {
+				// a repeated busy VM always triggers a redistribution, which counts it once, only
+				// when a single busy VM takes the whole host
+				if (busyMipsShare.get(0) < PeList.getTotalMips(getPeList())
+						|| getPeCapacity() < PeList.getTotalMips(getPeList())
+						|| busy.get(i) != busyVmUids.contains(vmUid)) {
+					return;
+				}
+				repeatedVms = true;
+			} else if (busy.get(i)) {
+				busyVmUids.add(vmUid);
+			}
+		}
+		allocatedVmCount = vms.size();
+		busyMipsRequested = busyMipsShare;
+		idleMipsRequested = idleMipsShare;
+		busyMips = -1;
+		incremental = true;
+	}
+
+	private void setBusy(String vmUid, boolean busy) {
+		if (busy ? busyVmUids.add(vmUid) : busyVmUids.remove(vmUid)) {
+			getMipsMapRequested().put(vmUid, busy ? busyMipsRequested : idleMipsRequested);
+			changedVmUids.add(vmUid);
+		}
+	}
+
+	/**
+	 * Updates the MIPS allocated to the VMs that changed state, or to all the busy VMs when their
+	 * share changes. The busy VMs all get their requested MIPS, capped to the capacity of a PE, if
+	 * they fit in the host, and are otherwise scaled down as by
+	 * {@link #redistributeMipsDueToOverSubscription()}.
+	 */
+	private void updateAllocation() {
+		if (changedVmUids.isEmpty() && busyMips >= 0) {
+			return;
+		}
+		double totalMips = PeList.getTotalMips(getPeList());
+		double requestedMips = Math.min(busyMipsRequested.get(0), getPeCapacity());
+		double totalRequestedMips = busyVmUids.size() * requestedMips;
+		double mips;
+		double availableMips;
+		if (totalRequestedMips <= totalMips) {
+			mips = requestedMips;
+			availableMips = totalMips - totalRequestedMips;
+		} else {
+			mips = Math.floor(requestedMips * (totalMips / totalRequestedMips));
+			availableMips = 0;
+		}
+
+		if (mips != busyMips) {
+			busyMips = mips;
+			busyMipsAllocated = Collections.singletonList(mips);
+			for (String vmUid : busyVmUids) {
+				getMipsMap().put(vmUid, busyMipsAllocated);
+			}
+		}
+		for (String vmUid : changedVmUids) {
+			getMipsMap().put(vmUid, busyVmUids.contains(vmUid) ? busyMipsAllocated : IDLE_MIPS_ALLOCATED);
+		}
+		changedVmUids.clear();
+
+		if (availableMips != getAvailableMips()) {
+			setAvailableMips(availableMips);
+		}
+		updatePeProvisioning();
+	}
 }
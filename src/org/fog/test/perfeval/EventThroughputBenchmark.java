@@ -0,0 +1,128 @@
+package org.fog.test.perfeval;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CalendarFutureQueue;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SortedSetFutureQueue;
+
+/**
+ * Measures the raw event throughput of the simulation engine (events/sec) on a flat topology of
+ * periodic sensors attached to gateways, once for every future queue implementation. Sensors emit
+ * with the same period and a small set of phase offsets, so that every clock tick dispatches a
+ * large batch of same-time events, as in the VRGame and DCNS case studies.
+ *
+ * Usage: <tt>EventThroughputBenchmark [numSensors] [sensorsPerGateway] [simulationTime]</tt>
+ */
+public class EventThroughputBenchmark {
+	static final int EMIT = 1;
+	static final int RECEIVE = 2;
+
+	static double EMIT_PERIOD = 5.1;
+	static double GATEWAY_LATENCY = 2.0;
+	static int NUM_PHASES = 100;
+	static int WARMUP_RUNS = 1;
+
+	public static void main(String[] args) {
+		int numSensors = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int sensorsPerGateway = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		double simulationTime = args.length > 2 ? Double.parseDouble(args[2]) : 100;
+
+		Log.disable();
+		for (String queue : new String[] { "sorted-set", "calendar" }) {
+			for (int i = 0; i < WARMUP_RUNS; i++) {
+				run(queue, numSensors, sensorsPerGateway, simulationTime);
+			}
+			run(queue, numSensors, sensorsPerGateway, simulationTime);
+		}
+	}
+
+	private static void run(String queue, int numSensors, int sensorsPerGateway, double simulationTime) {
+		FutureQueue futureQueue = queue.equals("calendar") ? new CalendarFutureQueue() : new SortedSetFutureQueue();
+		CloudSim.init(1, Calendar.getInstance(), false, futureQueue);
+
+		List<Gateway> gateways = new ArrayList<Gateway>();
+		for (int i = 0; i < (numSensors + sensorsPerGateway - 1) / sensorsPerGateway; i++) {
+			gateways.add(new Gateway("gw-" + i));
+		}
+		List<PeriodicSensor> sensors = new ArrayList<PeriodicSensor>();
+		for (int i = 0; i < numSensors; i++) {
+			double phase = (i % NUM_PHASES) * EMIT_PERIOD / NUM_PHASES;
+			sensors.add(new PeriodicSensor("s-" + i, gateways.get(i / sensorsPerGateway).getId(), phase));
+		}
+
+		CloudSim.terminateSimulation(simulationTime);
+		long start = System.nanoTime();
+		CloudSim.startSimulation();
+		long elapsed = System.nanoTime() - start;
+
+		long events = 0;
+		for (PeriodicSensor sensor : sensors) {
+			events += sensor.emitted;
+		}
+		for (Gateway gateway : gateways) {
+			events += gateway.received;
+		}
+		System.out.println(String.format("%-10s sensors=%d events=%d time=%.2fs throughput=%.0f events/sec", queue,
+				numSensors, events, elapsed / 1e9, events / (elapsed / 1e9)));
+	}
+
+	static class PeriodicSensor extends SimEntity {
+		private final int gatewayId;
+		private final double phase;
+		long emitted;
+
+		PeriodicSensor(String name, int gatewayId, double phase) {
+			super(name);
+			this.gatewayId = gatewayId;
+			this.phase = phase;
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), phase, EMIT);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == EMIT) {
+				emitted++;
+				schedule(gatewayId, GATEWAY_LATENCY, RECEIVE);
+				schedule(getId(), EMIT_PERIOD, EMIT);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+
+	static class Gateway extends SimEntity {
+		long received;
+
+		Gateway(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == RECEIVE) {
+				received++;
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+}
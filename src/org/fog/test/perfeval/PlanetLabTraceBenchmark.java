@@ -0,0 +1,114 @@
+package org.fog.test.perfeval;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.PlanetLabTraceStore;
+import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.UtilizationModelPlanetLabInMemory;
+import org.cloudbus.cloudsim.UtilizationModelPlanetLabMapped;
+
+/**
+ * Compares the PlanetLab utilization models on the traces of a directory. One model is created per
+ * VM, cycling through the traces, first with {@link UtilizationModelPlanetLabInMemory}, which parses
+ * its file and holds its own samples, then with {@link UtilizationModelPlanetLabMapped}, which reads
+ * them from a single {@link PlanetLabTraceStore} shared by all the models. The benchmark reports the
+ * time taken to create the models and the heap they retain, and checks that both models give the
+ * same utilization over the traces. Without a directory, it writes random traces to a temporary one.
+ *
+ * Usage: <tt>PlanetLabTraceBenchmark [numVms] [traceFolder] [storeFile]</tt>
+ */
+public class PlanetLabTraceBenchmark {
+	static int DATA_SAMPLES = 289;
+	static double SCHEDULING_INTERVAL = 300;
+	static int GENERATED_TRACES = 1000;
+
+	public static void main(String[] args) throws IOException {
+		int numVms = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		File traceFolder = args.length > 1 ? new File(args[1]) : generateTraces(GENERATED_TRACES);
+		File storeFile = args.length > 2 ? new File(args[2])
+				: new File(traceFolder.getParentFile(), traceFolder.getName() + ".store");
+
+		long start = System.nanoTime();
+		// the store is looked up once and shared by all the models
+		PlanetLabTraceStore store = PlanetLabTraceStore.getInstance(traceFolder, storeFile, DATA_SAMPLES);
+		System.out.println(String.format("store      traces=%d time=%.2fs file=%s", store.getTraceCount(),
+				(System.nanoTime() - start) / 1e9, store.getFile()));
+		List<String> traceNames = store.getTraceNames();
+
+		long heapBefore = usedHeap();
+		start = System.nanoTime();
+		UtilizationModel[] inMemory = new UtilizationModel[numVms];
+		for (int i = 0; i < numVms; i++) {
+			String tracePath = new File(traceFolder, traceNames.get(i % traceNames.size())).getPath();
+			inMemory[i] = new UtilizationModelPlanetLabInMemory(tracePath, SCHEDULING_INTERVAL, DATA_SAMPLES);
+		}
+		report("in-memory", numVms, System.nanoTime() - start, usedHeap() - heapBefore);
+
+		heapBefore = usedHeap();
+		start = System.nanoTime();
+		UtilizationModel[] mapped = new UtilizationModel[numVms];
+		for (int i = 0; i < numVms; i++) {
+			mapped[i] = new UtilizationModelPlanetLabMapped(store, traceNames.get(i % traceNames.size()),
+					SCHEDULING_INTERVAL);
+		}
+		report("mapped", numVms, System.nanoTime() - start, usedHeap() - heapBefore);
+
+		int mismatches = 0;
+		double end = (DATA_SAMPLES - 1) * SCHEDULING_INTERVAL;
+		for (int i = 0; i < numVms; i++) {
+			for (double time = 0; time <= end; time += SCHEDULING_INTERVAL / 4) {
+				if (inMemory[i].getUtilization(time) != mapped[i].getUtilization(time)) {
+					mismatches++;
+				}
+			}
+		}
+		System.out.println("utilization mismatches=" + mismatches);
+	}
+
+	private static void report(String model, int numVms, long elapsed, long retained) {
+		System.out.println(String.format("%-10s vms=%d time=%.2fs retained=%.1fMB (%.0f B/vm)", model, numVms,
+				elapsed / 1e9, retained / 1e6, (double) retained / numVms));
+	}
+
+	/**
+	 * Writes random traces in the PlanetLab format, one utilization percentage per line, to a new
+	 * temporary directory deleted on exit.
+	 */
+	private static File generateTraces(int numTraces) throws IOException {
+		File folder = File.createTempFile("planetlab", "");
+		if (!folder.delete() || !folder.mkdir()) {
+			throw new IOException("Cannot create the trace directory " + folder);
+		}
+		folder.deleteOnExit();
+		new File(folder.getParentFile(), folder.getName() + ".store").deleteOnExit();
+		Random random = new Random(42);
+		for (int i = 0; i < numTraces; i++) {
+			File trace = new File(folder, String.format("trace-%05d", i));
+			trace.deleteOnExit();
+			Writer output = new FileWriter(trace);
+			try {
+				int utilization = random.nextInt(100);
+				for (int j = 0; j < DATA_SAMPLES - 1; j++) {
+					utilization = Math.max(0, Math.min(100, utilization + random.nextInt(21) - 10));
+					output.write(utilization + "\n");
+				}
+			} finally {
+				output.close();
+			}
+		}
+		return folder;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
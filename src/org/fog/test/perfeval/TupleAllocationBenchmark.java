@@ -0,0 +1,184 @@
+package org.fog.test.perfeval;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.application.AppEdge;
+import org.fog.application.AppLoop;
+import org.fog.application.Application;
+import org.fog.application.selectivity.FractionalSelectivity;
+import org.fog.entities.Actuator;
+import org.fog.entities.Sensor;
+import org.fog.entities.Tuple;
+import org.fog.entities.TuplePool;
+import org.fog.utils.FogEvents;
+import org.fog.utils.GeoLocation;
+import org.fog.utils.TimeKeeper;
+import org.fog.utils.distribution.DeterministicDistribution;
+
+/**
+ * Measures the allocation rate and the garbage collection activity of the tuple hot path, with and
+ * without recycling tuples through the {@link TuplePool}. Sensors emit EEG tuples to gateways which
+ * execute the client module instantly and forward the resultant tuple to a display actuator, so that
+ * every emitted tuple goes through {@link Sensor#transmit()},
+ * {@link Application#getResultantTuples(String, Tuple, int, int, List)} and an actuator.
+ *
+ * Usage: <tt>TupleAllocationBenchmark [numSensors] [sensorsPerGateway] [simulationTime]</tt>
+ */
+public class TupleAllocationBenchmark {
+    static String APP_ID = "bench";
+    static double EMIT_PERIOD = 5.1;
+    static double SENSOR_LATENCY = 2.0;
+    static double ACTUATOR_LATENCY = 1.0;
+    static int WARMUP_RUNS = 1;
+
+    public static void main(String[] args) {
+        int numSensors = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int sensorsPerGateway = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        double simulationTime = args.length > 2 ? Double.parseDouble(args[2]) : 1000;
+
+        Log.disable();
+        for (boolean pooled : new boolean[] { false, true }) {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                run(pooled, numSensors, sensorsPerGateway, simulationTime);
+            }
+            run(pooled, numSensors, sensorsPerGateway, simulationTime);
+        }
+    }
+
+    private static void run(boolean pooled, int numSensors, int sensorsPerGateway, double simulationTime) {
+        CloudSim.init(1, Calendar.getInstance(), false);
+        TimeKeeper.getInstance().getEmitTimes().clear();
+        TupleAllocationBenchmark.setPooled(pooled);
+
+        Application application = createApplication(APP_ID, 1);
+        List<Gateway> gateways = new ArrayList<Gateway>();
+        int numGateways = (numSensors + sensorsPerGateway - 1) / sensorsPerGateway;
+        for (int i = 0; i < numGateways; i++) {
+            Gateway gateway = new Gateway("gw-" + i, application);
+            Actuator display = new Actuator("a-" + i, 1, APP_ID, gateway.getId(), ACTUATOR_LATENCY,
+                    new GeoLocation(0, 0), "DISPLAY", "client");
+            display.setApp(application);
+            gateway.displayId = display.getId();
+            gateways.add(gateway);
+        }
+        for (int i = 0; i < numSensors; i++) {
+            Sensor sensor = new Sensor("s-" + i, 1, APP_ID, gateways.get(i / sensorsPerGateway).getId(),
+                    SENSOR_LATENCY, new GeoLocation(0, 0), new DeterministicDistribution(EMIT_PERIOD), "EEG");
+            sensor.setSensorName("EEG");
+            sensor.setApp(application);
+        }
+
+        CloudSim.terminateSimulation(simulationTime);
+        long allocatedBefore = allocatedBytes();
+        long collectionsBefore = collectionCount();
+        long collectionTimeBefore = collectionTime();
+        long start = System.nanoTime();
+        CloudSim.startSimulation();
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        long tuples = 0;
+        for (Gateway gateway : gateways) {
+            tuples += gateway.received;
+        }
+        System.out.println(String.format("%-9s sensors=%d tuples=%d time=%.2fs allocated=%.1fMB (%.0f B/tuple) "
+                + "gc=%d (%dms) created=%d reused=%d", pooled ? "pooled" : "unpooled", numSensors, tuples,
+                elapsed / 1e9, allocated / 1e6, (double) allocated / Math.max(1, tuples),
+                collectionCount() - collectionsBefore, collectionTime() - collectionTimeBefore,
+                TuplePool.getInstance().getNumCreated(), TuplePool.getInstance().getNumReused()));
+    }
+
+    private static void setPooled(boolean pooled) {
+        TuplePool.getInstance().setEnabled(pooled);
+        TuplePool.getInstance().clear();
+    }
+
+    private static Application createApplication(String appId, int userId) {
+        Application application = Application.createApplication(appId, userId);
+        application.addAppModule("client", 10);
+        application.addAppEdge("EEG", "client", 2000, 500, "EEG", Tuple.UP, AppEdge.SENSOR);
+        application.addAppEdge("client", "DISPLAY", 1000, 500, "SELF_STATE_UPDATE", Tuple.DOWN, AppEdge.ACTUATOR);
+        application.addTupleMapping("client", "EEG", "SELF_STATE_UPDATE", new FractionalSelectivity(1.0));
+
+        List<String> modules = new ArrayList<String>();
+        modules.add("EEG");
+        modules.add("client");
+        modules.add("DISPLAY");
+        List<AppLoop> loops = new ArrayList<AppLoop>();
+        loops.add(new AppLoop(modules));
+        application.setLoops(loops);
+        return application;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long collectionTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, bean.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * Gateway executing the client module of every received tuple instantly, in the same way as
+     * {@link org.fog.entities.FogDevice} does on completion of a tuple.
+     */
+    static class Gateway extends SimEntity {
+        private final Application application;
+        private final List<Tuple> resultantTuples = new ArrayList<Tuple>();
+        int displayId;
+        long received;
+
+        Gateway(String name, Application application) {
+            super(name);
+            this.application = application;
+        }
+
+        @Override
+        public void startEntity() {
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            if (ev.getTag() == FogEvents.TUPLE_ARRIVAL) {
+                received++;
+                Tuple tuple = (Tuple) ev.getData();
+                application.getResultantTuples("client", tuple, getId(), 0, resultantTuples);
+                for (Tuple resTuple : resultantTuples) {
+                    resTuple.getModuleCopyMap().putAll(tuple.getModuleCopyMap());
+                    TuplePool.getInstance().retain(resTuple);
+                    send(displayId, ACTUATOR_LATENCY, FogEvents.TUPLE_ARRIVAL, resTuple);
+                }
+                resultantTuples.clear();
+                TuplePool.getInstance().release(tuple);
+            }
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+}
@@ -48,6 +48,7 @@ public class VRGameFog {
     static int numOfMobilesPerDept = 6;
     static double EEG_TRANSMISSION_TIME = 5.1;
     //static double EEG_TRANSMISSION_TIME = 10;
+    static long MOBILE_UPLINK_BW = 10000;
 
     public static void main(String[] args) {
 
@@ -55,62 +56,74 @@ public class VRGameFog {
 
         try {
             Log.disable();
-            int num_user = 1; // number of cloud users
-            Calendar calendar = Calendar.getInstance();
-            boolean trace_flag = false; // mean trace events
+            createSimulation();
 
-            CloudSim.init(num_user, calendar, trace_flag);
+            TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+
+            CloudSim.startSimulation();
+
+            CloudSim.stopSimulation();
 
-            String appId = "vr_game"; // identifier of the application
+            Log.printLine("VRGame finished!");
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.printLine("Unwanted errors happen");
+        }
+    }
+
+    /**
+     * Initializes CloudSim and creates the entities of the simulation, configured by the static
+     * fields of this class.
+     *
+     * @return the controller of the simulation
+     */
+    static Controller createSimulation() throws Exception {
+        int num_user = 1; // number of cloud users
+        Calendar calendar = Calendar.getInstance();
+        boolean trace_flag = false; // mean trace events
 
-            FogBroker broker = new FogBroker("broker");
+        CloudSim.init(num_user, calendar, trace_flag);
 
-            Application application = createApplication(appId, broker.getId());
-            application.setUserId(broker.getId());
+        String appId = "vr_game"; // identifier of the application
 
-            createFogDevices(broker.getId(), appId);
+        FogBroker broker = new FogBroker("broker");
 
-            ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
+        Application application = createApplication(appId, broker.getId());
+        application.setUserId(broker.getId());
 
-            if (CLOUD) {
-                // if the mode of deployment is cloud-based
+        createFogDevices(broker.getId(), appId);
+
+        ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
+
+        if (CLOUD) {
+            // if the mode of deployment is cloud-based
 				/*moduleMapping.addModuleToDevice("connector", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector module to the Cloud
 				moduleMapping.addModuleToDevice("concentration_calculator", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Concentration Calculator module to the Cloud
 */
-                moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
-                moduleMapping.addModuleToDevice("concentration_calculator", "cloud"); // fixing all instances of the Concentration Calculator module to the Cloud
-                for (FogDevice device : fogDevices) {
-                    if (device.getName().startsWith("m")) {
-                        //moduleMapping.addModuleToDevice("client", device.getName(), 1);  // fixing all instances of the Client module to the Smartphones
-                        moduleMapping.addModuleToDevice("client", device.getName());  // fixing all instances of the Client module to the Smartphones
-                    }
+            moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
+            moduleMapping.addModuleToDevice("concentration_calculator", "cloud"); // fixing all instances of the Concentration Calculator module to the Cloud
+            for (FogDevice device : fogDevices) {
+                if (device.getName().startsWith("m")) {
+                    //moduleMapping.addModuleToDevice("client", device.getName(), 1);  // fixing all instances of the Client module to the Smartphones
+                    moduleMapping.addModuleToDevice("client", device.getName());  // fixing all instances of the Client module to the Smartphones
                 }
-            } else {
-                // if the mode of deployment is cloud-based
-                //moduleMapping.addModuleToDevice("connector", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector module to the Cloud
-                moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
-                // rest of the modules will be placed by the Edge-ward placement policy
             }
+        } else {
+            // if the mode of deployment is cloud-based
+            //moduleMapping.addModuleToDevice("connector", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector module to the Cloud
+            moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
+            // rest of the modules will be placed by the Edge-ward placement policy
+        }
 
 
-            Controller controller = new Controller("master-controller", fogDevices, sensors,
-                    actuators);
-
-            controller.submitApplication(application, 0,
-                    (CLOUD) ? (new ModulePlacementMapping(fogDevices, application, moduleMapping))
-                            : (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
-
-            TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
-
-            CloudSim.startSimulation();
+        Controller controller = new Controller("master-controller", fogDevices, sensors,
+                actuators);
 
-            CloudSim.stopSimulation();
+        controller.submitApplication(application, 0,
+                (CLOUD) ? (new ModulePlacementMapping(fogDevices, application, moduleMapping))
+                        : (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
 
-            Log.printLine("VRGame finished!");
-        } catch (Exception e) {
-            e.printStackTrace();
-            Log.printLine("Unwanted errors happen");
-        }
+        return controller;
     }
 
     /**
@@ -150,7 +163,7 @@ public class VRGameFog {
     }
 
     private static FogDevice addMobile(String id, int userId, String appId, int parentId) {
-        FogDevice mobile = createFogDevice("m-" + id, 1000, 1000, 10000, 270, 3, 0, 87.53, 82.44);
+        FogDevice mobile = createFogDevice("m-" + id, 1000, 1000, MOBILE_UPLINK_BW, 270, 3, 0, 87.53, 82.44);
         mobile.setParentId(parentId);
         Sensor eegSensor = new Sensor("s-" + id, "EEG", userId, appId, new DeterministicDistribution(EEG_TRANSMISSION_TIME)); // inter-transmission time of EEG sensor follows a deterministic distribution
         sensors.add(eegSensor);
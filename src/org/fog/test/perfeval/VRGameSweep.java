@@ -0,0 +1,50 @@
+package org.fog.test.perfeval;
+
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.Map;
+
+import org.fog.placement.Controller;
+import org.fog.utils.sweep.ParameterGrid;
+import org.fog.utils.sweep.SweepRunner;
+import org.fog.utils.sweep.SweepScenario;
+
+/**
+ * Parameter sweep of case study 1 - EEG Beam Tractor Game, over the number of gateways and of
+ * smartphones per gateway, the placement of the modules, the EEG inter-transmission time and the
+ * uplink bandwidth of the smartphones. Every run configures {@link VRGameFog} in its own copy of
+ * the simulator classes.
+ *
+ * Usage: <tt>VRGameSweep [output.csv] [parallelism]</tt>
+ */
+public class VRGameSweep implements SweepScenario {
+
+    public static void main(String[] args) throws Exception {
+        String output = args.length > 0 ? args[0] : "results/VRGame_sweep.csv";
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        ParameterGrid grid = new ParameterGrid()
+                .addParameter("placement", "edgewards", "cloud")
+                .addParameter("numOfDepts", "1", "2", "4", "8", "16")
+                .addParameter("numOfMobilesPerDept", "4")
+                .addParameter("eegTransmissionTime", "5.1", "10")
+                .addParameter("mobileUplinkBw", "10000");
+
+        Writer writer = new FileWriter(output);
+        try {
+            new SweepRunner(VRGameSweep.class.getName(), grid, parallelism).run(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Override
+    public Controller createSimulation(Map<String, String> parameters) throws Exception {
+        VRGameFog.CLOUD = "cloud".equals(parameters.get("placement"));
+        VRGameFog.numOfDepts = Integer.parseInt(parameters.get("numOfDepts"));
+        VRGameFog.numOfMobilesPerDept = Integer.parseInt(parameters.get("numOfMobilesPerDept"));
+        VRGameFog.EEG_TRANSMISSION_TIME = Double.parseDouble(parameters.get("eegTransmissionTime"));
+        VRGameFog.MOBILE_UPLINK_BW = Long.parseLong(parameters.get("mobileUplinkBw"));
+        return VRGameFog.createSimulation();
+    }
+}
@@ -1,5 +1,9 @@
 package org.fog.utils;
 
+/**
+ * Settings of the simulations running with the default {@link SimulationContext}, and initial
+ * settings of the other contexts, see {@link SimulationConfig}.
+ */
 public class Config {
 	//定量地设置一些参数
 	public static final double RESOURCE_MGMT_INTERVAL = 100;
@@ -14,4 +18,38 @@ public class Config {
 	public static double FOG_DEVICE_COST_PER_MEMORY = 0.05;
 	public static double FOG_DEVICE_COST_PER_STORAGE = 0.001;
 	public static double FOG_DEVICE_COST_PER_BW = 0.0;
+	/** Number of changes of power kept per fog device, see {@link PowerTimeSeries}. */
+	public static int POWER_TIME_SERIES_CAPACITY = 1 << 16;
+	/** File to which the controller writes the power time series of the devices, if not null. */
+	public static String POWER_TIME_SERIES_FILE = null;
+	/**
+	 * Whether the fog devices send a tuple going down only towards the instances of its destination
+	 * module, see {@link org.fog.entities.FogDevice#routeDown}, instead of flooding their children.
+	 */
+	public static boolean UNICAST_DOWN_TUPLES = false;
+	/**
+	 * Whether the fog devices send tuples on a separate {@link org.fog.entities.Link} to their
+	 * parent and to each child, so that the links transmit at the same time, instead of sharing a
+	 * single queue for all the children.
+	 */
+	public static boolean MULTI_CHANNEL_LINKS = false;
+	/** Maximum payload of a packet on the links, or 0 to send tuples as single frames. */
+	public static double LINK_MTU = 0;
+	/** Size of the header of every packet on the links when {@link #LINK_MTU} is set. */
+	public static double LINK_PACKET_HEADER_SIZE = 0;
+	/**
+	 * Whether the fog devices offload the tuples they would queue behind
+	 * {@link #OFFLOAD_QUEUE_THRESHOLD} others to a neighbor expected to complete them earlier, from
+	 * the loads the neighbors publish every {@link #LOAD_REPORT_INTERVAL}.
+	 */
+	public static boolean NEIGHBOR_OFFLOADING = false;
+	/** Number of tuples queued on a module from which its device considers offloading a tuple. */
+	public static int OFFLOAD_QUEUE_THRESHOLD = 2;
+	/** Interval between two reports of the load of a fog device to its neighbors. */
+	public static double LOAD_REPORT_INTERVAL = 10;
+	/**
+	 * Level of the fog devices that the sensors and actuators having a location join as their
+	 * nearest gateway, or a negative value for the devices without children.
+	 */
+	public static int GATEWAY_LEVEL = -1;
 }
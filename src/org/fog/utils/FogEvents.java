@@ -29,4 +29,6 @@ public class FogEvents {
     public static final int RESOURCE_MGMT = BASE + 24;
     public static final int EMIT_TUPLE = BASE + 25;
     public static final int INITIALIZE_SENSOR = BASE + 26;
+    public static final int PUBLISH_LOAD = BASE + 27;
+    public static final int NEIGHBOR_LOAD = BASE + 28;
 }
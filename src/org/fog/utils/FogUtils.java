@@ -4,12 +4,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class FogUtils {
-	private static int TUPLE_ID = 1;
-	private static int ENTITY_ID = 1;
-	private static int ACTUAL_TUPLE_ID = 1;
-	
 	public static int generateTupleId(){
-		return TUPLE_ID++;
+		return SimulationContext.getCurrent().generateTupleId();
 	}
 	
 	public static String getSensorTypeFromSensorName(String sensorName){
@@ -17,17 +13,31 @@ public class FogUtils {
 	}
 	
 	public static int generateEntityId(){
-		return ENTITY_ID++;
+		return SimulationContext.getCurrent().generateEntityId();
 	}
 	
 	public static int generateActualTupleId(){
-		return ACTUAL_TUPLE_ID++;
+		return SimulationContext.getCurrent().generateActualTupleId();
 	}
 	
+	/**
+	 * Id of the user of the default simulation context, which reads and writes this field.
+	 *
+	 * @deprecated use {@link SimulationConfig#getUserId()} and {@link SimulationConfig#setUserId(int)}
+	 *             on the settings of the context
+	 */
+	@Deprecated
 	public static int USER_ID = 1;
 	
 	//public static int MAX = 10000000;
 	public static int MAX = 10000000;
 	
+	/**
+	 * Geographical coverage of the applications of the default simulation context, which uses this
+	 * map.
+	 *
+	 * @deprecated use {@link SimulationContext#getAppIdToGeoCoverageMap()}
+	 */
+	@Deprecated
 	public static Map<String, GeoCoverage> appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
 }
@@ -0,0 +1,290 @@
+package org.fog.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Sensor;
+import org.fog.entities.SensorGroup;
+
+/**
+ * Uniform grid over the locations of fog devices, answering which device is the nearest to a
+ * location and which devices lie in a {@link GeoCoverage} without going through all of them. It is
+ * meant to index the gateways (access points) of a topology, so that the sensors and actuators can
+ * be associated with their nearest gateway.
+ *
+ * Distances are measured on an equirectangular projection of the locations, the longitudes being
+ * scaled by the cosine of a reference latitude, which is accurate at the scale of a city. A nearest
+ * query searches the rings of cells around the cell of the location until no closer device can be
+ * found, so that it takes constant time when the devices are spread evenly.
+ *
+ * The {@link org.fog.placement.Controller} indexes the gateways having a location, assigns the
+ * sensors and actuators having one to their nearest gateway with
+ * {@link #assignGateways(Collection, Collection)} before the module placements count the sensors of
+ * each gateway, and sets the index on the {@link SimulationContext}, where the sensors and actuators
+ * look up their gateway again when they join. The area an application covers is checked by the
+ * devices themselves with {@link GeoCoverage#covers(GeoLocation)}, and {@link #getDevicesIn(GeoCoverage)}
+ * lists the devices of such an area.
+ */
+public class GatewayIndex {
+
+	private final double cellSize;
+	private final double longitudeScale;
+
+	private final Map<Long, List<FogDevice>> cells = new HashMap<Long, List<FogDevice>>();
+	private int size;
+
+	/** Range of the non-empty cells. */
+	private int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+	private int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+
+	/**
+	 * Creates an empty index.
+	 * @param cellSize side of the cells, in degrees of latitude
+	 * @param referenceLatitude latitude at which the distances along the longitudes are exact
+	 */
+	public GatewayIndex(double cellSize, double referenceLatitude) {
+		if (!(cellSize > 0))
+			throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+		this.cellSize = cellSize;
+		this.longitudeScale = Math.cos(Math.toRadians(referenceLatitude));
+	}
+
+	/**
+	 * Creates an index of the devices having a location, with cells holding about two devices each
+	 * and the reference latitude at the middle of the devices.
+	 * @param devices the devices to index
+	 */
+	public GatewayIndex(Collection<? extends FogDevice> devices) {
+		double latMin = Double.MAX_VALUE, latMax = -Double.MAX_VALUE;
+		double longMin = Double.MAX_VALUE, longMax = -Double.MAX_VALUE;
+		int located = 0;
+		for (FogDevice device : devices) {
+			GeoLocation location = device.getGeoLocation();
+			if (location == null)
+				continue;
+			latMin = Math.min(latMin, location.getLatitude());
+			latMax = Math.max(latMax, location.getLatitude());
+			longMin = Math.min(longMin, location.getLongitude());
+			longMax = Math.max(longMax, location.getLongitude());
+			located++;
+		}
+		double referenceLatitude = located > 0 ? (latMin + latMax) / 2 : 0;
+		longitudeScale = Math.cos(Math.toRadians(referenceLatitude));
+		double area = located > 0 ? (latMax - latMin) * (longMax - longMin) * longitudeScale : 0;
+		double size = Math.sqrt(2 * area / Math.max(located, 1));
+		cellSize = size > 0 ? size : 0.01;
+		for (FogDevice device : devices) {
+			if (device.getGeoLocation() != null)
+				add(device);
+		}
+	}
+
+	/**
+	 * Adds a device at its current location.
+	 */
+	public void add(FogDevice device) {
+		GeoLocation location = device.getGeoLocation();
+		int x = cellX(location.getLongitude());
+		int y = cellY(location.getLatitude());
+		Long key = key(x, y);
+		List<FogDevice> cell = cells.get(key);
+		if (cell == null) {
+			cell = new ArrayList<FogDevice>(2);
+			cells.put(key, cell);
+		}
+		cell.add(device);
+		size++;
+		minX = Math.min(minX, x);
+		maxX = Math.max(maxX, x);
+		minY = Math.min(minY, y);
+		maxY = Math.max(maxY, y);
+	}
+
+	/**
+	 * Removes a device, which must not have moved since it was added.
+	 * @return whether the device was in the index
+	 */
+	public boolean remove(FogDevice device) {
+		GeoLocation location = device.getGeoLocation();
+		Long key = key(cellX(location.getLongitude()), cellY(location.getLatitude()));
+		List<FogDevice> cell = cells.get(key);
+		if (cell == null || !cell.remove(device))
+			return false;
+		if (cell.isEmpty())
+			cells.remove(key);
+		size--;
+		return true;
+	}
+
+	/**
+	 * @return the device nearest to a location, the one with the lowest id among equally near
+	 *         devices, or <tt>null</tt> if the index is empty
+	 */
+	public FogDevice getNearest(GeoLocation location) {
+		if (size == 0)
+			return null;
+		double px = location.getLongitude() * longitudeScale;
+		double py = location.getLatitude();
+		int x = cellX(location.getLongitude());
+		int y = cellY(location.getLatitude());
+		// the rings before the first one reaching the non-empty cells are skipped
+		int firstRing = Math.max(0, Math.max(Math.max(minX - x, x - maxX), Math.max(minY - y, y - maxY)));
+		int maxRing = Math.max(Math.max(x - minX, maxX - x), Math.max(y - minY, maxY - y));
+
+		FogDevice nearest = null;
+		double nearestDistance = Double.MAX_VALUE;
+		for (int ring = firstRing; ring <= maxRing; ring++) {
+			int y0 = Math.max(y - ring, minY), y1 = Math.min(y + ring, maxY);
+			for (int cx = Math.max(x - ring, minX); cx <= Math.min(x + ring, maxX); cx++) {
+				// the two sides of the ring, and the top and bottom rows in between
+				boolean side = cx == x - ring || cx == x + ring;
+				for (int cy = side ? y0 : y - ring; cy <= (side ? y1 : y + ring); cy += side ? 1 : 2 * ring) {
+					if (cy < minY || cy > maxY)
+						continue;
+					List<FogDevice> cell = cells.get(key(cx, cy));
+					if (cell == null)
+						continue;
+					for (FogDevice device : cell) {
+						GeoLocation l = device.getGeoLocation();
+						double dx = l.getLongitude() * longitudeScale - px;
+						double dy = l.getLatitude() - py;
+						double distance = dx * dx + dy * dy;
+						if (distance < nearestDistance
+								|| (distance == nearestDistance && device.getId() < nearest.getId())) {
+							nearest = device;
+							nearestDistance = distance;
+						}
+					}
+				}
+			}
+			// the cells of the next rings are at least ring * cellSize away
+			double bound = ring * cellSize;
+			if (nearest != null && nearestDistance <= bound * bound)
+				break;
+		}
+		return nearest;
+	}
+
+	/**
+	 * @return the devices located in an area
+	 */
+	public List<FogDevice> getDevicesIn(GeoCoverage area) {
+		List<FogDevice> devices = new ArrayList<FogDevice>();
+		if (size == 0)
+			return devices;
+		int x0 = Math.max(minX, cellX(area.getLong_l())), x1 = Math.min(maxX, cellX(area.getLong_u()));
+		int y0 = Math.max(minY, cellY(area.getLat_l())), y1 = Math.min(maxY, cellY(area.getLat_u()));
+		for (int x = x0; x <= x1; x++) {
+			for (int y = y0; y <= y1; y++) {
+				List<FogDevice> cell = cells.get(key(x, y));
+				if (cell == null)
+					continue;
+				for (FogDevice device : cell) {
+					if (area.covers(device.getGeoLocation()))
+						devices.add(device);
+				}
+			}
+		}
+		return devices;
+	}
+
+	/**
+	 * Sets the gateway of the sensors and actuators having a location, and of the members of the
+	 * sensor groups having one, to the device nearest to them.
+	 * @param sensors the sensors, possibly <tt>null</tt>
+	 * @param actuators the actuators, possibly <tt>null</tt>
+	 */
+	public void assignGateways(Collection<? extends Sensor> sensors, Collection<? extends Actuator> actuators) {
+		if (sensors != null) {
+			for (Sensor sensor : sensors) {
+				if (sensor instanceof SensorGroup) {
+					SensorGroup group = (SensorGroup) sensor;
+					for (int i = 0; i < group.getNumSensors(); i++)
+						assignGateway(group, i);
+				} else {
+					assignGateway(sensor);
+				}
+			}
+		}
+		if (actuators != null) {
+			for (Actuator actuator : actuators)
+				assignGateway(actuator);
+		}
+	}
+
+	/**
+	 * Sets the gateway of a sensor having a location to the device nearest to it, and the latency
+	 * of the sensor to the access latency of that device, if it has one.
+	 * @see FogDevice#getAccessLatency()
+	 */
+	public void assignGateway(Sensor sensor) {
+		FogDevice gateway = sensor.getGeoLocation() != null ? getNearest(sensor.getGeoLocation()) : null;
+		if (gateway == null)
+			return;
+		sensor.setGatewayDeviceId(gateway.getId());
+		if (gateway.getAccessLatency() >= 0)
+			sensor.setLatency(gateway.getAccessLatency());
+	}
+
+	/**
+	 * Sets the gateway of a member of a sensor group having a location to the device nearest to
+	 * it, and the latency of the member to the access latency of that device, if it has one.
+	 * @see FogDevice#getAccessLatency()
+	 */
+	public void assignGateway(SensorGroup group, int sensor) {
+		FogDevice gateway = group.getGeoLocation(sensor) != null ? getNearest(group.getGeoLocation(sensor)) : null;
+		if (gateway == null)
+			return;
+		group.setGatewayDeviceId(sensor, gateway.getId());
+		if (gateway.getAccessLatency() >= 0)
+			group.setLatency(sensor, gateway.getAccessLatency());
+	}
+
+	/**
+	 * Sets the gateway of an actuator having a location to the device nearest to it, and the
+	 * latency of the actuator to the access latency of that device, if it has one.
+	 * @see FogDevice#getAccessLatency()
+	 */
+	public void assignGateway(Actuator actuator) {
+		FogDevice gateway = actuator.getGeoLocation() != null ? getNearest(actuator.getGeoLocation()) : null;
+		if (gateway == null)
+			return;
+		actuator.setGatewayDeviceId(gateway.getId());
+		if (gateway.getAccessLatency() >= 0)
+			actuator.setLatency(gateway.getAccessLatency());
+	}
+
+	/**
+	 * @return the id of the device nearest to a location, or <tt>defaultId</tt> if the location is
+	 *         <tt>null</tt> or the index is empty
+	 */
+	public int getNearestId(GeoLocation location, int defaultId) {
+		FogDevice nearest = location != null ? getNearest(location) : null;
+		return nearest != null ? nearest.getId() : defaultId;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	private int cellX(double longitude) {
+		return (int) Math.floor(longitude * longitudeScale / cellSize);
+	}
+
+	private int cellY(double latitude) {
+		return (int) Math.floor(latitude / cellSize);
+	}
+
+	private static Long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+}
@@ -20,6 +20,11 @@ public class GeoCoverage {
 		return false;
 	}
 	
+	public boolean covers(GeoLocation location){
+		return lat_l <= location.getLatitude() && lat_u >= location.getLatitude()
+				&& long_l <= location.getLongitude() && long_u >= location.getLongitude();
+	}
+	
 	public double getLat_l() {
 		return lat_l;
 	}
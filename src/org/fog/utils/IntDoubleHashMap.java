@@ -0,0 +1,141 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from <tt>int</tt> keys to <tt>double</tt> values, with linear probing
+ * and backward-shift deletion, so that neither entries nor removals allocate. Used to keep the
+ * times of in-flight tuples without boxing; {@link #NO_KEY} cannot be used as a key.
+ */
+public class IntDoubleHashMap {
+
+	/** Key marking an empty slot. */
+	public static final int NO_KEY = Integer.MIN_VALUE;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] keys;
+	private double[] values;
+	private int size;
+
+	public IntDoubleHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize number of entries the map can hold without resizing
+	 */
+	public IntDoubleHashMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 3 / 4 < expectedSize)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * Associates the value with the key, replacing any previous value.
+	 */
+	public void put(int key, double value) {
+		if (key == NO_KEY)
+			throw new IllegalArgumentException("The key should be different from " + NO_KEY);
+		int slot = slotOf(key);
+		if (keys[slot] == key) {
+			values[slot] = value;
+			return;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > keys.length * 3 / 4)
+			rehash(keys.length << 1);
+	}
+
+	/**
+	 * @return the value associated with the key, or <tt>defaultValue</tt> if there is none
+	 */
+	public double get(int key, double defaultValue) {
+		int slot = slotOf(key);
+		return keys[slot] == key && key != NO_KEY ? values[slot] : defaultValue;
+	}
+
+	public boolean containsKey(int key) {
+		return key != NO_KEY && keys[slotOf(key)] == key;
+	}
+
+	/**
+	 * Removes the entry of the key.
+	 * @return the value that was associated with the key, or <tt>defaultValue</tt> if there was none
+	 */
+	public double remove(int key, double defaultValue) {
+		if (key == NO_KEY)
+			return defaultValue;
+		int slot = slotOf(key);
+		if (keys[slot] != key)
+			return defaultValue;
+		double value = values[slot];
+		int mask = keys.length - 1;
+		// shift back the following entries of the probe sequence into the freed slot
+		int free = slot;
+		int next = (free + 1) & mask;
+		while (keys[next] != NO_KEY) {
+			int home = mix(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				free = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[free] = NO_KEY;
+		size--;
+		return value;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, NO_KEY);
+		size = 0;
+	}
+
+	/**
+	 * @return the slot holding the key, or the empty slot where it would be inserted
+	 */
+	private int slotOf(int key) {
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != NO_KEY && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new double[capacity];
+		Arrays.fill(keys, NO_KEY);
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != NO_KEY) {
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+}
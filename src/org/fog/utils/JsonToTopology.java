@@ -30,11 +30,11 @@ import org.json.simple.JSONValue;
 
 public class JsonToTopology {
 
-    private static List<FogDevice> fogDevices = new ArrayList<FogDevice>();
-    private static List<Sensor> sensors = new ArrayList<Sensor>();
-    private static List<Actuator> actuators = new ArrayList<Actuator>();
+    private final List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+    private final List<Sensor> sensors = new ArrayList<Sensor>();
+    private final List<Actuator> actuators = new ArrayList<Actuator>();
 
-    private static boolean isFogDevice(String name) {
+    private boolean isFogDevice(String name) {
         for (FogDevice fogDevice : fogDevices) {
             if (fogDevice.getName().equalsIgnoreCase(name))
                 return true;
@@ -43,7 +43,7 @@ public class JsonToTopology {
 
     }
 
-    private static FogDevice getFogDevice(String name) {
+    private FogDevice getFogDevice(String name) {
         for (FogDevice fogDevice : fogDevices) {
             if (fogDevice.getName().equalsIgnoreCase(name))
                 return fogDevice;
@@ -51,7 +51,7 @@ public class JsonToTopology {
         return null;
     }
 
-    private static boolean isActuator(String name) {
+    private boolean isActuator(String name) {
         for (Actuator actuator : actuators) {
             if (actuator.getName().equalsIgnoreCase(name))
                 return true;
@@ -59,7 +59,7 @@ public class JsonToTopology {
         return false;
     }
 
-    private static Actuator getActuator(String name) {
+    private Actuator getActuator(String name) {
         for (Actuator actuator : actuators) {
             if (actuator.getName().equalsIgnoreCase(name))
                 return actuator;
@@ -67,7 +67,7 @@ public class JsonToTopology {
         return null;
     }
 
-    private static boolean isSensor(String name) {
+    private boolean isSensor(String name) {
         for (Sensor sensor : sensors) {
             if (sensor.getName().equalsIgnoreCase(name))
                 return true;
@@ -75,7 +75,7 @@ public class JsonToTopology {
         return false;
     }
 
-    private static Sensor getSensor(String name) {
+    private Sensor getSensor(String name) {
         for (Sensor sensor : sensors) {
             if (sensor.getName().equalsIgnoreCase(name))
                 return sensor;
@@ -83,13 +83,14 @@ public class JsonToTopology {
         return null;
     }
 
-    public static PhysicalTopology getPhysicalTopology(int userId, String appId, String physicalTopologyFile) throws Exception {
-
-        fogDevices = new ArrayList<FogDevice>();
-        sensors = new ArrayList<Sensor>();
-        actuators = new ArrayList<Actuator>();
+    private JsonToTopology() {
+    }
 
+    public static PhysicalTopology getPhysicalTopology(int userId, String appId, String physicalTopologyFile) throws Exception {
+        return new JsonToTopology().readPhysicalTopology(userId, appId, physicalTopologyFile);
+    }
 
+    private PhysicalTopology readPhysicalTopology(int userId, String appId, String physicalTopologyFile) {
         try {
             JSONObject doc = (JSONObject) JSONValue.parse(new FileReader(physicalTopologyFile));
             JSONArray nodes = (JSONArray) doc.get("nodes");
@@ -110,6 +111,7 @@ public class JsonToTopology {
 
                     FogDevice fogDevice = createFogDevice(nodeName, mips, ram, upBw, downBw, level, ratePerMips);
                     fogDevice.setParentId(-1);
+                    fogDevice.setGeoLocation(readGeoLocation(node));
 
                     fogDevices.add(fogDevice);
 
@@ -127,10 +129,14 @@ public class JsonToTopology {
                                 new BigDecimal((Double) node.get("max")).doubleValue());
                     }
                     System.out.println("Sensor type : " + sensorType);
-                    sensors.add(new Sensor(nodeName, sensorType, userId, appId, distribution));
+                    Sensor sensor = new Sensor(nodeName, sensorType, userId, appId, distribution);
+                    sensor.setGeoLocation(readGeoLocation(node));
+                    sensors.add(sensor);
                 } else if (nodeType.equals("ACTUATOR")) {
                     String actuatorType = node.get("actuatorType").toString();
-                    actuators.add(new Actuator(nodeName, userId, appId, actuatorType));
+                    Actuator actuator = new Actuator(nodeName, userId, appId, actuatorType);
+                    actuator.setGeoLocation(readGeoLocation(node));
+                    actuators.add(actuator);
                 }
             }
 
@@ -155,6 +161,18 @@ public class JsonToTopology {
         return physicalTopology;
     }
 
+    /**
+     * @return the location given by the optional "latitude" and "longitude" of a node, or null if
+     *         the node has none
+     */
+    private static GeoLocation readGeoLocation(JSONObject node) {
+        Object latitude = node.get("latitude");
+        Object longitude = node.get("longitude");
+        if (latitude == null || longitude == null)
+            return null;
+        return new GeoLocation(((Number) latitude).doubleValue(), ((Number) longitude).doubleValue());
+    }
+
     private static FogDevice createFogDevice(String nodeName, long mips,
                                              int ram, long upBw, long downBw, int level, double ratePerMips) {
 
@@ -208,7 +226,7 @@ public class JsonToTopology {
         return fogdevice;
     }
 
-    private static void connectEntities(String src, String dst, double lat) {
+    private void connectEntities(String src, String dst, double lat) {
         if (isFogDevice(src) && isFogDevice(dst)) {
             FogDevice srcDev = getFogDevice(src);
             FogDevice destDev = getFogDevice(dst);
@@ -0,0 +1,143 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative latencies with a bounded relative error, in the manner of HdrHistogram.
+ * Values are counted in buckets of logarithmically growing width, each split into
+ * {@link #SUB_BUCKETS} linear sub-buckets, so the memory used depends on the range of the recorded
+ * values only, not on their number. Percentiles are reported with a relative error below
+ * 2 / {@link #SUB_BUCKETS} (and an absolute error below {@link #RESOLUTION} for small values); the
+ * count, mean, minimum and maximum are exact.
+ */
+public class LatencyHistogram {
+
+	/** Smallest distinguishable latency. */
+	public static final double RESOLUTION = 1e-3;
+
+	/** Number of linear sub-buckets per bucket, a power of two. */
+	public static final int SUB_BUCKETS = 256;
+
+	private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+	private long[] counts;
+	private long count;
+	private double sum;
+	private double min;
+	private double max;
+
+	public LatencyHistogram() {
+		counts = new long[SUB_BUCKETS];
+		reset();
+	}
+
+	/**
+	 * Records a latency. Negative values are recorded as 0.
+	 */
+	public void record(double latency) {
+		double value = Math.max(0, latency);
+		int index = indexOf(toUnits(value));
+		if (index >= counts.length)
+			counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + HALF_SUB_BUCKETS));
+		counts[index]++;
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * @param percentile percentile in [0, 100]
+	 * @return the smallest recorded latency (up to the precision of the histogram) such that the
+	 *         given percentage of the recorded latencies are lower or equal, or <tt>NaN</tt> if nothing
+	 *         was recorded
+	 */
+	public double getPercentile(double percentile) {
+		if (count == 0)
+			return Double.NaN;
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+		long seen = 0;
+		for (int index = 0; index < counts.length; index++) {
+			seen += counts[index];
+			if (seen >= rank)
+				return Math.max(min, Math.min(max, highestValueOf(index) * RESOLUTION));
+		}
+		return max;
+	}
+
+	public double getP50() {
+		return getPercentile(50);
+	}
+
+	public double getP95() {
+		return getPercentile(95);
+	}
+
+	public double getP99() {
+		return getPercentile(99);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean of the recorded latencies, or <tt>NaN</tt> if nothing was recorded
+	 */
+	public double getMean() {
+		return count == 0 ? Double.NaN : sum / count;
+	}
+
+	/**
+	 * @return the smallest recorded latency, or <tt>NaN</tt> if nothing was recorded
+	 */
+	public double getMin() {
+		return count == 0 ? Double.NaN : min;
+	}
+
+	/**
+	 * @return the largest recorded latency, or <tt>NaN</tt> if nothing was recorded
+	 */
+	public double getMax() {
+		return count == 0 ? Double.NaN : max;
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	private static long toUnits(double value) {
+		double units = Math.ceil(value / RESOLUTION);
+		return units >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) units;
+	}
+
+	/**
+	 * Values below {@link #SUB_BUCKETS} map to themselves; a value in [2^(b+k-1), 2^(b+k)), with
+	 * k the number of sub-bucket bits, maps to the sub-bucket (value >> b) of bucket b.
+	 */
+	private static int indexOf(long units) {
+		int bucket = Math.max(0, 64 - Long.numberOfLeadingZeros(units) - SUB_BUCKET_BITS);
+		int subBucket = (int) (units >>> bucket);
+		return bucket == 0 ? subBucket : bucket * HALF_SUB_BUCKETS + subBucket;
+	}
+
+	private static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int bucket = index / HALF_SUB_BUCKETS - 1;
+		long subBucket = index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return ((subBucket + 1) << bucket) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.2f p50=%.2f p95=%.2f p99=%.2f max=%.2f", getCount(), getMean(),
+				getP50(), getP95(), getP99(), getMax());
+	}
+
+}
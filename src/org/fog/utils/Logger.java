@@ -1,34 +1,132 @@
 package org.fog.utils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.DecimalFormat;
 
+import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
 
+/**
+ * Level-gated logger of the fog entities. Messages can be given as a format whose <tt>{}</tt>
+ * placeholders are replaced by the string values of the arguments; the message is only built when
+ * the level is enabled, so that a disabled log statement costs no string concatenation. The
+ * overloads taking <tt>int</tt> and <tt>double</tt> arguments, such as tuple ids, only box them once
+ * the level is enabled. Callers computing expensive arguments should also check
+ * {@link #isDebugEnabled()} first.
+ */
 public class Logger {
-	
+
 	public static final int ERROR = 1;
 	public static final int DEBUG = 0;
-	
+
 	public static int LOG_LEVEL = Logger.DEBUG;
-	private static DecimalFormat df = new DecimalFormat("#.00"); 
+	private static DecimalFormat df = new DecimalFormat("#.00");
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+	private static OutputStream output;
 
 	public static boolean ENABLED = false;;
-	
+
 	public static void setLogLevel(int level){
 		Logger.LOG_LEVEL = level;
 	}
-	
+
+	public static boolean isDebugEnabled(){
+		return ENABLED && Logger.LOG_LEVEL <= Logger.DEBUG;
+	}
+
+	public static boolean isErrorEnabled(){
+		return ENABLED && Logger.LOG_LEVEL <= Logger.ERROR;
+	}
+
 	public static void debug(String name, String message){
-		if(!ENABLED)
-			return;
-		if(Logger.LOG_LEVEL <= Logger.DEBUG)
-			System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
+		if(isDebugEnabled())
+			print(name, message);
+	}
+
+	public static void debug(String name, String format, Object arg){
+		if(isDebugEnabled())
+			print(name, format(format, arg));
+	}
+
+	public static void debug(String name, String format, int arg){
+		if(isDebugEnabled())
+			print(name, format(format, arg));
+	}
+
+	public static void debug(String name, String format, double arg){
+		if(isDebugEnabled())
+			print(name, format(format, arg));
+	}
+
+	public static void debug(String name, String format, int arg1, Object arg2){
+		if(isDebugEnabled())
+			print(name, format(format, arg1, arg2));
+	}
+
+	public static void debug(String name, String format, Object arg1, Object arg2){
+		if(isDebugEnabled())
+			print(name, format(format, arg1, arg2));
+	}
+
+	public static void debug(String name, String format, Object arg1, Object arg2, Object arg3){
+		if(isDebugEnabled())
+			print(name, format(format, arg1, arg2, arg3));
+	}
+
+	public static void debug(String name, String format, Object... args){
+		if(isDebugEnabled())
+			print(name, format(format, args));
 	}
+
 	public static void error(String name, String message){
-		if(!ENABLED)
-			return;
-		if(Logger.LOG_LEVEL <= Logger.ERROR)
-			System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
+		if(isErrorEnabled())
+			print(name, message);
+	}
+
+	public static void error(String name, String format, Object arg){
+		if(isErrorEnabled())
+			print(name, format(format, arg));
+	}
+
+	public static void error(String name, String format, Object arg1, Object arg2){
+		if(isErrorEnabled())
+			print(name, format(format, arg1, arg2));
+	}
+
+	public static void error(String name, String format, Object... args){
+		if(isErrorEnabled())
+			print(name, format(format, args));
 	}
-	
+
+	/**
+	 * Sets the stream the messages are written to, e.g. an {@link org.cloudbus.cloudsim.AsyncLogAppender}.
+	 * @param output the output stream, <tt>null</tt> for the standard output
+	 */
+	public static void setOutput(OutputStream output){
+		Logger.output = output;
+	}
+
+	public static OutputStream getOutput(){
+		if(output == null)
+			return System.out;
+		return output;
+	}
+
+	private static void print(String name, String message){
+		String line = df.format(CloudSim.clock())+" : "+name+" : "+message+LINE_SEPARATOR;
+		try {
+			getOutput().write(line.getBytes());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Replaces the <tt>{}</tt> placeholders of the format by the string values of the arguments, in order.
+	 */
+	static String format(String format, Object... args){
+		return Log.formatMessage(format, args);
+	}
+
 }
@@ -1,14 +1,15 @@
 package org.fog.utils;
 
+/**
+ * Accumulates the network usage of the current {@link SimulationContext}.
+ */
 public class NetworkUsageMonitor {
 
-	private static double networkUsage = 0.0;
-	
 	public static void sendingTuple(double latency, double tupleNwSize){
-		networkUsage += latency*tupleNwSize;
+		SimulationContext.getCurrent().addNetworkUsage(latency*tupleNwSize);
 	}
 	
 	public static double getNetworkUsage(){
-		return networkUsage;
+		return SimulationContext.getCurrent().getNetworkUsage();
 	}
 }
@@ -0,0 +1,130 @@
+package org.fog.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import org.cloudbus.cloudsim.power.models.PowerModel;
+import org.fog.entities.FogDevice;
+
+/**
+ * Energy and cost accounting of a fog device. The utilization of the device is constant between
+ * two of its state changes, which are the reallocations of its MIPS, so the energy and the cost are
+ * integrated over that interval whenever the state changes, and the power of the device is only
+ * evaluated when its utilization changes. The changes of power are recorded in a
+ * {@link PowerTimeSeries} of {@link SimulationConfig#getPowerTimeSeriesCapacity()} points.
+ */
+public class PowerMonitor {
+
+	private final PowerModel powerModel;
+	private final double totalMips;
+	private final PowerTimeSeries timeSeries;
+
+	private double energyConsumption;
+	private double totalCost;
+	private double lastUtilization;
+	private double lastPower;
+	private double lastUpdateTime;
+
+	/**
+	 * @param powerModel power model of the host of the device
+	 * @param totalMips MIPS of the host of the device
+	 */
+	public PowerMonitor(PowerModel powerModel, double totalMips) {
+		this.powerModel = powerModel;
+		this.totalMips = totalMips;
+		this.timeSeries = new PowerTimeSeries(SimulationContext.getCurrent().getConfig().getPowerTimeSeriesCapacity());
+		this.lastPower = powerModel.getPower(0);
+		timeSeries.add(0, lastPower, 0);
+	}
+
+	/**
+	 * Integrates the energy and the cost since the last state change, at the utilization of that
+	 * change, and starts a new interval.
+	 * @param time current time
+	 * @param allocatedMips MIPS allocated to the modules of the device from now on
+	 * @param ratePerMips cost of a fully used MIPS per time unit
+	 */
+	public void update(double time, double allocatedMips, double ratePerMips) {
+		energyConsumption = energyConsumption + (time - lastUpdateTime) * lastPower;
+		totalCost = totalCost + (time - lastUpdateTime) * ratePerMips * lastUtilization * totalMips;
+
+		double utilization = Math.min(1, allocatedMips / totalMips);
+		if (utilization != lastUtilization) {
+			lastUtilization = utilization;
+			double power = powerModel.getPower(utilization);
+			if (power != lastPower)
+				timeSeries.add(time, power, energyConsumption);
+			lastPower = power;
+		}
+		lastUpdateTime = time;
+	}
+
+	/**
+	 * @return the energy consumed up to the last state change
+	 */
+	public double getEnergyConsumption() {
+		return energyConsumption;
+	}
+
+	public void setEnergyConsumption(double energyConsumption) {
+		this.energyConsumption = energyConsumption;
+	}
+
+	/**
+	 * @return the cost of execution up to the last state change
+	 */
+	public double getTotalCost() {
+		return totalCost;
+	}
+
+	public void setTotalCost(double totalCost) {
+		this.totalCost = totalCost;
+	}
+
+	public double getLastUtilization() {
+		return lastUtilization;
+	}
+
+	public double getLastPower() {
+		return lastPower;
+	}
+
+	public double getLastUpdateTime() {
+		return lastUpdateTime;
+	}
+
+	public PowerTimeSeries getTimeSeries() {
+		return timeSeries;
+	}
+
+	/**
+	 * Writes the power time series of devices as CSV, with the columns <tt>device</tt>,
+	 * <tt>time</tt>, <tt>power</tt> and <tt>energy</tt>, the points of every device being in time
+	 * order. The power of a point holds until the next point of the device, and the power of its
+	 * last point until the end of the simulation.
+	 */
+	public static void writeTimeSeries(Writer output, List<FogDevice> fogDevices) throws IOException {
+		output.write("device,time,power,energy\n");
+		StringBuilder rows = new StringBuilder();
+		for (FogDevice fogDevice : fogDevices) {
+			String device = quote(fogDevice.getName());
+			PowerTimeSeries timeSeries = fogDevice.getPowerMonitor().getTimeSeries();
+			for (int i = 0; i < timeSeries.size(); i++) {
+				rows.append(device).append(',').append(timeSeries.getTime(i)).append(',')
+						.append(timeSeries.getPower(i)).append(',').append(timeSeries.getEnergy(i)).append('\n');
+			}
+			output.write(rows.toString());
+			rows.setLength(0);
+		}
+	}
+
+	/**
+	 * Quotes a CSV field if it contains a comma, a quote or a line break, doubling its quotes.
+	 */
+	private static String quote(String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0)
+			return field;
+		return '"' + field.replace("\"", "\"\"") + '"';
+	}
+}
@@ -0,0 +1,119 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+/**
+ * Piecewise-constant power of a device over time, kept as parallel arrays of primitives in a ring
+ * buffer. Every point gives the time at which the power changed, the new power and the energy
+ * consumed up to that time; the power holds until the time of the next point. Once the buffer is
+ * full, every new point overwrites the oldest one, and the energy column still gives the absolute
+ * consumption of the remaining points.
+ */
+public class PowerTimeSeries {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final int capacity;
+	private double[] times;
+	private double[] powers;
+	private double[] energies;
+	/** Index of the oldest point. */
+	private int head;
+	private int size;
+	private long dropped;
+
+	/**
+	 * @param capacity maximum number of points kept; the arrays grow up to that size as needed
+	 */
+	public PowerTimeSeries(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("The capacity should be positive, but is: " + capacity);
+		this.capacity = capacity;
+		int initialCapacity = Math.min(capacity, INITIAL_CAPACITY);
+		times = new double[initialCapacity];
+		powers = new double[initialCapacity];
+		energies = new double[initialCapacity];
+	}
+
+	/**
+	 * Records a change of power. A point at the same time as the last one replaces it, as the power
+	 * it recorded never held, and is dropped if it restores the power of the point before.
+	 * @param time time of the change
+	 * @param power power from that time on
+	 * @param energy energy consumed up to that time
+	 */
+	public void add(double time, double power, double energy) {
+		int index;
+		if (size > 0 && times[indexOf(size - 1)] == time) {
+			if (size > 1 && powers[indexOf(size - 2)] == power) {
+				size--;
+				return;
+			}
+			index = indexOf(size - 1);
+		} else if (size < times.length) {
+			index = indexOf(size);
+			size++;
+		} else if (size < capacity) {
+			grow();
+			index = size++;
+		} else {
+			index = head;
+			head = (head + 1) % times.length;
+			dropped++;
+		}
+		times[index] = time;
+		powers[index] = power;
+		energies[index] = energy;
+	}
+
+	/**
+	 * Doubles the arrays, which are only grown before they wrap around.
+	 */
+	private void grow() {
+		int newLength = (int) Math.min(capacity, 2L * times.length);
+		times = Arrays.copyOf(times, newLength);
+		powers = Arrays.copyOf(powers, newLength);
+		energies = Arrays.copyOf(energies, newLength);
+	}
+
+	private int indexOf(int i) {
+		int index = head + i;
+		return index < times.length ? index : index - times.length;
+	}
+
+	/**
+	 * @return the number of points kept
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of points overwritten since the buffer got full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @param i index of the point, from 0 for the oldest point kept
+	 */
+	public double getTime(int i) {
+		return times[indexOf(checkIndex(i))];
+	}
+
+	public double getPower(int i) {
+		return powers[indexOf(checkIndex(i))];
+	}
+
+	public double getEnergy(int i) {
+		return energies[indexOf(checkIndex(i))];
+	}
+
+	private int checkIndex(int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+		return i;
+	}
+
+}
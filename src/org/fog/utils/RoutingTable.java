@@ -0,0 +1,111 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Downward routes of a fog device: the child through which every device and every module instance
+ * of its subtree is reached, and the children whose subtree hosts an instance of a module. The
+ * device routes are built once the topology is wired, and the module routes are added as the
+ * modules are launched, so that resolving a route takes constant time instead of a walk of the
+ * subtree.
+ */
+public class RoutingTable {
+
+	private static final int[] NO_CHILDREN = new int[0];
+
+	/** Child of the device through which a device of its subtree is reached, by device id. */
+	private final IntIntHashMap deviceRoutes = new IntIntHashMap();
+
+	/** Child of the device through which a module instance of its subtree is reached, by VM id. */
+	private final IntIntHashMap moduleInstanceRoutes = new IntIntHashMap();
+
+	/** Children whose subtree hosts a module, in the order of the children of the device. */
+	private final Map<String, int[]> moduleRoutes = new HashMap<String, int[]>();
+
+	/** Position of every child in the children of the device. */
+	private final IntIntHashMap childPositions = new IntIntHashMap();
+
+	/**
+	 * @param childrenIds children of the device, in the order in which tuples are flooded to them
+	 */
+	public RoutingTable(List<Integer> childrenIds) {
+		for (int childId : childrenIds)
+			addChild(childId);
+	}
+
+	/**
+	 * Adds a child after the existing ones.
+	 */
+	public void addChild(int childId) {
+		if (!childPositions.containsKey(childId))
+			childPositions.put(childId, childPositions.size());
+		deviceRoutes.put(childId, childId);
+	}
+
+	/**
+	 * @return whether the device is a child of this device
+	 */
+	public boolean isChild(int deviceId) {
+		return childPositions.containsKey(deviceId);
+	}
+
+	/**
+	 * Routes a device of the subtree through a child.
+	 */
+	public void addDeviceRoute(int deviceId, int childId) {
+		deviceRoutes.put(deviceId, childId);
+	}
+
+	/**
+	 * @return the child through which the device is reached, or -1 if it is not in the subtree
+	 */
+	public int getChildForDevice(int deviceId) {
+		return deviceRoutes.get(deviceId, -1);
+	}
+
+	/**
+	 * Routes a module instance launched in the subtree through a child.
+	 * @param moduleName name of the module
+	 * @param vmId id of the instance
+	 * @param childId child whose subtree hosts the instance
+	 */
+	public void addModuleRoute(String moduleName, int vmId, int childId) {
+		moduleInstanceRoutes.put(vmId, childId);
+		int[] children = moduleRoutes.get(moduleName);
+		if (children == null) {
+			moduleRoutes.put(moduleName, new int[] {childId});
+			return;
+		}
+		int position = childPositions.get(childId, Integer.MAX_VALUE);
+		int index = 0;
+		while (index < children.length && childPositions.get(children[index], Integer.MAX_VALUE) < position)
+			index++;
+		if (index < children.length && children[index] == childId)
+			return;
+		int[] newChildren = Arrays.copyOf(children, children.length + 1);
+		System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+		newChildren[index] = childId;
+		moduleRoutes.put(moduleName, newChildren);
+	}
+
+	/**
+	 * @return the child through which the module instance is reached, or -1 if it is not in the
+	 *         subtree
+	 */
+	public int getChildForModuleInstance(int vmId) {
+		return moduleInstanceRoutes.get(vmId, -1);
+	}
+
+	/**
+	 * @return the children whose subtree hosts an instance of the module, in the order of the
+	 *         children of the device, or an empty array; the array must not be modified
+	 */
+	public int[] getChildrenForModule(String moduleName) {
+		int[] children = moduleRoutes.get(moduleName);
+		return children != null ? children : NO_CHILDREN;
+	}
+
+}
@@ -0,0 +1,513 @@
+package org.fog.utils;
+
+import org.fog.placement.Controller;
+
+/**
+ * Settings of the simulation of a {@link SimulationContext}. The settings of the default context
+ * are the static fields of {@link Config}, {@link FogUtils#USER_ID} and {@link Controller#ONLY_CLOUD},
+ * so that the scenarios setting them keep working; any other context starts from a copy of those
+ * fields taken when it is created, and can change it without affecting the simulations running
+ * with other contexts.
+ */
+public class SimulationConfig {
+
+	private int maxSimulationTime;
+	private int resourceManageInterval;
+	private String fogDeviceArch;
+	private String fogDeviceOs;
+	private String fogDeviceVmm;
+	private double fogDeviceTimeZone;
+	private double fogDeviceCost;
+	private double fogDeviceCostPerMemory;
+	private double fogDeviceCostPerStorage;
+	private double fogDeviceCostPerBw;
+	private int powerTimeSeriesCapacity;
+	private String powerTimeSeriesFile;
+	private boolean unicastDownTuples;
+	private boolean multiChannelLinks;
+	private double linkMtu;
+	private double linkPacketHeaderSize;
+	private boolean neighborOffloading;
+	private int offloadQueueThreshold;
+	private double loadReportInterval;
+	private int gatewayLevel;
+
+	private int userId = 1;
+	private boolean onlyCloud = false;
+	private boolean exitOnStop = true;
+
+	/**
+	 * Creates settings with the current values of the static fields of {@link Config}.
+	 */
+	@SuppressWarnings("deprecation")
+	public SimulationConfig() {
+		maxSimulationTime = Config.MAX_SIMULATION_TIME;
+		resourceManageInterval = Config.RESOURCE_MANAGE_INTERVAL;
+		fogDeviceArch = Config.FOG_DEVICE_ARCH;
+		fogDeviceOs = Config.FOG_DEVICE_OS;
+		fogDeviceVmm = Config.FOG_DEVICE_VMM;
+		fogDeviceTimeZone = Config.FOG_DEVICE_TIMEZONE;
+		fogDeviceCost = Config.FOG_DEVICE_COST;
+		fogDeviceCostPerMemory = Config.FOG_DEVICE_COST_PER_MEMORY;
+		fogDeviceCostPerStorage = Config.FOG_DEVICE_COST_PER_STORAGE;
+		fogDeviceCostPerBw = Config.FOG_DEVICE_COST_PER_BW;
+		powerTimeSeriesCapacity = Config.POWER_TIME_SERIES_CAPACITY;
+		powerTimeSeriesFile = Config.POWER_TIME_SERIES_FILE;
+		unicastDownTuples = Config.UNICAST_DOWN_TUPLES;
+		multiChannelLinks = Config.MULTI_CHANNEL_LINKS;
+		linkMtu = Config.LINK_MTU;
+		linkPacketHeaderSize = Config.LINK_PACKET_HEADER_SIZE;
+		neighborOffloading = Config.NEIGHBOR_OFFLOADING;
+		offloadQueueThreshold = Config.OFFLOAD_QUEUE_THRESHOLD;
+		loadReportInterval = Config.LOAD_REPORT_INTERVAL;
+		gatewayLevel = Config.GATEWAY_LEVEL;
+		userId = FogUtils.USER_ID;
+		onlyCloud = Controller.ONLY_CLOUD;
+	}
+
+	/** @see Config#MAX_SIMULATION_TIME */
+	public int getMaxSimulationTime() {
+		return maxSimulationTime;
+	}
+
+	public void setMaxSimulationTime(int maxSimulationTime) {
+		this.maxSimulationTime = maxSimulationTime;
+	}
+
+	/** @see Config#RESOURCE_MANAGE_INTERVAL */
+	public int getResourceManageInterval() {
+		return resourceManageInterval;
+	}
+
+	public void setResourceManageInterval(int resourceManageInterval) {
+		this.resourceManageInterval = resourceManageInterval;
+	}
+
+	/** @see Config#FOG_DEVICE_ARCH */
+	public String getFogDeviceArch() {
+		return fogDeviceArch;
+	}
+
+	public void setFogDeviceArch(String fogDeviceArch) {
+		this.fogDeviceArch = fogDeviceArch;
+	}
+
+	/** @see Config#FOG_DEVICE_OS */
+	public String getFogDeviceOs() {
+		return fogDeviceOs;
+	}
+
+	public void setFogDeviceOs(String fogDeviceOs) {
+		this.fogDeviceOs = fogDeviceOs;
+	}
+
+	/** @see Config#FOG_DEVICE_VMM */
+	public String getFogDeviceVmm() {
+		return fogDeviceVmm;
+	}
+
+	public void setFogDeviceVmm(String fogDeviceVmm) {
+		this.fogDeviceVmm = fogDeviceVmm;
+	}
+
+	/** @see Config#FOG_DEVICE_TIMEZONE */
+	public double getFogDeviceTimeZone() {
+		return fogDeviceTimeZone;
+	}
+
+	public void setFogDeviceTimeZone(double fogDeviceTimeZone) {
+		this.fogDeviceTimeZone = fogDeviceTimeZone;
+	}
+
+	/** @see Config#FOG_DEVICE_COST */
+	public double getFogDeviceCost() {
+		return fogDeviceCost;
+	}
+
+	public void setFogDeviceCost(double fogDeviceCost) {
+		this.fogDeviceCost = fogDeviceCost;
+	}
+
+	/** @see Config#FOG_DEVICE_COST_PER_MEMORY */
+	public double getFogDeviceCostPerMemory() {
+		return fogDeviceCostPerMemory;
+	}
+
+	public void setFogDeviceCostPerMemory(double fogDeviceCostPerMemory) {
+		this.fogDeviceCostPerMemory = fogDeviceCostPerMemory;
+	}
+
+	/** @see Config#FOG_DEVICE_COST_PER_STORAGE */
+	public double getFogDeviceCostPerStorage() {
+		return fogDeviceCostPerStorage;
+	}
+
+	public void setFogDeviceCostPerStorage(double fogDeviceCostPerStorage) {
+		this.fogDeviceCostPerStorage = fogDeviceCostPerStorage;
+	}
+
+	/** @see Config#FOG_DEVICE_COST_PER_BW */
+	public double getFogDeviceCostPerBw() {
+		return fogDeviceCostPerBw;
+	}
+
+	public void setFogDeviceCostPerBw(double fogDeviceCostPerBw) {
+		this.fogDeviceCostPerBw = fogDeviceCostPerBw;
+	}
+
+	/** @see Config#POWER_TIME_SERIES_CAPACITY */
+	public int getPowerTimeSeriesCapacity() {
+		return powerTimeSeriesCapacity;
+	}
+
+	public void setPowerTimeSeriesCapacity(int powerTimeSeriesCapacity) {
+		this.powerTimeSeriesCapacity = powerTimeSeriesCapacity;
+	}
+
+	/** @see Config#POWER_TIME_SERIES_FILE */
+	public String getPowerTimeSeriesFile() {
+		return powerTimeSeriesFile;
+	}
+
+	public void setPowerTimeSeriesFile(String powerTimeSeriesFile) {
+		this.powerTimeSeriesFile = powerTimeSeriesFile;
+	}
+
+	/** @see Config#UNICAST_DOWN_TUPLES */
+	public boolean isUnicastDownTuples() {
+		return unicastDownTuples;
+	}
+
+	public void setUnicastDownTuples(boolean unicastDownTuples) {
+		this.unicastDownTuples = unicastDownTuples;
+	}
+
+	/** @see Config#MULTI_CHANNEL_LINKS */
+	public boolean isMultiChannelLinks() {
+		return multiChannelLinks;
+	}
+
+	public void setMultiChannelLinks(boolean multiChannelLinks) {
+		this.multiChannelLinks = multiChannelLinks;
+	}
+
+	/** @see Config#LINK_MTU */
+	public double getLinkMtu() {
+		return linkMtu;
+	}
+
+	public void setLinkMtu(double linkMtu) {
+		this.linkMtu = linkMtu;
+	}
+
+	/** @see Config#LINK_PACKET_HEADER_SIZE */
+	public double getLinkPacketHeaderSize() {
+		return linkPacketHeaderSize;
+	}
+
+	public void setLinkPacketHeaderSize(double linkPacketHeaderSize) {
+		this.linkPacketHeaderSize = linkPacketHeaderSize;
+	}
+
+	/** @see Config#NEIGHBOR_OFFLOADING */
+	public boolean isNeighborOffloading() {
+		return neighborOffloading;
+	}
+
+	public void setNeighborOffloading(boolean neighborOffloading) {
+		this.neighborOffloading = neighborOffloading;
+	}
+
+	/** @see Config#OFFLOAD_QUEUE_THRESHOLD */
+	public int getOffloadQueueThreshold() {
+		return offloadQueueThreshold;
+	}
+
+	public void setOffloadQueueThreshold(int offloadQueueThreshold) {
+		this.offloadQueueThreshold = offloadQueueThreshold;
+	}
+
+	/** @see Config#LOAD_REPORT_INTERVAL */
+	public double getLoadReportInterval() {
+		return loadReportInterval;
+	}
+
+	public void setLoadReportInterval(double loadReportInterval) {
+		this.loadReportInterval = loadReportInterval;
+	}
+
+	/** @see Config#GATEWAY_LEVEL */
+	public int getGatewayLevel() {
+		return gatewayLevel;
+	}
+
+	public void setGatewayLevel(int gatewayLevel) {
+		this.gatewayLevel = gatewayLevel;
+	}
+
+	/**
+	 * @return the id of the user of the simulation, 1 by default
+	 */
+	public int getUserId() {
+		return userId;
+	}
+
+	public void setUserId(int userId) {
+		this.userId = userId;
+	}
+
+	/** @see Controller#ONLY_CLOUD */
+	public boolean isOnlyCloud() {
+		return onlyCloud;
+	}
+
+	public void setOnlyCloud(boolean onlyCloud) {
+		this.onlyCloud = onlyCloud;
+	}
+
+	/**
+	 * @return whether the virtual machine exits once the controller printed the results at the end
+	 *         of the simulation, which is the default. Otherwise the simulation is terminated and
+	 *         {@link org.cloudbus.cloudsim.core.CloudSim#startSimulation()} returns, so that the
+	 *         results can be read from the controller, e.g. by a parameter sweep.
+	 */
+	public boolean isExitOnStop() {
+		return exitOnStop;
+	}
+
+	public void setExitOnStop(boolean exitOnStop) {
+		this.exitOnStop = exitOnStop;
+	}
+
+	/**
+	 * Settings of the default context, which read and write the static fields of {@link Config},
+	 * {@link FogUtils} and {@link Controller}.
+	 */
+	static class Defaults extends SimulationConfig {
+
+		@Override
+		public int getMaxSimulationTime() {
+			return Config.MAX_SIMULATION_TIME;
+		}
+
+		@Override
+		public void setMaxSimulationTime(int maxSimulationTime) {
+			Config.MAX_SIMULATION_TIME = maxSimulationTime;
+		}
+
+		@Override
+		public int getResourceManageInterval() {
+			return Config.RESOURCE_MANAGE_INTERVAL;
+		}
+
+		@Override
+		public void setResourceManageInterval(int resourceManageInterval) {
+			Config.RESOURCE_MANAGE_INTERVAL = resourceManageInterval;
+		}
+
+		@Override
+		public String getFogDeviceArch() {
+			return Config.FOG_DEVICE_ARCH;
+		}
+
+		@Override
+		public void setFogDeviceArch(String fogDeviceArch) {
+			Config.FOG_DEVICE_ARCH = fogDeviceArch;
+		}
+
+		@Override
+		public String getFogDeviceOs() {
+			return Config.FOG_DEVICE_OS;
+		}
+
+		@Override
+		public void setFogDeviceOs(String fogDeviceOs) {
+			Config.FOG_DEVICE_OS = fogDeviceOs;
+		}
+
+		@Override
+		public String getFogDeviceVmm() {
+			return Config.FOG_DEVICE_VMM;
+		}
+
+		@Override
+		public void setFogDeviceVmm(String fogDeviceVmm) {
+			Config.FOG_DEVICE_VMM = fogDeviceVmm;
+		}
+
+		@Override
+		public double getFogDeviceTimeZone() {
+			return Config.FOG_DEVICE_TIMEZONE;
+		}
+
+		@Override
+		public void setFogDeviceTimeZone(double fogDeviceTimeZone) {
+			Config.FOG_DEVICE_TIMEZONE = fogDeviceTimeZone;
+		}
+
+		@Override
+		public double getFogDeviceCost() {
+			return Config.FOG_DEVICE_COST;
+		}
+
+		@Override
+		public void setFogDeviceCost(double fogDeviceCost) {
+			Config.FOG_DEVICE_COST = fogDeviceCost;
+		}
+
+		@Override
+		public double getFogDeviceCostPerMemory() {
+			return Config.FOG_DEVICE_COST_PER_MEMORY;
+		}
+
+		@Override
+		public void setFogDeviceCostPerMemory(double fogDeviceCostPerMemory) {
+			Config.FOG_DEVICE_COST_PER_MEMORY = fogDeviceCostPerMemory;
+		}
+
+		@Override
+		public double getFogDeviceCostPerStorage() {
+			return Config.FOG_DEVICE_COST_PER_STORAGE;
+		}
+
+		@Override
+		public void setFogDeviceCostPerStorage(double fogDeviceCostPerStorage) {
+			Config.FOG_DEVICE_COST_PER_STORAGE = fogDeviceCostPerStorage;
+		}
+
+		@Override
+		public double getFogDeviceCostPerBw() {
+			return Config.FOG_DEVICE_COST_PER_BW;
+		}
+
+		@Override
+		public void setFogDeviceCostPerBw(double fogDeviceCostPerBw) {
+			Config.FOG_DEVICE_COST_PER_BW = fogDeviceCostPerBw;
+		}
+
+		@Override
+		public int getPowerTimeSeriesCapacity() {
+			return Config.POWER_TIME_SERIES_CAPACITY;
+		}
+
+		@Override
+		public void setPowerTimeSeriesCapacity(int powerTimeSeriesCapacity) {
+			Config.POWER_TIME_SERIES_CAPACITY = powerTimeSeriesCapacity;
+		}
+
+		@Override
+		public String getPowerTimeSeriesFile() {
+			return Config.POWER_TIME_SERIES_FILE;
+		}
+
+		@Override
+		public void setPowerTimeSeriesFile(String powerTimeSeriesFile) {
+			Config.POWER_TIME_SERIES_FILE = powerTimeSeriesFile;
+		}
+
+		@Override
+		public boolean isUnicastDownTuples() {
+			return Config.UNICAST_DOWN_TUPLES;
+		}
+
+		@Override
+		public void setUnicastDownTuples(boolean unicastDownTuples) {
+			Config.UNICAST_DOWN_TUPLES = unicastDownTuples;
+		}
+
+		@Override
+		public boolean isMultiChannelLinks() {
+			return Config.MULTI_CHANNEL_LINKS;
+		}
+
+		@Override
+		public void setMultiChannelLinks(boolean multiChannelLinks) {
+			Config.MULTI_CHANNEL_LINKS = multiChannelLinks;
+		}
+
+		@Override
+		public double getLinkMtu() {
+			return Config.LINK_MTU;
+		}
+
+		@Override
+		public void setLinkMtu(double linkMtu) {
+			Config.LINK_MTU = linkMtu;
+		}
+
+		@Override
+		public double getLinkPacketHeaderSize() {
+			return Config.LINK_PACKET_HEADER_SIZE;
+		}
+
+		@Override
+		public void setLinkPacketHeaderSize(double linkPacketHeaderSize) {
+			Config.LINK_PACKET_HEADER_SIZE = linkPacketHeaderSize;
+		}
+
+		@Override
+		public boolean isNeighborOffloading() {
+			return Config.NEIGHBOR_OFFLOADING;
+		}
+
+		@Override
+		public void setNeighborOffloading(boolean neighborOffloading) {
+			Config.NEIGHBOR_OFFLOADING = neighborOffloading;
+		}
+
+		@Override
+		public int getOffloadQueueThreshold() {
+			return Config.OFFLOAD_QUEUE_THRESHOLD;
+		}
+
+		@Override
+		public void setOffloadQueueThreshold(int offloadQueueThreshold) {
+			Config.OFFLOAD_QUEUE_THRESHOLD = offloadQueueThreshold;
+		}
+
+		@Override
+		public double getLoadReportInterval() {
+			return Config.LOAD_REPORT_INTERVAL;
+		}
+
+		@Override
+		public void setLoadReportInterval(double loadReportInterval) {
+			Config.LOAD_REPORT_INTERVAL = loadReportInterval;
+		}
+
+		@Override
+		public int getGatewayLevel() {
+			return Config.GATEWAY_LEVEL;
+		}
+
+		@Override
+		public void setGatewayLevel(int gatewayLevel) {
+			Config.GATEWAY_LEVEL = gatewayLevel;
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public int getUserId() {
+			return FogUtils.USER_ID;
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public void setUserId(int userId) {
+			FogUtils.USER_ID = userId;
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public boolean isOnlyCloud() {
+			return Controller.ONLY_CLOUD;
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public void setOnlyCloud(boolean onlyCloud) {
+			Controller.ONLY_CLOUD = onlyCloud;
+		}
+	}
+
+}
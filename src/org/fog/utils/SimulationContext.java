@@ -0,0 +1,150 @@
+package org.fog.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fog.entities.TuplePool;
+
+/**
+ * State of a fog simulation which is not held by its entities: the {@link TimeKeeper}, the network
+ * usage reported by {@link NetworkUsageMonitor}, the id generators of {@link FogUtils}, the
+ * {@link TuplePool}, the geographical coverage of the applications and the
+ * {@link SimulationConfig settings} of the simulation. Each thread works with its current context,
+ * which is the process-wide default context unless another one was set with
+ * {@link #setCurrent(SimulationContext)}. Simulations running with different contexts thus do not
+ * share metrics, ids, tuples or settings.
+ *
+ * The entities look up the current context once, when they are created, and keep using it.
+ *
+ * A context is meant to be used by one simulation at a time. Its counters are atomic, so that they
+ * can be read from another thread while the simulation runs.
+ *
+ * A context does not make two simulations of the same class loader able to run at the same time:
+ * the CloudSim kernel (clock, future and deferred event queues, entity list) is still made of
+ * static fields. Simulations in the same JVM with the same classes must run one after the other;
+ * concurrent runs need their own copy of the simulator classes, which
+ * {@link org.fog.utils.sweep.SweepRunner} loads with a dedicated class loader per run.
+ */
+public class SimulationContext {
+
+	private static final SimulationContext DEFAULT = new SimulationContext(new SimulationConfig.Defaults());
+
+	private static final ThreadLocal<SimulationContext> current = new ThreadLocal<SimulationContext>() {
+		@Override
+		protected SimulationContext initialValue() {
+			return DEFAULT;
+		}
+	};
+
+	private final TimeKeeper timeKeeper = new TimeKeeper();
+	private final TuplePool tuplePool = new TuplePool();
+	private final AtomicInteger tupleId = new AtomicInteger(1);
+	private final AtomicInteger entityId = new AtomicInteger(1);
+	private final AtomicInteger actualTupleId = new AtomicInteger(1);
+	/** Network usage, as the raw bits of a double. */
+	private final AtomicLong networkUsage = new AtomicLong(Double.doubleToRawLongBits(0.0));
+	private final Map<String, GeoCoverage> appIdToGeoCoverage = new HashMap<String, GeoCoverage>();
+	private final SimulationConfig config;
+	private GatewayIndex gatewayIndex;
+
+	/**
+	 * Creates a context whose settings are a copy of the static fields of {@link Config}.
+	 */
+	public SimulationContext() {
+		this(new SimulationConfig());
+	}
+
+	/**
+	 * @param config settings of the simulation
+	 */
+	public SimulationContext(SimulationConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * @return the context of the current thread
+	 */
+	public static SimulationContext getCurrent() {
+		return current.get();
+	}
+
+	/**
+	 * Sets the context of the current thread.
+	 * @param context the context, <tt>null</tt> for the default context
+	 */
+	public static void setCurrent(SimulationContext context) {
+		if (context == null)
+			current.remove();
+		else
+			current.set(context);
+	}
+
+	/**
+	 * @return the context of the threads which did not set their own
+	 */
+	public static SimulationContext getDefault() {
+		return DEFAULT;
+	}
+
+	public SimulationConfig getConfig() {
+		return config;
+	}
+
+	public TimeKeeper getTimeKeeper() {
+		return timeKeeper;
+	}
+
+	public TuplePool getTuplePool() {
+		return tuplePool;
+	}
+
+	public int generateTupleId() {
+		return tupleId.getAndIncrement();
+	}
+
+	public int generateEntityId() {
+		return entityId.getAndIncrement();
+	}
+
+	public int generateActualTupleId() {
+		return actualTupleId.getAndIncrement();
+	}
+
+	public void addNetworkUsage(double usage) {
+		while (true) {
+			long bits = networkUsage.get();
+			if (networkUsage.compareAndSet(bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + usage)))
+				return;
+		}
+	}
+
+	public double getNetworkUsage() {
+		return Double.longBitsToDouble(networkUsage.get());
+	}
+
+	/**
+	 * @return the geographical coverage of the applications submitted to the controller, by id
+	 */
+	@SuppressWarnings("deprecation")
+	public Map<String, GeoCoverage> getAppIdToGeoCoverageMap() {
+		// the default context keeps the map of FogUtils, which the scenarios may fill directly
+		if (this == DEFAULT)
+			return FogUtils.appIdToGeoCoverageMap;
+		return appIdToGeoCoverage;
+	}
+
+	/**
+	 * @return the index of the gateways that sensors and actuators with a location join, or
+	 *         <tt>null</tt> if they join the gateway they were given
+	 */
+	public GatewayIndex getGatewayIndex() {
+		return gatewayIndex;
+	}
+
+	public void setGatewayIndex(GatewayIndex gatewayIndex) {
+		this.gatewayIndex = gatewayIndex;
+	}
+
+}
@@ -1,16 +1,33 @@
 package org.fog.utils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.fog.entities.Tuple;
 
+/**
+ * Keeps the emission times of the tuples starting an application loop and the CPU start times of
+ * executing tuples, and computes the loop delays and tuple CPU times from them.
+ * 
+ * By default every tuple id is kept in {@link #getLoopIdToTupleIds()} and the CPU start times are
+ * never evicted, so memory grows with the number of emitted tuples. In streaming mode (see
+ * {@link #setStreaming(boolean)}) the times of in-flight tuples are kept in primitive maps and
+ * evicted as soon as the tuple completes, and the latencies are recorded in per-loop and
+ * per-tuple-type {@link LatencyHistogram}s, which give their percentiles. Some tuples never
+ * complete their loop, e.g. when a module with a fractional selectivity does not emit a tuple for
+ * them or a device outside the coverage of the application drops them, so the emission times older
+ * than the streaming horizon (see {@link #setStreamingHorizon(double)}) are evicted as well. Memory
+ * is thus bounded by the number of tuples emitted during the horizon, and not by the number of
+ * emitted tuples. The histograms are only maintained in streaming mode.
+ * 
+ * Every {@link SimulationContext} has its own time keeper.
+ */
 public class TimeKeeper {
 
-	private static TimeKeeper instance;
-	
 	private long simulationStartTime;
 	private int count; 
 	private Map<Integer, Double> emitTimes;
@@ -23,24 +40,159 @@ public class TimeKeeper {
 	private Map<Integer, Double> loopIdToCurrentAverage;
 	private Map<Integer, Integer> loopIdToCurrentNum;
 	
+	private boolean streaming;
+	private IntDoubleHashMap streamingEmitTimes;
+	private IntDoubleHashMap streamingCpuStartTimes;
+	/**
+	 * Number of executions in progress of every tuple in streaming mode; a tuple broadcast downwards may 
+	 * execute on several devices at once, all of them sharing the latest CPU start time.
+	 */
+	private IntIntHashMap streamingCpuExecutions;
+	private Map<Integer, LatencyHistogram> loopIdToLatencies;
+	private Map<String, LatencyHistogram> tupleTypeToCpuTimes;
+	
+	/** Default age after which an in-flight loop is considered lost in streaming mode. */
+	public static final double DEFAULT_STREAMING_HORIZON = 1000;
+	
+	private double streamingHorizon = DEFAULT_STREAMING_HORIZON;
+	/** Ids and times of the emissions of the last streaming horizon, as a ring buffer in emission order. */
+	private int[] emittedTupleIds = new int[64];
+	private double[] emittedTimes = new double[64];
+	private int emittedHead;
+	private int emittedSize;
+	private long numEvictedTuples;
+	
+	/**
+	 * @return the time keeper of the current simulation context
+	 * @see SimulationContext#getCurrent()
+	 */
 	public static TimeKeeper getInstance(){
-		if(instance == null)
-			instance = new TimeKeeper();
-		return instance;
+		return SimulationContext.getCurrent().getTimeKeeper();
 	}
 	
 	public int getUniqueId(){
 		return count++;
 	}
 	
+	/**
+	 * Records the emission of a tuple starting the given loop.
+	 * @param loopId id of the loop
+	 * @return the unique id identifying the tuple and its descendants along the loop
+	 */
+	public int tupleEmitted(int loopId){
+		int tupleId = getUniqueId();
+		if(streaming){
+			if(!loopIdToLatencies.containsKey(loopId))
+				loopIdToLatencies.put(loopId, new LatencyHistogram());
+			double time = CloudSim.clock();
+			evictStaleEmissions(time);
+			streamingEmitTimes.put(tupleId, time);
+			addEmission(tupleId, time);
+			return tupleId;
+		}
+		if(!getLoopIdToTupleIds().containsKey(loopId))
+			getLoopIdToTupleIds().put(loopId, new ArrayList<Integer>());
+		getLoopIdToTupleIds().get(loopId).add(tupleId);
+		getEmitTimes().put(tupleId, CloudSim.clock());
+		return tupleId;
+	}
+	
+	/**
+	 * Records the arrival of a tuple at the end module of the given loop, updating the delay of the loop.
+	 * Has no effect if the emission of the tuple was not recorded or its arrival was already recorded.
+	 * @param loopId id of the loop
+	 * @param actualTupleId id returned by {@link #tupleEmitted(int)} when the loop started
+	 */
+	public void loopEnded(int loopId, int actualTupleId){
+		double delay;
+		if(streaming){
+			double startTime = streamingEmitTimes.remove(actualTupleId, Double.NaN);
+			if(Double.isNaN(startTime))
+				return;
+			delay = CloudSim.clock() - startTime;
+		}else{
+			Double startTime = getEmitTimes().remove(actualTupleId);
+			if(startTime == null)
+				return;
+			delay = CloudSim.clock() - startTime;
+		}
+		if(!getLoopIdToCurrentAverage().containsKey(loopId)){
+			getLoopIdToCurrentAverage().put(loopId, 0.0);
+			getLoopIdToCurrentNum().put(loopId, 0);
+		}
+		double currentAverage = getLoopIdToCurrentAverage().get(loopId);
+		int currentCount = getLoopIdToCurrentNum().get(loopId);
+		double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
+		getLoopIdToCurrentAverage().put(loopId, newAverage);
+		getLoopIdToCurrentNum().put(loopId, currentCount+1);
+		if(streaming){
+			if(!loopIdToLatencies.containsKey(loopId))
+				loopIdToLatencies.put(loopId, new LatencyHistogram());
+			loopIdToLatencies.get(loopId).record(delay);
+		}
+	}
+	
+	private void addEmission(int tupleId, double time){
+		if(emittedSize == emittedTupleIds.length){
+			int[] ids = new int[2 * emittedSize];
+			double[] times = new double[2 * emittedSize];
+			for(int i = 0; i < emittedSize; i++){
+				ids[i] = emittedTupleIds[(emittedHead + i) % emittedSize];
+				times[i] = emittedTimes[(emittedHead + i) % emittedSize];
+			}
+			emittedTupleIds = ids;
+			emittedTimes = times;
+			emittedHead = 0;
+		}
+		int tail = (emittedHead + emittedSize) % emittedTupleIds.length;
+		emittedTupleIds[tail] = tupleId;
+		emittedTimes[tail] = time;
+		emittedSize++;
+	}
+	
+	/**
+	 * Forgets the emissions older than the streaming horizon, counting the tuples whose loop did
+	 * not complete as lost.
+	 */
+	private void evictStaleEmissions(double time){
+		while(emittedSize > 0 && emittedTimes[emittedHead] < time - streamingHorizon){
+			if(!Double.isNaN(streamingEmitTimes.remove(emittedTupleIds[emittedHead], Double.NaN)))
+				numEvictedTuples++;
+			emittedHead = (emittedHead + 1) % emittedTupleIds.length;
+			emittedSize--;
+		}
+	}
+	
 	public void tupleStartedExecution(Tuple tuple){
-		tupleIdToCpuStartTime.put(tuple.getCloudletId(), CloudSim.clock());
+		if(streaming){
+			streamingCpuStartTimes.put(tuple.getCloudletId(), CloudSim.clock());
+			streamingCpuExecutions.put(tuple.getCloudletId(), streamingCpuExecutions.get(tuple.getCloudletId(), 0) + 1);
+		}else
+			tupleIdToCpuStartTime.put(tuple.getCloudletId(), CloudSim.clock());
 	}
 	
 	public void tupleEndedExecution(Tuple tuple){
-		if(!tupleIdToCpuStartTime.containsKey(tuple.getCloudletId()))
-			return;
-		double executionTime = CloudSim.clock() - tupleIdToCpuStartTime.get(tuple.getCloudletId());
+		double executionTime;
+		if(streaming){
+			double startTime = streamingCpuStartTimes.get(tuple.getCloudletId(), Double.NaN);
+			if(Double.isNaN(startTime))
+				return;
+			executionTime = CloudSim.clock() - startTime;
+			int executions = streamingCpuExecutions.remove(tuple.getCloudletId(), 1);
+			if(executions > 1)
+				streamingCpuExecutions.put(tuple.getCloudletId(), executions - 1);
+			else
+				streamingCpuStartTimes.remove(tuple.getCloudletId(), Double.NaN);
+		}else{
+			if(!tupleIdToCpuStartTime.containsKey(tuple.getCloudletId()))
+				return;
+			executionTime = CloudSim.clock() - tupleIdToCpuStartTime.get(tuple.getCloudletId());
+		}
+		if(streaming){
+			if(!tupleTypeToCpuTimes.containsKey(tuple.getTupleType()))
+				tupleTypeToCpuTimes.put(tuple.getTupleType(), new LatencyHistogram());
+			tupleTypeToCpuTimes.get(tuple.getTupleType()).record(executionTime);
+		}
 		if(!tupleTypeToAverageCpuTime.containsKey(tuple.getTupleType())){
 			tupleTypeToAverageCpuTime.put(tuple.getTupleType(), executionTime);
 			tupleTypeToExecutedTupleCount.put(tuple.getTupleType(), 1);
@@ -55,7 +207,7 @@ public class TimeKeeper {
 		return getInstance().getLoopIdToTupleIds();
 	}
 	
-	private TimeKeeper(){
+	TimeKeeper(){
 		count = 1;
 		setEmitTimes(new HashMap<Integer, Double>());
 		setEndTimes(new HashMap<Integer, Double>());
@@ -65,6 +217,77 @@ public class TimeKeeper {
 		setTupleIdToCpuStartTime(new HashMap<Integer, Double>());
 		setLoopIdToCurrentAverage(new HashMap<Integer, Double>());
 		setLoopIdToCurrentNum(new HashMap<Integer, Integer>());
+		streamingEmitTimes = new IntDoubleHashMap();
+		streamingCpuStartTimes = new IntDoubleHashMap();
+		streamingCpuExecutions = new IntIntHashMap();
+		loopIdToLatencies = new HashMap<Integer, LatencyHistogram>();
+		tupleTypeToCpuTimes = new HashMap<String, LatencyHistogram>();
+	}
+	
+	public boolean isStreaming() {
+		return streaming;
+	}
+	
+	/**
+	 * Switches the streaming mode, in which the times of in-flight tuples are evicted as soon as the 
+	 * tuples complete and only the latency histograms are retained. Should be set before the simulation starts.
+	 * @param streaming
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+	
+	public double getStreamingHorizon() {
+		return streamingHorizon;
+	}
+	
+	/**
+	 * Sets the age after which the emission of a tuple whose loop has not completed is forgotten in
+	 * streaming mode, the loop being counted as lost. Loops taking longer are not recorded.
+	 * @param streamingHorizon the horizon, in simulation time
+	 */
+	public void setStreamingHorizon(double streamingHorizon) {
+		if(!(streamingHorizon > 0))
+			throw new IllegalArgumentException("The streaming horizon should be positive, but is: " + streamingHorizon);
+		this.streamingHorizon = streamingHorizon;
+	}
+	
+	/**
+	 * @return the number of tuples whose loop did not complete within the streaming horizon
+	 */
+	public long getNumEvictedTuples() {
+		return numEvictedTuples;
+	}
+	
+	/**
+	 * @return the ids of the loops a tuple was emitted for
+	 */
+	public Set<Integer> getLoopIds() {
+		return streaming ? loopIdToLatencies.keySet() : loopIdToTupleIds.keySet();
+	}
+	
+	/**
+	 * @return the histogram of the delays of every loop in streaming mode, by loop id; a loop has an
+	 * entry as soon as a tuple starting it is emitted
+	 */
+	public Map<Integer, LatencyHistogram> getLoopIdToLatencies() {
+		return loopIdToLatencies;
+	}
+	
+	/**
+	 * @return the histogram of the CPU execution times of every tuple type in streaming mode, by tuple type
+	 */
+	public Map<String, LatencyHistogram> getTupleTypeToCpuTimes() {
+		return tupleTypeToCpuTimes;
+	}
+	
+	/**
+	 * @return the number of tuples whose emission or CPU start time is currently kept
+	 */
+	public int getNumTrackedTuples() {
+		if(streaming)
+			return streamingEmitTimes.size() + streamingCpuStartTimes.size();
+		return emitTimes.size() + tupleIdToCpuStartTime.size();
 	}
 	
 	public int getCount() {
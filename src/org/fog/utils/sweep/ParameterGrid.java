@@ -0,0 +1,80 @@
+package org.fog.utils.sweep;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grid of simulation parameters, each taking a list of values. The runs of the grid are all the
+ * combinations of the values of the parameters, the first parameter varying the slowest.
+ */
+public class ParameterGrid {
+
+	private final Map<String, List<String>> parameters = new LinkedHashMap<String, List<String>>();
+
+	/**
+	 * Adds a parameter, or replaces the values of an existing one.
+	 * @param name name of the parameter
+	 * @param values values taken by the parameter
+	 * @return this grid
+	 */
+	public ParameterGrid addParameter(String name, String... values) {
+		if (values.length == 0)
+			throw new IllegalArgumentException("Parameter " + name + " should have at least one value");
+		parameters.put(name, Collections.unmodifiableList(new ArrayList<String>(Arrays.asList(values))));
+		return this;
+	}
+
+	/**
+	 * Parses a parameter given as <tt>name=value1,value2,...</tt>.
+	 * @return this grid
+	 */
+	public ParameterGrid addParameter(String definition) {
+		int separator = definition.indexOf('=');
+		if (separator <= 0)
+			throw new IllegalArgumentException("Parameter should be given as name=value1,value2,... but is: " + definition);
+		return addParameter(definition.substring(0, separator), definition.substring(separator + 1).split(","));
+	}
+
+	public List<String> getParameterNames() {
+		return new ArrayList<String>(parameters.keySet());
+	}
+
+	public List<String> getValues(String name) {
+		return parameters.get(name);
+	}
+
+	/**
+	 * @return the number of runs of the grid
+	 */
+	public int size() {
+		int size = 1;
+		for (List<String> values : parameters.values())
+			size *= values.size();
+		return size;
+	}
+
+	/**
+	 * @return the parameters of every run, in order
+	 */
+	public List<Map<String, String>> getRuns() {
+		List<Map<String, String>> runs = new ArrayList<Map<String, String>>();
+		runs.add(new LinkedHashMap<String, String>());
+		for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+			List<Map<String, String>> expanded = new ArrayList<Map<String, String>>(runs.size() * parameter.getValue().size());
+			for (Map<String, String> run : runs) {
+				for (String value : parameter.getValue()) {
+					Map<String, String> next = new LinkedHashMap<String, String>(run);
+					next.put(parameter.getKey(), value);
+					expanded.add(next);
+				}
+			}
+			runs = expanded;
+		}
+		return runs;
+	}
+
+}
@@ -0,0 +1,345 @@
+package org.fog.utils.sweep;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.entities.FogDevice;
+import org.fog.placement.Controller;
+import org.fog.utils.LatencyHistogram;
+import org.fog.utils.SimulationContext;
+import org.fog.utils.TimeKeeper;
+
+/**
+ * Runs a {@link SweepScenario} for every combination of a {@link ParameterGrid} on a bounded pool
+ * of threads, and writes the metrics of every run to a CSV file as soon as the run completes.
+ *
+ * The CloudSim kernel keeps its state in static fields, so every run loads its own copy of the
+ * simulator classes in a dedicated class loader, and also uses its own {@link SimulationContext}.
+ * Runs therefore share nothing but the virtual machine, and each of them takes the time needed to
+ * load and compile the simulator again. The parallelism of a sweep relies on that isolation: the
+ * context alone separates the fog metrics, ids and settings, not the future and deferred event
+ * queues or the clock of the kernel, so running two simulations at once with the same classes
+ * would mix their events.
+ *
+ * The CSV file has one row per metric of a run, with the columns <tt>run</tt>, one column per
+ * parameter, <tt>metric</tt> and <tt>value</tt>, so that runs with different sets of devices or
+ * loops fit the same header. A failed run has a single <tt>failed</tt> metric of value 1.
+ *
+ * Usage: <tt>SweepRunner scenarioClass output.csv parallelism name=value1,value2,... ...</tt>
+ */
+public class SweepRunner {
+
+	private final String scenarioClassName;
+	private final ParameterGrid grid;
+	private final int parallelism;
+	private URL[] classPath;
+	private boolean quiet = true;
+	/** Whether the current thread executes a run whose standard output is discarded. */
+	private final ThreadLocal<Boolean> discardingOutput = new ThreadLocal<Boolean>();
+
+	/**
+	 * @param scenarioClassName name of the {@link SweepScenario} implementation
+	 * @param grid parameters of the runs
+	 * @param parallelism maximum number of runs executing at the same time
+	 */
+	public SweepRunner(String scenarioClassName, ParameterGrid grid, int parallelism) {
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("The parallelism should be positive, but is: " + parallelism);
+		this.scenarioClassName = scenarioClassName;
+		this.grid = grid;
+		this.parallelism = parallelism;
+		setClassPath(defaultClassPath());
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Usage: SweepRunner scenarioClass output.csv parallelism name=value1,value2,... ...");
+			System.exit(1);
+		}
+		ParameterGrid grid = new ParameterGrid();
+		for (int i = 3; i < args.length; i++)
+			grid.addParameter(args[i]);
+		SweepRunner runner = new SweepRunner(args[0], grid, Integer.parseInt(args[2]));
+		Writer output = new FileWriter(args[1]);
+		int failed;
+		try {
+			failed = runner.run(output);
+		} finally {
+			output.close();
+		}
+		System.exit(failed == 0 ? 0 : 2);
+	}
+
+	/**
+	 * Executes all the runs of the grid.
+	 * @param output where the CSV rows are written; it is flushed after every run but not closed
+	 * @return the number of failed runs
+	 */
+	public int run(Writer output) throws IOException, InterruptedException {
+		List<Map<String, String>> runs = grid.getRuns();
+		List<String> parameterNames = grid.getParameterNames();
+		writeHeader(output, parameterNames);
+
+		final PrintStream console = System.out;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, runs.size()));
+		try {
+			if (quiet)
+				System.setOut(new PrintStream(new OutputStream() {
+					@Override
+					public void write(int b) {
+						if (discardingOutput.get() == null)
+							console.write(b);
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) {
+						if (discardingOutput.get() == null)
+							console.write(b, off, len);
+					}
+
+					@Override
+					public void flush() {
+						console.flush();
+					}
+				}, true));
+			CompletionService<RunResult> completion = new ExecutorCompletionService<RunResult>(executor);
+			for (int i = 0; i < runs.size(); i++)
+				completion.submit(createRun(i, runs.get(i)));
+			int failed = 0;
+			for (int done = 1; done <= runs.size(); done++) {
+				RunResult result = completion.take().get();
+				writeResult(output, parameterNames, result);
+				output.flush();
+				if (result.failure != null) {
+					failed++;
+					System.err.println("Run " + result.index + " " + result.parameters + " failed:");
+					result.failure.printStackTrace();
+				}
+				console.println(String.format("Run %d %s %s in %.1fs (%d/%d)", result.index, result.parameters,
+						result.failure == null ? "finished" : "failed", result.elapsed / 1e9, done, runs.size()));
+			}
+			return failed;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			if (quiet)
+				System.setOut(console);
+		}
+	}
+
+	private Callable<RunResult> createRun(final int index, final Map<String, String> parameters) {
+		return new Callable<RunResult>() {
+			@Override
+			public RunResult call() {
+				RunResult result = new RunResult(index, parameters);
+				long start = System.nanoTime();
+				if (quiet)
+					discardingOutput.set(Boolean.TRUE);
+				try {
+					result.metrics = executeIsolated(parameters);
+				} catch (Throwable e) {
+					result.failure = e;
+				} finally {
+					discardingOutput.remove();
+				}
+				result.elapsed = System.nanoTime() - start;
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Executes a run with a fresh copy of the simulator classes.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Double> executeIsolated(Map<String, String> parameters) throws Throwable {
+		URLClassLoader loader = new URLClassLoader(classPath, ClassLoader.getSystemClassLoader().getParent());
+		Thread thread = Thread.currentThread();
+		ClassLoader contextLoader = thread.getContextClassLoader();
+		thread.setContextClassLoader(loader);
+		try {
+			Class<?> runner = Class.forName(SweepRunner.class.getName(), true, loader);
+			Method execute = runner.getMethod("execute", String.class, Map.class);
+			return (Map<String, Double>) execute.invoke(null, scenarioClassName, parameters);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			thread.setContextClassLoader(contextLoader);
+			loader.close();
+		}
+	}
+
+	/**
+	 * Creates, runs and collects the metrics of a simulation in the current copy of the simulator
+	 * classes. Called by {@link #executeIsolated(Map)} through the class loader of the run.
+	 * @param scenarioClassName name of the {@link SweepScenario} implementation
+	 * @param parameters parameters of the run
+	 * @return the metrics of the run
+	 */
+	public static Map<String, Double> execute(String scenarioClassName, Map<String, String> parameters) throws Exception {
+		Log.disable();
+		SimulationContext context = new SimulationContext();
+		context.getConfig().setExitOnStop(false);
+		// the runs of a sweep report the percentiles of the loop delays, with a bounded memory
+		context.getTimeKeeper().setStreaming(true);
+		SimulationContext.setCurrent(context);
+		try {
+			SweepScenario scenario;
+			try {
+				scenario = (SweepScenario) Class.forName(scenarioClassName).getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalArgumentException("Cannot instantiate the scenario " + scenarioClassName, e);
+			}
+			Controller controller = scenario.createSimulation(parameters);
+			context.getTimeKeeper().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+			CloudSim.startSimulation();
+			return collectMetrics(context, controller);
+		} finally {
+			SimulationContext.setCurrent(null);
+		}
+	}
+
+	/**
+	 * @return the results printed by the controller at the end of the simulation, plus the
+	 *         percentiles of the loop delays and the total energy consumption
+	 */
+	static Map<String, Double> collectMetrics(SimulationContext context, Controller controller) {
+		Map<String, Double> metrics = new LinkedHashMap<String, Double>();
+		TimeKeeper timeKeeper = context.getTimeKeeper();
+		metrics.put("execution_time", (double) (Calendar.getInstance().getTimeInMillis() - timeKeeper.getSimulationStartTime()));
+		for (Integer loopId : timeKeeper.getLoopIds()) {
+			String loop = controller.getStringForLoopId(loopId);
+			Double average = timeKeeper.getLoopIdToCurrentAverage().get(loopId);
+			if (average != null)
+				metrics.put("loop_delay " + loop, average);
+			LatencyHistogram latencies = timeKeeper.getLoopIdToLatencies().get(loopId);
+			if (latencies != null && latencies.getCount() > 0) {
+				metrics.put("loop_delay_p50 " + loop, latencies.getP50());
+				metrics.put("loop_delay_p95 " + loop, latencies.getP95());
+				metrics.put("loop_delay_p99 " + loop, latencies.getP99());
+				metrics.put("loop_delay_max " + loop, latencies.getMax());
+			}
+		}
+		for (String tupleType : timeKeeper.getTupleTypeToAverageCpuTime().keySet())
+			metrics.put("tuple_cpu_time " + tupleType, timeKeeper.getTupleTypeToAverageCpuTime().get(tupleType));
+		double totalEnergy = 0;
+		for (FogDevice fogDevice : controller.getFogDevices()) {
+			metrics.put("energy " + fogDevice.getName(), fogDevice.getEnergyConsumption());
+			totalEnergy += fogDevice.getEnergyConsumption();
+		}
+		metrics.put("energy_total", totalEnergy);
+		FogDevice cloud = controller.getCloud();
+		if (cloud != null)
+			metrics.put("cloud_cost", cloud.getTotalCost());
+		metrics.put("network_usage", context.getNetworkUsage() / context.getConfig().getMaxSimulationTime());
+		return metrics;
+	}
+
+	private static void writeHeader(Writer output, List<String> parameterNames) throws IOException {
+		StringBuilder row = new StringBuilder("run");
+		for (String name : parameterNames)
+			row.append(',').append(quote(name));
+		row.append(",metric,value\n");
+		output.write(row.toString());
+	}
+
+	private static void writeResult(Writer output, List<String> parameterNames, RunResult result) throws IOException {
+		StringBuilder prefix = new StringBuilder().append(result.index);
+		for (String name : parameterNames)
+			prefix.append(',').append(quote(result.parameters.get(name)));
+		if (result.failure != null) {
+			output.write(prefix + ",failed,1\n");
+			return;
+		}
+		StringBuilder rows = new StringBuilder();
+		for (Map.Entry<String, Double> metric : result.metrics.entrySet())
+			rows.append(prefix).append(',').append(quote(metric.getKey())).append(',').append(metric.getValue()).append('\n');
+		output.write(rows.toString());
+	}
+
+	/**
+	 * Quotes a CSV field if it contains a separator, a quote or a line break.
+	 */
+	static String quote(String field) {
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0)
+			return field;
+		return '"' + field.replace("\"", "\"\"") + '"';
+	}
+
+	private static URL[] defaultClassPath() {
+		List<URL> urls = new ArrayList<URL>();
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			if (entry.isEmpty())
+				continue;
+			try {
+				urls.add(new File(entry).toURI().toURL());
+			} catch (MalformedURLException e) {
+				throw new IllegalArgumentException("Invalid class path entry: " + entry, e);
+			}
+		}
+		return urls.toArray(new URL[urls.size()]);
+	}
+
+	public URL[] getClassPath() {
+		return classPath;
+	}
+
+	/**
+	 * Sets the class path from which every run loads the simulator and the scenario, the class path
+	 * of the virtual machine by default.
+	 */
+	public void setClassPath(URL[] classPath) {
+		this.classPath = classPath;
+	}
+
+	public boolean isQuiet() {
+		return quiet;
+	}
+
+	/**
+	 * Sets whether the standard output of the simulations is discarded while the sweep runs, which
+	 * is the default. Runs executing at the same time would interleave their output otherwise.
+	 * Only the output of the threads executing the runs is discarded: the standard output of the
+	 * virtual machine is filtered while the sweep runs, and restored once it completes or fails.
+	 */
+	public void setQuiet(boolean quiet) {
+		this.quiet = quiet;
+	}
+
+	private static class RunResult {
+		final int index;
+		final Map<String, String> parameters;
+		Map<String, Double> metrics;
+		Throwable failure;
+		long elapsed;
+
+		RunResult(int index, Map<String, String> parameters) {
+			this.index = index;
+			this.parameters = parameters;
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package org.fog.utils.sweep;
+
+import java.util.Map;
+
+import org.fog.placement.Controller;
+
+/**
+ * Simulation run by a {@link SweepRunner} for every combination of a {@link ParameterGrid}.
+ * Implementations need a public no-argument constructor. Every run uses its own copy of the
+ * simulator classes, so an implementation may keep its configuration in static fields, as the
+ * studies of <tt>org.fog.test.perfeval</tt> do.
+ */
+public interface SweepScenario {
+
+	/**
+	 * Initializes CloudSim and creates the entities and applications of a simulation, without
+	 * starting it.
+	 * @param parameters value of every parameter of the grid for this run
+	 * @return the controller of the simulation, whose results are collected once it ends
+	 */
+	Controller createSimulation(Map<String, String> parameters) throws Exception;
+
+}